@@ -33,6 +33,7 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 }
 
@@ -44,14 +45,17 @@ dependencies {
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
     implementation(libs.swiperefreshlayout)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.livedata)
+    implementation(libs.security.crypto)
+    implementation(libs.work.runtime)
     implementation(libs.retrofit)
     implementation(libs.converter.gson)
     implementation(libs.okhttp.logging)
-<<<<<<< HEAD
     implementation(libs.glide)
-=======
-    implementation("com.github.bumptech.glide:glide:4.16.0")
->>>>>>> 3f8aaddc73892d73dcd74905b2ff593a3a621411
+    implementation(libs.glide.recyclerview)
+    implementation(libs.glide.okhttp)
+    annotationProcessor(libs.glide.compiler)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
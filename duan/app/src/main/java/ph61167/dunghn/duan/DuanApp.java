@@ -0,0 +1,28 @@
+package ph61167.dunghn.duan;
+
+import android.app.Application;
+import android.util.Log;
+
+import ph61167.dunghn.duan.data.local.SessionManager;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.NetworkMetrics;
+import ph61167.dunghn.duan.data.repository.FavoriteMembership;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
+
+public class DuanApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Đọc phiên đã lưu trên luồng nền ngay khi process khởi động, trước khi màn đầu tiên cần tới
+        SessionManager.init(this);
+        ApiClient.init(this);
+        FavoriteMembership.init(this);
+        SyncEngine.init(this);
+        if (BuildConfig.DEBUG) {
+            NetworkMetrics.getInstance().setListener((endpoint, durationMs, bytes, fromCache, code) ->
+                    Log.d("NetworkMetrics", endpoint + " " + code + " " + durationMs + " ms, "
+                            + bytes + " B" + (fromCache ? " (cache)" : "")));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ph61167.dunghn.duan;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+import java.io.InputStream;
+
+import okhttp3.OkHttpClient;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+
+/**
+ * Cấu hình Glide cho cả app: cache bộ nhớ đủ cho khoảng 3 màn hình ảnh lưới,
+ * cache đĩa 150 MB giữ cả ảnh gốc lẫn ảnh đã thu nhỏ, decode RGB_565 cho ảnh sản phẩm,
+ * và tải ảnh qua cùng connection pool với ApiClient.
+ */
+@GlideModule
+public final class DuanGlideModule extends AppGlideModule {
+
+    private static final long DISK_CACHE_BYTES = 150L * 1024 * 1024;
+    private static final float MEMORY_CACHE_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, "glide", DISK_CACHE_BYTES));
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.ALL));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        // Ảnh đã có cache đĩa của Glide, bỏ HTTP cache để không lưu hai lần
+        OkHttpClient client = ApiClient.getHttpClient().newBuilder().cache(null).build();
+        registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory(client));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
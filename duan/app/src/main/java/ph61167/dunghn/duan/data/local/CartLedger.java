@@ -0,0 +1,207 @@
+package ph61167.dunghn.duan.data.local;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ph61167.dunghn.duan.data.model.CartData;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.request.CartBatchRequest;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Sổ ghi thay đổi giỏ hàng phía client.
+ * Đổi số lượng / xóa được áp ngay lên danh sách hiển thị, rồi gom lại và gửi một lần
+ * qua POST /cart/items/batch sau {@link #FLUSH_DELAY_MS} kể từ thao tác cuối.
+ * Mỗi lần chỉ có một batch đang gửi; thao tác phát sinh trong lúc đó chờ batch sau.
+ * Response của server là trạng thái gốc mới, các thay đổi chưa gửi được áp lại lên trên.
+ * Chỉ dùng trên main thread.
+ */
+public final class CartLedger {
+
+    public interface Listener {
+        /** Giỏ hàng hiển thị (đã áp thay đổi chưa đồng bộ) vừa đổi. */
+        void onCartChanged(@NonNull List<CartData.Item> items);
+
+        /** Server sửa lại số lượng đã gửi, ví dụ vượt tồn kho. */
+        void onAdjusted(@NonNull List<CartData.Adjustment> adjustments);
+
+        void onSyncError(String message);
+    }
+
+    private static final long FLUSH_DELAY_MS = 600;
+    private static final long RETRY_DELAY_MS = 3000;
+    private static final int MAX_RETRIES = 3;
+
+    private static CartLedger instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    // productId -> số lượng tuyệt đối mong muốn (0 = xóa)
+    private final Map<String, Integer> pending = new LinkedHashMap<>();
+    private final Map<String, Integer> inFlight = new LinkedHashMap<>();
+    private String userId;
+    private List<CartData.Item> baseItems = Collections.emptyList();
+    private Listener listener;
+    private int retries;
+
+    private CartLedger() {
+    }
+
+    public static CartLedger getInstance() {
+        if (instance == null) {
+            instance = new CartLedger();
+        }
+        return instance;
+    }
+
+    /** Đổi người dùng thì bỏ toàn bộ trạng thái của người trước. */
+    public void bind(@NonNull String userId) {
+        if (userId.equals(this.userId)) return;
+        handler.removeCallbacks(flushRunnable);
+        this.userId = userId;
+        pending.clear();
+        inFlight.clear();
+        baseItems = Collections.emptyList();
+        retries = 0;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Bỏ listener chỉ khi nó vẫn là {@code listener} đã đăng ký; màn giỏ hàng mới có thể đã
+     * setListener trước khi onDestroy của màn cũ chạy.
+     */
+    public void clearListener(@NonNull Listener listener) {
+        if (this.listener == listener) this.listener = null;
+    }
+
+    /** Ghi nhận giỏ hàng vừa tải từ server; các thay đổi chưa đồng bộ vẫn được giữ. */
+    public void replaceBase(@Nullable CartData data) {
+        baseItems = data != null && data.getItems() != null
+                ? new ArrayList<>(data.getItems())
+                : Collections.<CartData.Item>emptyList();
+        notifyChanged();
+    }
+
+    public void setQuantity(@NonNull String productId, int quantity) {
+        pending.put(productId, Math.max(quantity, 0));
+        retries = 0;
+        notifyChanged();
+        scheduleFlush(FLUSH_DELAY_MS);
+    }
+
+    public void remove(@NonNull String productId) {
+        setQuantity(productId, 0);
+    }
+
+    public boolean hasUnsyncedChanges() {
+        return !pending.isEmpty() || !inFlight.isEmpty();
+    }
+
+    /** Gửi ngay các thay đổi đang chờ, ví dụ khi rời màn giỏ hàng. */
+    public void flushNow() {
+        handler.removeCallbacks(flushRunnable);
+        flush();
+    }
+
+    /** Giỏ hàng hiển thị: trạng thái server + batch đang gửi + thay đổi chưa gửi. */
+    @NonNull
+    public List<CartData.Item> currentItems() {
+        List<CartData.Item> result = new ArrayList<>(baseItems.size());
+        for (CartData.Item item : baseItems) {
+            String productId = item.getProduct() != null ? item.getProduct().getId() : null;
+            Integer quantity = productId != null ? pending.get(productId) : null;
+            if (quantity == null && productId != null) quantity = inFlight.get(productId);
+            if (quantity == null) {
+                result.add(item);
+            } else if (quantity > 0) {
+                result.add(quantity == item.getQuantity() ? item : item.withQuantity(quantity));
+            }
+        }
+        return result;
+    }
+
+    private void scheduleFlush(long delayMs) {
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, delayMs);
+    }
+
+    private void flush() {
+        if (userId == null || pending.isEmpty() || !inFlight.isEmpty()) return;
+        inFlight.putAll(pending);
+        pending.clear();
+
+        List<CartBatchRequest.Entry> entries = new ArrayList<>(inFlight.size());
+        for (Map.Entry<String, Integer> entry : inFlight.entrySet()) {
+            entries.add(new CartBatchRequest.Entry(entry.getKey(), entry.getValue()));
+        }
+        String requestUserId = userId;
+        ApiClient.getService()
+                .syncCartItems(new CartBatchRequest(requestUserId, entries))
+                .enqueue(new Callback<BaseResponse<CartData>>() {
+                    @Override
+                    public void onResponse(Call<BaseResponse<CartData>> call, Response<BaseResponse<CartData>> response) {
+                        if (!requestUserId.equals(userId)) return;
+                        BaseResponse<CartData> body = response.body();
+                        if (!response.isSuccessful() || body == null || !body.isSuccess() || body.getData() == null) {
+                            onFlushFailed(body != null ? body.getMessage() : "Không thể đồng bộ giỏ hàng (" + response.code() + ")");
+                            return;
+                        }
+                        inFlight.clear();
+                        retries = 0;
+                        CartData data = body.getData();
+                        // Response là giỏ hàng đầy đủ, màn khác (thanh toán) dùng lại không cần tải
+                        CartRepository.getInstance().putCart(requestUserId, data);
+                        baseItems = data.getItems() != null
+                                ? new ArrayList<>(data.getItems())
+                                : Collections.<CartData.Item>emptyList();
+                        List<CartData.Adjustment> adjustments = data.getAdjustments();
+                        if (adjustments != null && !adjustments.isEmpty() && listener != null) {
+                            listener.onAdjusted(adjustments);
+                        }
+                        notifyChanged();
+                        if (!pending.isEmpty()) scheduleFlush(FLUSH_DELAY_MS);
+                    }
+
+                    @Override
+                    public void onFailure(Call<BaseResponse<CartData>> call, Throwable t) {
+                        if (!requestUserId.equals(userId)) return;
+                        onFlushFailed("Lỗi kết nối: " + t.getMessage());
+                    }
+                });
+    }
+
+    private void onFlushFailed(String message) {
+        // Trả batch về hàng chờ; thao tác mới hơn của cùng sản phẩm được ưu tiên
+        for (Map.Entry<String, Integer> entry : inFlight.entrySet()) {
+            if (!pending.containsKey(entry.getKey())) {
+                pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+        inFlight.clear();
+        if (retries < MAX_RETRIES) {
+            retries++;
+            scheduleFlush(RETRY_DELAY_MS * retries);
+        }
+        if (listener != null) listener.onSyncError(message);
+    }
+
+    private void notifyChanged() {
+        if (listener != null) listener.onCartChanged(currentItems());
+    }
+}
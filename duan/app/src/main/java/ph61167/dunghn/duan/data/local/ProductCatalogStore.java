@@ -0,0 +1,276 @@
+package ph61167.dunghn.duan.data.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ph61167.dunghn.duan.data.model.Product;
+
+/**
+ * Catalog sản phẩm lưu trên máy để HomeActivity hiển thị ngay khi mở app,
+ * sau đó mới đồng bộ delta với server theo {@code updatedAt}.
+ * Các hàm đều chạy đồng bộ, phải gọi ngoài main thread.
+ */
+public final class ProductCatalogStore extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "duan_catalog.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String PREF_NAME = "duan_catalog";
+    private static final String KEY_LAST_FULL_SYNC = "last_full_sync";
+
+    private static final String TABLE = "products";
+    private static final String COL_ID = "id";
+    private static final String COL_NAME = "name";
+    private static final String COL_DESCRIPTION = "description";
+    private static final String COL_PRICE = "price";
+    private static final String COL_STOCK = "stock";
+    private static final String COL_IMAGE = "image";
+    private static final String COL_CATEGORY_ID = "category_id";
+    private static final String COL_CATEGORY_NAME = "category_name";
+    private static final String COL_RATING = "rating";
+    private static final String COL_SOLD_COUNT = "sold_count";
+    private static final String COL_DISCOUNT = "discount";
+    private static final String COL_CREATED_AT = "created_at";
+    private static final String COL_UPDATED_AT = "updated_at";
+
+    // Cùng thứ tự cho trang catalog và chỉ mục tìm kiếm
+    private static final String CATALOG_ORDER = COL_CREATED_AT + " DESC, " + COL_ID + " DESC";
+    private static final int MAX_SQL_ARGS = 900;
+
+    private static volatile ProductCatalogStore instance;
+
+    private final SharedPreferences preferences;
+
+    private ProductCatalogStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static ProductCatalogStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ProductCatalogStore.class) {
+                if (instance == null) {
+                    instance = new ProductCatalogStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT PRIMARY KEY, "
+                + COL_NAME + " TEXT, "
+                + COL_DESCRIPTION + " TEXT, "
+                + COL_PRICE + " REAL NOT NULL DEFAULT 0, "
+                + COL_STOCK + " INTEGER, "
+                + COL_IMAGE + " TEXT, "
+                + COL_CATEGORY_ID + " TEXT, "
+                + COL_CATEGORY_NAME + " TEXT, "
+                + COL_RATING + " REAL, "
+                + COL_SOLD_COUNT + " INTEGER, "
+                + COL_DISCOUNT + " REAL, "
+                + COL_CREATED_AT + " TEXT, "
+                + COL_UPDATED_AT + " TEXT)");
+        db.execSQL("CREATE INDEX idx_products_created_at ON " + TABLE + "(" + COL_CREATED_AT + ")");
+        db.execSQL("CREATE INDEX idx_products_updated_at ON " + TABLE + "(" + COL_UPDATED_AT + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Catalog chỉ là bản sao của server, xóa đi tải lại là đủ
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+        preferences.edit().remove(KEY_LAST_FULL_SYNC).apply();
+    }
+
+    /** Một trang catalog, mới nhất trước (giống sort mặc định của GET /products). */
+    public List<Product> getPage(int offset, int limit) {
+        List<Product> result = new ArrayList<>(limit);
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE, null, null, null, null, null,
+                CATALOG_ORDER,
+                offset + "," + limit)) {
+            while (cursor.moveToNext()) {
+                result.add(readProduct(cursor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dựng chỉ mục tìm kiếm bằng cách duyệt cursor, chỉ đọc id, tên, mô tả và danh mục;
+     * không tạo {@link Product} nào, mỗi dòng chỉ giữ lại văn bản đã chuẩn hóa.
+     */
+    public ProductSearchIndex buildSearchIndex() {
+        ProductSearchIndex.Builder builder = new ProductSearchIndex.Builder();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE,
+                new String[]{COL_ID, COL_NAME, COL_DESCRIPTION, COL_CATEGORY_ID, COL_CATEGORY_NAME},
+                null, null, null, null,
+                CATALOG_ORDER)) {
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4));
+            }
+        }
+        return builder.build();
+    }
+
+    /** Các sản phẩm theo đúng thứ tự {@code ids}; id không còn trong catalog bị bỏ qua. */
+    public List<Product> getByIds(List<String> ids) {
+        Map<String, Product> found = new HashMap<>(ids.size() * 2);
+        SQLiteDatabase db = getReadableDatabase();
+        // SQLite giới hạn 999 tham số mỗi câu lệnh
+        for (int from = 0; from < ids.size(); from += MAX_SQL_ARGS) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_SQL_ARGS));
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ",?");
+            }
+            try (Cursor cursor = db.query(
+                    TABLE, null, COL_ID + " IN (" + placeholders + ")",
+                    chunk.toArray(new String[0]), null, null, null)) {
+                while (cursor.moveToNext()) {
+                    Product product = readProduct(cursor);
+                    found.put(product.getId(), product);
+                }
+            }
+        }
+        List<Product> result = new ArrayList<>(found.size());
+        for (String id : ids) {
+            Product product = found.get(id);
+            if (product != null) result.add(product);
+        }
+        return result;
+    }
+
+    public int count() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /** Mốc {@code updatedAt} mới nhất đã biết, dùng làm tham số {@code updatedSince}. */
+    @Nullable
+    public String getLatestUpdatedAt() {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MAX(" + COL_UPDATED_AT + ") FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    public void upsertAll(List<Product> products) {
+        if (products == null || products.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Product product : products) {
+                if (product == null || product.getId() == null) continue;
+                db.insertWithOnConflict(TABLE, null, toValues(product), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Sau một lần đồng bộ toàn bộ: xóa các sản phẩm không còn trên server.
+     */
+    public void retainOnly(Collection<String> ids) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TEMP TABLE IF NOT EXISTS keep_ids (id TEXT PRIMARY KEY)");
+            db.delete("keep_ids", null, null);
+            ContentValues values = new ContentValues();
+            for (String id : ids) {
+                values.put("id", id);
+                db.insertWithOnConflict("keep_ids", null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+            db.execSQL("DELETE FROM " + TABLE + " WHERE " + COL_ID + " NOT IN (SELECT id FROM keep_ids)");
+            db.delete("keep_ids", null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        preferences.edit().putLong(KEY_LAST_FULL_SYNC, System.currentTimeMillis()).apply();
+    }
+
+    public long getLastFullSyncMillis() {
+        return preferences.getLong(KEY_LAST_FULL_SYNC, 0L);
+    }
+
+    public void clear() {
+        getWritableDatabase().delete(TABLE, null, null);
+        preferences.edit().remove(KEY_LAST_FULL_SYNC).apply();
+    }
+
+    private static ContentValues toValues(Product product) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, product.getId());
+        values.put(COL_NAME, product.getName());
+        values.put(COL_DESCRIPTION, product.getDescription());
+        values.put(COL_PRICE, product.getPrice());
+        values.put(COL_STOCK, product.getStock());
+        values.put(COL_IMAGE, product.getImage());
+        Product.Category category = product.getCategory();
+        values.put(COL_CATEGORY_ID, category != null ? category.getId() : null);
+        values.put(COL_CATEGORY_NAME, category != null ? category.getName() : null);
+        values.put(COL_RATING, product.getRating());
+        values.put(COL_SOLD_COUNT, product.getSoldCount());
+        values.put(COL_DISCOUNT, product.getDiscount());
+        values.put(COL_CREATED_AT, product.getCreatedAt());
+        values.put(COL_UPDATED_AT, product.getUpdatedAt());
+        return values;
+    }
+
+    private static Product readProduct(Cursor cursor) {
+        Product product = new Product();
+        product.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_ID)));
+        product.setName(cursor.getString(cursor.getColumnIndexOrThrow(COL_NAME)));
+        product.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COL_DESCRIPTION)));
+        product.setPrice(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_PRICE)));
+        product.setStock(getNullableInt(cursor, COL_STOCK));
+        product.setImage(cursor.getString(cursor.getColumnIndexOrThrow(COL_IMAGE)));
+        String categoryId = cursor.getString(cursor.getColumnIndexOrThrow(COL_CATEGORY_ID));
+        if (categoryId != null) {
+            Product.Category category = new Product.Category();
+            category.setId(categoryId);
+            category.setName(cursor.getString(cursor.getColumnIndexOrThrow(COL_CATEGORY_NAME)));
+            product.setCategory(category);
+        }
+        product.setRating(getNullableDouble(cursor, COL_RATING));
+        product.setSoldCount(getNullableInt(cursor, COL_SOLD_COUNT));
+        product.setDiscount(getNullableDouble(cursor, COL_DISCOUNT));
+        product.setCreatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COL_CREATED_AT)));
+        product.setUpdatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COL_UPDATED_AT)));
+        return product;
+    }
+
+    @Nullable
+    private static Integer getNullableInt(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getInt(index);
+    }
+
+    @Nullable
+    private static Double getNullableDouble(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getDouble(index);
+    }
+}
@@ -0,0 +1,254 @@
+package ph61167.dunghn.duan.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import ph61167.dunghn.duan.data.model.Product;
+
+/**
+ * Chỉ mục tìm kiếm dựng sẵn cho catalog ở HomeActivity.
+ * Tên và mô tả sản phẩm được chuẩn hóa một lần (chữ thường, bỏ dấu tiếng Việt, đ → d) rồi
+ * tách thành trigram; mỗi trigram giữ danh sách vị trí sản phẩm đã sắp xếp.
+ * Khi tìm, giao các danh sách của trigram trong câu truy vấn rồi kiểm tra lại
+ * bằng {@code contains} trên tên và mô tả đã chuẩn hóa, nên kết quả giống hệt quét tuần tự
+ * nhưng không tạo chuỗi mới cho từng sản phẩm.
+ * <p>
+ * Chỉ giữ id, văn bản đã chuẩn hóa và danh mục, không giữ {@link Product}: dựng bằng
+ * {@link Builder} khi duyệt cursor của {@link ProductCatalogStore#buildSearchIndex()},
+ * kết quả là danh sách id để đọc lại đúng các dòng cần hiển thị.
+ * Đối tượng bất biến sau khi dựng; nên dựng ngoài main thread.
+ */
+public final class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    // normalize() đã gộp mọi khoảng trắng thành ' ', nên truy vấn không bao giờ chứa ký tự này:
+    // ghép tên và mô tả bằng nó thì contains không khớp vắt qua ranh giới hai phần
+    private static final char SEPARATOR = '\n';
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int[] EMPTY = new int[0];
+
+    private final String[] ids;
+    private final String[] texts;
+    private final Map<String, int[]> postings;
+    private final Map<String, BitSet> categoryBits;
+    private final List<Product.Category> categories;
+
+    private ProductSearchIndex(
+            String[] ids,
+            String[] texts,
+            Map<String, int[]> postings,
+            Map<String, BitSet> categoryBits,
+            List<Product.Category> categories
+    ) {
+        this.ids = ids;
+        this.texts = texts;
+        this.postings = postings;
+        this.categoryBits = categoryBits;
+        this.categories = categories;
+    }
+
+    /** Dựng từ danh sách đã có trong bộ nhớ, ví dụ các trang đang hiển thị. */
+    @NonNull
+    public static ProductSearchIndex build(@Nullable List<Product> source) {
+        Builder builder = new Builder();
+        if (source != null) {
+            for (Product product : source) {
+                if (product == null || product.getId() == null) continue;
+                Product.Category category = product.getCategory();
+                builder.add(
+                        product.getId(),
+                        product.getName(),
+                        product.getDescription(),
+                        category != null ? category.getId() : null,
+                        category != null ? category.getName() : null
+                );
+            }
+        }
+        return builder.build();
+    }
+
+    /** Thêm từng sản phẩm theo thứ tự catalog; kết quả tìm kiếm giữ đúng thứ tự này. */
+    public static final class Builder {
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, IntList> building = new HashMap<>();
+        private final Map<String, BitSet> categoryBits = new HashMap<>();
+        private final Map<String, Product.Category> categories = new LinkedHashMap<>();
+        private boolean built;
+
+        @NonNull
+        public Builder add(@NonNull String id, @Nullable String name, @Nullable String description,
+                           @Nullable String categoryId, @Nullable String categoryName) {
+            if (built) throw new IllegalStateException("Builder đã được dùng");
+            int position = ids.size();
+            String text = normalize(name) + SEPARATOR + normalize(description);
+            ids.add(id);
+            texts.add(text);
+            for (int start = 0; start + GRAM <= text.length(); start++) {
+                String gram = text.substring(start, start + GRAM);
+                if (gram.indexOf(SEPARATOR) >= 0) continue;
+                IntList list = building.get(gram);
+                if (list == null) {
+                    list = new IntList();
+                    building.put(gram, list);
+                }
+                list.addIfLast(position);
+            }
+
+            if (categoryId != null) {
+                BitSet bits = categoryBits.get(categoryId);
+                if (bits == null) {
+                    bits = new BitSet();
+                    categoryBits.put(categoryId, bits);
+                    Product.Category category = new Product.Category();
+                    category.setId(categoryId);
+                    category.setName(categoryName);
+                    categories.put(categoryId, category);
+                }
+                bits.set(position);
+            }
+            return this;
+        }
+
+        @NonNull
+        public ProductSearchIndex build() {
+            built = true;
+            Map<String, int[]> postings = new HashMap<>(building.size() * 2);
+            for (Map.Entry<String, IntList> entry : building.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return new ProductSearchIndex(
+                    ids.toArray(new String[0]),
+                    texts.toArray(new String[0]),
+                    postings,
+                    categoryBits,
+                    Collections.unmodifiableList(new ArrayList<>(categories.values()))
+            );
+        }
+    }
+
+    /** Chữ thường, bỏ dấu tiếng Việt, gộp khoảng trắng. */
+    @NonNull
+    public static String normalize(@Nullable String value) {
+        if (value == null || value.isEmpty()) return "";
+        String lower = value.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        String stripped = MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.trim().replaceAll("\\s+", " ");
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** Danh mục xuất hiện trong catalog, theo thứ tự gặp đầu tiên. */
+    @NonNull
+    public List<Product.Category> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Id các sản phẩm có tên hoặc mô tả chứa {@code query} (không phân biệt dấu) và thuộc
+     * {@code categoryId} nếu có; giữ nguyên thứ tự catalog.
+     */
+    @NonNull
+    public List<String> search(@Nullable String query, @Nullable String categoryId) {
+        BitSet matches = match(query, categoryId);
+        List<String> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    @NonNull
+    private BitSet match(@Nullable String query, @Nullable String categoryId) {
+        int n = ids.length;
+        BitSet result;
+        if (categoryId != null && !categoryId.isEmpty()) {
+            BitSet bits = categoryBits.get(categoryId);
+            if (bits == null) return new BitSet();
+            result = (BitSet) bits.clone();
+        } else {
+            result = new BitSet(n);
+            result.set(0, n);
+        }
+
+        String needle = normalize(query);
+        if (needle.isEmpty()) return result;
+
+        if (needle.length() >= GRAM) {
+            int[] candidates = candidates(needle);
+            BitSet narrowed = new BitSet(n);
+            for (int doc : candidates) {
+                if (result.get(doc)) narrowed.set(doc);
+            }
+            result = narrowed;
+        }
+        // Kiểm tra lại: trigram chỉ cho ứng viên, và truy vấn ngắn hơn 3 ký tự không có trigram
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            if (!texts[i].contains(needle)) result.clear(i);
+        }
+        return result;
+    }
+
+    private int[] candidates(String needle) {
+        List<int[]> lists = new ArrayList<>();
+        for (int start = 0; start + GRAM <= needle.length(); start++) {
+            int[] list = postings.get(needle.substring(start, start + GRAM));
+            if (list == null) return EMPTY;
+            lists.add(list);
+        }
+        // Giao từ danh sách ngắn nhất để tập ứng viên nhỏ nhanh nhất
+        Collections.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] current = lists.get(0);
+        for (int i = 1; i < lists.size() && current.length > 0; i++) {
+            current = intersect(current, lists.get(i));
+        }
+        return current;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == out.length ? out : Arrays.copyOf(out, k);
+    }
+
+    /** Mảng int tăng dần, bỏ qua phần tử trùng với phần tử cuối. */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) return;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,71 +1,304 @@
 package ph61167.dunghn.duan.data.local;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKeys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import ph61167.dunghn.duan.data.remote.response.AuthData;
 
-public class SessionManager {
+/**
+ * Phiên đăng nhập dùng chung cả app.
+ * Đọc file trên luồng nền ngay từ {@link #init(Context)} trong DuanApp, sau đó mọi getter trả về
+ * từ {@link Session} bất biến trong bộ nhớ. Ghi thì đổi snapshot ngay rồi lưu xuống
+ * EncryptedSharedPreferences trên một luồng nền (một luồng duy nhất nên thứ tự ghi được giữ nguyên).
+ * <p>
+ * Getter không bao giờ chặn main thread: khi chưa đọc xong, main thread nhận phiên rỗng, còn luồng
+ * nền thì chờ. Màn hình cần biết chắc trạng thái đăng nhập dùng {@link #whenReady(Runnable)} hoặc
+ * {@link #relaunchWhenReady(Activity)}.
+ */
+public final class SessionManager {
 
-    private static final String PREF_NAME = "duan_session";
+    private static final String TAG = "SessionManager";
+    private static final String PREF_NAME = "duan_session_secure";
+    // File cũ lưu dạng rõ, chỉ đọc một lần để chuyển sang file mã hóa
+    private static final String LEGACY_PREF_NAME = "duan_session";
     private static final String KEY_TOKEN = "token";
+    private static final String KEY_REFRESH_TOKEN = "refresh_token";
     private static final String KEY_USER_ID = "user_id";
     private static final String KEY_USER_NAME = "user_name";
     private static final String KEY_USER_EMAIL = "user_email";
 
-    private final SharedPreferences preferences;
+    private static volatile SessionManager instance;
+
+    private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    // Chờ đọc xong; chỉ truy cập khi giữ lock của this
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+    private SharedPreferences preferences;
+    private volatile Session session = Session.EMPTY;
+    // Đã có lần ghi trước khi đọc xong (ví dụ đăng nhập rất sớm): dữ liệu đọc từ file là cũ hơn
+    private boolean writtenBeforeLoad;
+
+    private SessionManager(Context context) {
+        io.execute(() -> {
+            preferences = openPreferences(context);
+            Session stored = migrateLegacy(context, readSession(preferences));
+            List<Runnable> callbacks;
+            synchronized (this) {
+                if (!writtenBeforeLoad) session = stored;
+                loaded.countDown();
+                callbacks = new ArrayList<>(readyCallbacks);
+                readyCallbacks.clear();
+            }
+            for (Runnable callback : callbacks) {
+                mainHandler.post(callback);
+            }
+        });
+    }
+
+    /** Gọi đầu tiên trong Application.onCreate để file được đọc sẵn trên luồng nền trước khi màn đầu tiên cần. */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (SessionManager.class) {
+                if (instance == null) {
+                    instance = new SessionManager(context.getApplicationContext());
+                }
+            }
+        }
+    }
+
+    public static SessionManager getInstance() {
+        SessionManager manager = instance;
+        if (manager == null) {
+            throw new IllegalStateException("SessionManager.init() chưa được gọi");
+        }
+        return manager;
+    }
+
+    /** true khi đã đọc xong phiên đã lưu; từ đó getter phản ánh đúng trạng thái đăng nhập. */
+    public boolean isReady() {
+        return loaded.getCount() == 0;
+    }
 
-    public SessionManager(Context context) {
-        this.preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    /** Chạy {@code callback} trên main thread khi đã đọc xong phiên (ngay lập tức nếu đã xong). */
+    public void whenReady(@NonNull Runnable callback) {
+        synchronized (this) {
+            if (!isReady()) {
+                readyCallbacks.add(callback);
+                return;
+            }
+        }
+        if (isMainThread()) {
+            callback.run();
+        } else {
+            mainHandler.post(callback);
+        }
+    }
+
+    /**
+     * Gọi đầu onCreate của màn cần phiên, trước khi kiểm tra đăng nhập. Khi Android mở lại màn đó
+     * ngay sau khi process bị hủy, phiên có thể chưa đọc xong: đóng màn này rồi mở lại đúng intent
+     * khi đã sẵn sàng, thay vì chờ trên main thread. Trả về true nếu đã đóng, nơi gọi return ngay.
+     */
+    public boolean relaunchWhenReady(@NonNull Activity activity) {
+        if (isReady()) return false;
+        Context app = activity.getApplicationContext();
+        Intent intent = new Intent(activity.getIntent()).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        whenReady(() -> app.startActivity(intent));
+        activity.finish();
+        return true;
+    }
+
+    /**
+     * Snapshot hiện tại. Luồng nền chờ tới khi đọc xong; main thread không chờ mà nhận phiên rỗng
+     * nếu chưa xong (thường đã xong từ lúc Application khởi động).
+     */
+    @NonNull
+    public Session current() {
+        if (!isReady() && isMainThread()) {
+            Log.w(TAG, "Đọc phiên trên main thread trước khi tải xong, dùng whenReady()");
+        }
+        awaitLoadedOffMainThread();
+        return session;
     }
 
     public void saveSession(AuthData data) {
         if (data == null || data.getUser() == null) return;
+        write(new Session(data.getToken(), data.getRefreshToken(), data.getUser().getId(),
+                data.getUser().getName(), data.getUser().getEmail()));
+    }
 
-        preferences.edit()
-                .putString(KEY_TOKEN, data.getToken())
-                .putString(KEY_USER_ID, data.getUser().getId())
-                .putString(KEY_USER_NAME, data.getUser().getName())
-                .putString(KEY_USER_EMAIL, data.getUser().getEmail())
-                .apply();
+    /** Lưu cặp token vừa làm mới, giữ nguyên thông tin user. Đăng xuất trong lúc chờ thì bỏ qua. */
+    public void updateTokens(String token, String refreshToken) {
+        // Chờ trước khi giữ lock: luồng đọc file cũng cần lock này để báo đã xong
+        awaitLoadedOffMainThread();
+        synchronized (this) {
+            Session old = session;
+            if (old.userId == null) return;
+            write(new Session(token, refreshToken, old.userId, old.userName, old.userEmail));
+        }
     }
 
     public void clearSession() {
-        preferences.edit().clear().apply();
+        write(Session.EMPTY);
     }
 
     public boolean isLoggedIn() {
-        return getUserId() != null;
+        return current().userId != null;
     }
 
     @Nullable
     public String getToken() {
-        return preferences.getString(KEY_TOKEN, null);
+        return current().token;
+    }
+
+    @Nullable
+    public String getRefreshToken() {
+        return current().refreshToken;
     }
 
     @Nullable
     public String getUserId() {
-        return preferences.getString(KEY_USER_ID, null);
+        return current().userId;
     }
 
     @Nullable
     public String getUserName() {
-        return preferences.getString(KEY_USER_NAME, null);
+        return current().userName;
     }
 
     @Nullable
     public String getUserEmail() {
-        return preferences.getString(KEY_USER_EMAIL, null);
+        return current().userEmail;
     }
 
     public void saveUserName(String name) {
-        preferences.edit().putString(KEY_USER_NAME, name).apply();
+        awaitLoadedOffMainThread();
+        synchronized (this) {
+            Session old = session;
+            write(new Session(old.token, old.refreshToken, old.userId, name, old.userEmail));
+        }
     }
 
     public void saveUserEmail(String email) {
-        preferences.edit().putString(KEY_USER_EMAIL, email).apply();
+        awaitLoadedOffMainThread();
+        synchronized (this) {
+            Session old = session;
+            write(new Session(old.token, old.refreshToken, old.userId, old.userName, email));
+        }
     }
-}
 
+    private synchronized void write(Session next) {
+        // Không chờ đọc xong: việc lưu xếp hàng sau việc đọc trên cùng luồng io
+        if (!isReady()) writtenBeforeLoad = true;
+        session = next;
+        io.execute(() -> persist(next));
+    }
+
+    private void persist(Session snapshot) {
+        SharedPreferences.Editor editor = preferences.edit().clear();
+        if (snapshot != Session.EMPTY) {
+            editor.putString(KEY_TOKEN, snapshot.token)
+                    .putString(KEY_REFRESH_TOKEN, snapshot.refreshToken)
+                    .putString(KEY_USER_ID, snapshot.userId)
+                    .putString(KEY_USER_NAME, snapshot.userName)
+                    .putString(KEY_USER_EMAIL, snapshot.userEmail);
+        }
+        // Đang ở luồng nền nên commit() đồng bộ cũng không sao
+        editor.commit();
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private void awaitLoadedOffMainThread() {
+        if (isReady() || isMainThread()) return;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static SharedPreferences openPreferences(Context context) {
+        try {
+            String masterKeyAlias = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
+            return EncryptedSharedPreferences.create(
+                    PREF_NAME,
+                    masterKeyAlias,
+                    context,
+                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        } catch (Exception e) {
+            // Keystore lỗi trên một số máy: vẫn cho đăng nhập, chỉ là không mã hóa
+            Log.w(TAG, "Không mở được EncryptedSharedPreferences, dùng SharedPreferences thường", e);
+            return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        }
+    }
+
+    private Session migrateLegacy(Context context, Session current) {
+        SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREF_NAME, Context.MODE_PRIVATE);
+        if (legacy.getAll().isEmpty()) return current;
+        Session migrated = current.userId != null ? current : readSession(legacy);
+        persist(migrated);
+        legacy.edit().clear().commit();
+        return migrated;
+    }
+
+    private static Session readSession(SharedPreferences prefs) {
+        String userId = prefs.getString(KEY_USER_ID, null);
+        if (userId == null) return Session.EMPTY;
+        return new Session(
+                prefs.getString(KEY_TOKEN, null),
+                prefs.getString(KEY_REFRESH_TOKEN, null),
+                userId,
+                prefs.getString(KEY_USER_NAME, null),
+                prefs.getString(KEY_USER_EMAIL, null));
+    }
+
+    /** Ảnh chụp bất biến của phiên đăng nhập. */
+    public static final class Session {
+        static final Session EMPTY = new Session(null, null, null, null, null);
+
+        @Nullable public final String token;
+        @Nullable public final String refreshToken;
+        @Nullable public final String userId;
+        @Nullable public final String userName;
+        @Nullable public final String userEmail;
+
+        Session(@Nullable String token, @Nullable String refreshToken, @Nullable String userId,
+                @Nullable String userName, @Nullable String userEmail) {
+            this.token = token;
+            this.refreshToken = refreshToken;
+            this.userId = userId;
+            this.userName = userName;
+            this.userEmail = userEmail;
+        }
+    }
+}
@@ -16,6 +16,9 @@ public class CartData {
     private String updatedAt;
     @SerializedName("items")
     private List<Item> items;
+    // Chỉ có trong response của POST /cart/items/batch
+    @SerializedName("adjustments")
+    private List<Adjustment> adjustments;
 
     public String getId() { return id; }
     public String getUserId() { return userId; }
@@ -23,6 +26,7 @@ public class CartData {
     public String getCreatedAt() { return createdAt; }
     public String getUpdatedAt() { return updatedAt; }
     public List<Item> getItems() { return items; }
+    public List<Adjustment> getAdjustments() { return adjustments; }
 
     public static class Item {
         @SerializedName("id")
@@ -40,6 +44,29 @@ public class CartData {
         public double getUnitPrice() { return unitPrice; }
         public double getLineTotal() { return lineTotal; }
         public int getQuantity() { return quantity; }
+
+        /** Bản sao với số lượng mới, dùng khi áp thay đổi chưa đồng bộ lên giỏ hàng. */
+        public Item withQuantity(int newQuantity) {
+            Item copy = new Item();
+            copy.id = id;
+            copy.product = product;
+            copy.unitPrice = unitPrice;
+            copy.quantity = newQuantity;
+            copy.lineTotal = unitPrice * newQuantity;
+            return copy;
+        }
+    }
+
+    /** Số lượng server đã sửa so với yêu cầu (hết hàng, sản phẩm không còn...). */
+    public static class Adjustment {
+        private String productId;
+        @SerializedName("soLuong")
+        private int quantity;
+        private String reason;
+
+        public String getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public String getReason() { return reason; }
     }
 
     public static class ProductInfo {
@@ -11,6 +11,7 @@ public class Order {
     // Legacy fields
     private String code;
     private String firstProductName;
+    private String firstProductImage;
     private int quantity;
     private int itemsCount;
 
@@ -32,6 +33,9 @@ public class Order {
     public String getFirstProductName() { return firstProductName; }
     public void setFirstProductName(String firstProductName) { this.firstProductName = firstProductName; }
 
+    public String getFirstProductImage() { return firstProductImage; }
+    public void setFirstProductImage(String firstProductImage) { this.firstProductImage = firstProductImage; }
+
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
 
@@ -74,9 +74,15 @@ public class OrderDetail {
     }
 
     public static class ProductInfo {
+        @SerializedName("_id")
+        private String id;
         private String image;
         private String name;
 
+        public String getId() {
+            return id;
+        }
+
         public String getImage() {
             return image;
         }
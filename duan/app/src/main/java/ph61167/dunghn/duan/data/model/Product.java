@@ -15,6 +15,8 @@ public class Product {
     private Double rating;
     private Integer soldCount;
     private Double discount;
+    private String createdAt;
+    private String updatedAt;
 
     public String getId() {
         return id;
@@ -96,6 +98,22 @@ public class Product {
         this.discount = discount;
     }
 
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public boolean isInStock() {
         return stock != null && stock > 0;
     }
@@ -1,46 +1,114 @@
 package ph61167.dunghn.duan.data.remote;
 
+import android.content.Context;
 import android.util.Log;
 
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
+import ph61167.dunghn.duan.BuildConfig;
+import ph61167.dunghn.duan.data.remote.json.ApiJson;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+/**
+ * OkHttpClient và ApiService dùng chung cho cả app.
+ * Gọi {@link #init(Context)} trong Application để bật HTTP cache trên đĩa
+ * (OkHttp tự gửi If-None-Match/If-Modified-Since theo ETag/Last-Modified của server).
+ */
 public final class ApiClient {
 
-    private static final String BASE_URL = "http://10.0.2.2:3000/api/";
-    private static ApiService apiService;
+    private static final String TAG = "ApiClient";
+    static final String SERVER_URL = "http://10.0.2.2:3000/";
+    private static final String BASE_URL = SERVER_URL + "api/";
+    private static final long CACHE_SIZE_BYTES = 20L * 1024 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 6;
+    // Logcat cắt dòng quá dài, cắt sớm để không tốn chuỗi lớn
+    private static final int MAX_LOG_LINE = 1024;
+
+    private static volatile Context appContext;
+    private static volatile OkHttpClient httpClient;
+    private static volatile ApiService apiService;
 
     private ApiClient() {
         // no-op
     }
 
+    public static void init(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static OkHttpClient getHttpClient() {
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (ApiClient.class) {
+                client = httpClient;
+                if (client == null) {
+                    client = buildClient();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
     public static ApiService getService() {
-        if (apiService == null) {
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(
-                    message -> Log.d("ApiClient", message)
+        ApiService service = apiService;
+        if (service == null) {
+            synchronized (ApiClient.class) {
+                service = apiService;
+                if (service == null) {
+                    Retrofit retrofit = new Retrofit.Builder()
+                            .baseUrl(BASE_URL)
+                            .addConverterFactory(GsonConverterFactory.create(ApiJson.gson()))
+                            .client(getHttpClient())
+                            .build();
+                    service = retrofit.create(ApiService.class);
+                    apiService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    private static OkHttpClient buildClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .addInterceptor(new AuthInterceptor(SERVER_URL))
+                .authenticator(new TokenAuthenticator(SERVER_URL))
+                .addInterceptor(new MetricsInterceptor(NetworkMetrics.getInstance()));
+
+        Context context = appContext;
+        if (context != null) {
+            builder.cache(new Cache(new File(context.getCacheDir(), "http"), CACHE_SIZE_BYTES));
+        } else {
+            Log.w(TAG, "ApiClient.init() chưa được gọi, chạy không có HTTP cache");
+        }
+
+        if (BuildConfig.DEBUG) {
+            // BASIC chỉ log dòng request/response, không đọc body vào bộ nhớ
+            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(message ->
+                    Log.d(TAG, message.length() > MAX_LOG_LINE ? message.substring(0, MAX_LOG_LINE) + "…" : message)
             );
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .addInterceptor(loggingInterceptor)
-                    .build();
-
-            Retrofit retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .client(client)
-                    .build();
-
-            apiService = retrofit.create(ApiService.class);
+            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+            builder.addInterceptor(loggingInterceptor);
         }
-        return apiService;
+        return builder.build();
     }
 }
-
@@ -2,6 +2,7 @@ package ph61167.dunghn.duan.data.remote;
 
 import java.util.List;
 
+import ph61167.dunghn.duan.data.model.Favorite;
 import ph61167.dunghn.duan.data.model.Product;
 import ph61167.dunghn.duan.data.model.Order;
 import ph61167.dunghn.duan.data.model.User;
@@ -10,9 +11,17 @@ import ph61167.dunghn.duan.data.model.OrderDetail;
 import ph61167.dunghn.duan.data.remote.response.OrdersListData;
 import ph61167.dunghn.duan.data.remote.request.LoginRequest;
 import ph61167.dunghn.duan.data.remote.request.RegisterRequest;
+import ph61167.dunghn.duan.data.remote.request.BatchRequest;
+import ph61167.dunghn.duan.data.remote.request.CartBatchRequest;
 import ph61167.dunghn.duan.data.remote.request.CartItemAddRequest;
+import ph61167.dunghn.duan.data.remote.request.CreateOrderRequest;
+import ph61167.dunghn.duan.data.remote.request.FavoriteRequest;
+import ph61167.dunghn.duan.data.remote.request.RefreshTokenRequest;
 import ph61167.dunghn.duan.data.remote.response.AuthData;
 import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.BatchResponseData;
+import ph61167.dunghn.duan.data.remote.response.FavoriteIdsData;
+import ph61167.dunghn.duan.data.remote.response.ProductsResponse;
 import ph61167.dunghn.duan.data.model.CartData;
 import retrofit2.Call;
 import retrofit2.http.Body;
@@ -30,8 +39,32 @@ public interface ApiService {
     @POST("users/register")
     Call<BaseResponse<AuthData>> register(@Body RegisterRequest request);
 
+    /** Gọi đồng bộ từ {@code TokenAuthenticator} khi access token hết hạn. */
+    @POST("users/refresh")
+    Call<BaseResponse<AuthData>> refreshToken(@Body RefreshTokenRequest request);
+
+    /** {@code cursor} là nextCursor của trang trước; có cursor thì server bỏ qua {@code page}. */
+    @GET("products")
+    Call<BaseResponse<ProductsResponse>> getProducts(
+            @Query("updatedSince") String updatedSince,
+            @Query("cursor") String cursor,
+            @Query("page") int page,
+            @Query("limit") int limit
+    );
+
     @GET("products")
-    Call<BaseResponse<List<Product>>> getProducts();
+    Call<BaseResponse<ProductsResponse>> searchProducts(
+            @Query("search") String search,
+            @Query("category") String category,
+            @Query("minPrice") Double minPrice,
+            @Query("maxPrice") Double maxPrice,
+            @Query("sortBy") String sortBy,
+            @Query("page") int page,
+            @Query("limit") int limit
+    );
+
+    @GET("products/{id}")
+    Call<BaseResponse<Product>> getProductById(@Path("id") String id);
 
     @GET("orders")
     Call<BaseResponse<List<Order>>> getOrders();
@@ -46,7 +79,14 @@ public interface ApiService {
     Call<BaseResponse<OrderDetail>> getOrderDetail(@retrofit2.http.Path("id") String id);
 
     @GET("orders/user/{id}/list")
-    Call<BaseResponse<OrdersListData>> getUserOrders(@retrofit2.http.Path("id") String userId);
+    Call<BaseResponse<OrdersListData>> getUserOrders(
+            @retrofit2.http.Path("id") String userId,
+            @Query("status") String status,
+            @Query("view") String view,
+            @Query("cursor") String cursor,
+            @Query("page") int page,
+            @Query("limit") int limit
+    );
 
     @POST("v1/cart/items")
     Call<BaseResponse<Object>> addCartItem(@Body CartItemAddRequest request);
@@ -54,10 +94,35 @@ public interface ApiService {
     @GET("v1/cart")
     Call<BaseResponse<CartData>> getCart(@Query("userId") String userId);
 
+    @DELETE("v1/cart")
+    Call<BaseResponse<Object>> clearCart(@Query("userId") String userId);
+
+    @POST("v1/cart/items/batch")
+    Call<BaseResponse<CartData>> syncCartItems(@Body CartBatchRequest request);
+
     @DELETE("v1/cart/items/{productId}")
     Call<BaseResponse<CartData>> deleteCartItem(@Path("productId") String productId, @Query("userId") String userId);
 
     @GET("orders/user/{id}")
     Call<BaseResponse<List<Order>>> getOrdersByUser(@Path("id") String userId);
-}
 
+    @POST("orders")
+    Call<BaseResponse<Order>> createOrder(@Body CreateOrderRequest request);
+
+    @GET("favorites/user/{userId}")
+    Call<BaseResponse<List<Favorite>>> getFavoritesByUser(@Path("userId") String userId);
+
+    // version: lần đồng bộ trước, null để lấy đầy đủ
+    @GET("favorites/user/{userId}/ids")
+    Call<BaseResponse<FavoriteIdsData>> getFavoriteIds(@Path("userId") String userId, @Query("version") Long version);
+
+    @POST("favorites")
+    Call<BaseResponse<Favorite>> addFavorite(@Body FavoriteRequest request);
+
+    @DELETE("favorites/user/{userId}/product/{productId}")
+    Call<BaseResponse<Favorite>> removeFavorite(@Path("userId") String userId, @Path("productId") String productId);
+
+    // Dùng qua BatchMultiplexer
+    @POST("batch")
+    Call<BaseResponse<BatchResponseData>> batch(@Body BatchRequest request);
+}
@@ -0,0 +1,45 @@
+package ph61167.dunghn.duan.data.remote;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import ph61167.dunghn.duan.data.local.SessionManager;
+
+/**
+ * Gắn "Authorization: Bearer &lt;token&gt;" vào request gửi tới server của app.
+ * Token đọc từ snapshot của {@link SessionManager} nên không chạm tới SharedPreferences.
+ * Request tới host khác (ảnh ngoài chẳng hạn) không bị gắn để tránh lộ token.
+ */
+final class AuthInterceptor implements Interceptor {
+
+    private final HttpUrl server;
+
+    AuthInterceptor(String serverUrl) {
+        this.server = HttpUrl.get(serverUrl);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header("Authorization") != null || !isOwnServer(request.url())) {
+            return chain.proceed(request);
+        }
+        String token = SessionManager.getInstance().getToken();
+        if (token == null) {
+            return chain.proceed(request);
+        }
+        return chain.proceed(request.newBuilder()
+                .header("Authorization", "Bearer " + token)
+                .build());
+    }
+
+    private boolean isOwnServer(HttpUrl url) {
+        return url.host().equals(server.host()) && url.port() == server.port();
+    }
+}
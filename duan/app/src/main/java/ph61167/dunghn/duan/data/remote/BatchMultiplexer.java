@@ -0,0 +1,129 @@
+package ph61167.dunghn.duan.data.remote;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ph61167.dunghn.duan.data.remote.json.ApiJson;
+import ph61167.dunghn.duan.data.remote.request.BatchRequest;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.BatchResponseData;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Gộp nhiều GET vào một POST /batch để màn hình lấy mọi thứ cần trong một round trip.
+ * Mỗi phần có callback riêng: phần lỗi (4xx/5xx) không ảnh hưởng các phần khác, còn lỗi
+ * của cả batch (mất mạng, server lỗi) báo về mọi phần. Callback chạy trên main thread.
+ * Mỗi instance chỉ {@link #execute()} một lần.
+ */
+public final class BatchMultiplexer {
+
+    // Khớp MAX_PARTS của routes/batch.js
+    public static final int MAX_PARTS = 10;
+
+    private final List<Part<?>> parts = new ArrayList<>();
+    private boolean executed;
+
+    /**
+     * @param path     đường dẫn GET tính từ /api, đã encode query
+     * @param dataType kiểu của trường {@code data} trong BaseResponse của phần này
+     */
+    public <T> BatchMultiplexer add(@NonNull String path, @NonNull Type dataType,
+                                    @NonNull ResultCallback<T> callback) {
+        if (executed) throw new IllegalStateException("Batch đã được gửi");
+        if (parts.size() >= MAX_PARTS) throw new IllegalStateException("Tối đa " + MAX_PARTS + " phần mỗi batch");
+        parts.add(new Part<>(String.valueOf(parts.size()), path, dataType, callback));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return parts.isEmpty();
+    }
+
+    public void execute() {
+        if (executed) throw new IllegalStateException("Batch đã được gửi");
+        executed = true;
+        if (parts.isEmpty()) return;
+
+        List<BatchRequest.Part> requests = new ArrayList<>(parts.size());
+        for (Part<?> part : parts) {
+            requests.add(new BatchRequest.Part(part.id, part.path));
+        }
+        ApiClient.getService()
+                .batch(new BatchRequest(requests))
+                .enqueue(new Callback<BaseResponse<BatchResponseData>>() {
+                    @Override
+                    public void onResponse(Call<BaseResponse<BatchResponseData>> call,
+                                           Response<BaseResponse<BatchResponseData>> response) {
+                        BaseResponse<BatchResponseData> body = response.body();
+                        if (!response.isSuccessful() || body == null || !body.isSuccess()
+                                || body.getData() == null || body.getData().getResponses() == null) {
+                            failAll(response.code(), body != null ? body.getMessage() : "Không thể tải dữ liệu");
+                            return;
+                        }
+                        Map<String, BatchResponseData.Part> byId = new HashMap<>();
+                        for (BatchResponseData.Part result : body.getData().getResponses()) {
+                            if (result != null && result.getId() != null) byId.put(result.getId(), result);
+                        }
+                        for (Part<?> part : parts) {
+                            BatchResponseData.Part result = byId.get(part.id);
+                            if (result == null) {
+                                part.callback.onError(response.code(), "Thiếu phản hồi cho " + part.path);
+                            } else {
+                                part.deliver(result);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<BaseResponse<BatchResponseData>> call, Throwable t) {
+                        failAll(0, "Lỗi kết nối: " + t.getMessage());
+                    }
+                });
+    }
+
+    private void failAll(int code, String message) {
+        for (Part<?> part : parts) {
+            part.callback.onError(code, message);
+        }
+    }
+
+    private static final class Part<T> {
+        final String id;
+        final String path;
+        final Type responseType;
+        final ResultCallback<T> callback;
+
+        Part(String id, String path, Type dataType, ResultCallback<T> callback) {
+            this.id = id;
+            this.path = path;
+            this.responseType = TypeToken.getParameterized(BaseResponse.class, dataType).getType();
+            this.callback = callback;
+        }
+
+        void deliver(BatchResponseData.Part result) {
+            BaseResponse<T> body = null;
+            try {
+                body = ApiJson.gson().fromJson(result.getBody(), responseType);
+            } catch (JsonParseException e) {
+                // Báo lỗi bên dưới như một response hỏng
+            }
+            int status = result.getStatus();
+            if (status < 200 || status >= 300 || body == null || !body.isSuccess()) {
+                callback.onError(status, body != null ? body.getMessage() : "Lỗi tải " + path + " (" + status + ")");
+                return;
+            }
+            callback.onSuccess(body.getData());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ph61167.dunghn.duan.data.remote;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Chọn biến thể ảnh theo kích thước ô hiển thị.
+ * Ảnh nằm trong /uploads của server được xin kèm {@code ?w=}, server trả bản WebP
+ * thu nhỏ gần nhất (xem sever/utils/imageVariants.js). Ảnh ở host khác giữ nguyên.
+ */
+public final class ImageUrls {
+
+    // Giống VARIANT_WIDTHS phía server, làm tròn ở client để cache key ổn định
+    private static final int[] WIDTHS = {160, 320, 640, 1080};
+    private static final String UPLOADS = "uploads/";
+
+    private ImageUrls() {
+        // no-op
+    }
+
+    @Nullable
+    public static String forWidth(@Nullable String image, int widthPx) {
+        if (image == null || image.isEmpty()) return image;
+        String url;
+        if (image.startsWith(ApiClient.SERVER_URL + UPLOADS)) {
+            url = image;
+        } else if (image.startsWith(UPLOADS)) {
+            url = ApiClient.SERVER_URL + image;
+        } else if (image.startsWith("/" + UPLOADS)) {
+            url = ApiClient.SERVER_URL + image.substring(1);
+        } else {
+            return image;
+        }
+        if (widthPx <= 0 || url.contains("?")) return url;
+        return url + "?w=" + bucket(widthPx);
+    }
+
+    private static int bucket(int widthPx) {
+        for (int width : WIDTHS) {
+            if (width >= widthPx) return width;
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+}
@@ -0,0 +1,55 @@
+package ph61167.dunghn.duan.data.remote;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Interceptor ứng dụng đo thời gian, số byte và cache hit của từng request.
+ * Response 304 sau khi revalidate cũng tính là cache hit vì body lấy từ cache.
+ */
+final class MetricsInterceptor implements Interceptor {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/([0-9a-fA-F]{24}|\\d+)(?=/|$)");
+
+    private final NetworkMetrics metrics;
+
+    MetricsInterceptor(NetworkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+
+        boolean fromCache = response.cacheResponse() != null
+                && (response.networkResponse() == null || response.networkResponse().code() == 304);
+        // Content-Length của response gốc từ mạng; body đã bị giải nén nên không dùng được
+        long bytes = -1;
+        Response network = response.networkResponse();
+        if (network != null) {
+            String length = network.header("Content-Length");
+            if (length != null) {
+                try {
+                    bytes = Long.parseLong(length);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } else if (response.body() != null) {
+            bytes = response.body().contentLength();
+        }
+
+        String endpoint = request.method() + " " + ID_SEGMENT.matcher(request.url().encodedPath()).replaceAll("/{id}");
+        metrics.record(endpoint, durationMs, bytes, fromCache, response.code());
+        return response;
+    }
+}
@@ -0,0 +1,99 @@
+package ph61167.dunghn.duan.data.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thống kê theo endpoint do {@link MetricsInterceptor} ghi lại:
+ * số request, tổng thời gian, số byte nhận và số lần trả từ HTTP cache.
+ * Endpoint được gom theo method + path, các đoạn id (ObjectId, số) thay bằng {@code {id}}.
+ */
+public final class NetworkMetrics {
+
+    public interface Listener {
+        void onRequest(@NonNull String endpoint, long durationMs, long bytes, boolean fromCache, int code);
+    }
+
+    public static final class EndpointStats {
+        private int count;
+        private int cacheHits;
+        private long totalDurationMs;
+        private long totalBytes;
+
+        EndpointStats() {
+        }
+
+        EndpointStats(EndpointStats other) {
+            this.count = other.count;
+            this.cacheHits = other.cacheHits;
+            this.totalDurationMs = other.totalDurationMs;
+            this.totalBytes = other.totalBytes;
+        }
+
+        public int getCount() { return count; }
+        public int getCacheHits() { return cacheHits; }
+        public long getTotalDurationMs() { return totalDurationMs; }
+        public long getTotalBytes() { return totalBytes; }
+
+        public long getAverageDurationMs() {
+            return count == 0 ? 0 : totalDurationMs / count;
+        }
+
+        public double getCacheHitRatio() {
+            return count == 0 ? 0 : (double) cacheHits / count;
+        }
+    }
+
+    private static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    private final Map<String, EndpointStats> stats = new HashMap<>();
+    private volatile Listener listener;
+
+    private NetworkMetrics() {
+    }
+
+    public static NetworkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    void record(String endpoint, long durationMs, long bytes, boolean fromCache, int code) {
+        synchronized (stats) {
+            EndpointStats entry = stats.get(endpoint);
+            if (entry == null) {
+                entry = new EndpointStats();
+                stats.put(endpoint, entry);
+            }
+            entry.count++;
+            entry.totalDurationMs += durationMs;
+            if (bytes > 0) entry.totalBytes += bytes;
+            if (fromCache) entry.cacheHits++;
+        }
+        Listener l = listener;
+        if (l != null) l.onRequest(endpoint, durationMs, bytes, fromCache, code);
+    }
+
+    /** Bản sao thống kê hiện tại. */
+    @NonNull
+    public Map<String, EndpointStats> snapshot() {
+        Map<String, EndpointStats> copy = new HashMap<>();
+        synchronized (stats) {
+            for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+                copy.put(entry.getKey(), new EndpointStats(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    public void reset() {
+        synchronized (stats) {
+            stats.clear();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ph61167.dunghn.duan.data.remote;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+import okhttp3.Authenticator;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+import ph61167.dunghn.duan.data.local.SessionManager;
+import ph61167.dunghn.duan.data.remote.request.RefreshTokenRequest;
+import ph61167.dunghn.duan.data.remote.response.AuthData;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+
+/**
+ * Server trả 401 cho request mang access token hết hạn: đổi refresh token lấy cặp mới rồi gửi lại
+ * request, nơi gọi không biết gì. Nhiều request cùng hết hạn thì chỉ một request làm mới,
+ * các request còn lại thấy token trong {@link SessionManager} đã khác token mình gửi và dùng luôn.
+ * Refresh token bị từ chối (hết hạn, đã đổi mật khẩu) thì xóa phiên để người dùng đăng nhập lại.
+ */
+final class TokenAuthenticator implements Authenticator {
+
+    private static final String TAG = "TokenAuthenticator";
+    private static final String REFRESH_PATH = "users/refresh";
+    private static final String BEARER = "Bearer ";
+
+    private final HttpUrl server;
+
+    TokenAuthenticator(String serverUrl) {
+        this.server = HttpUrl.get(serverUrl);
+    }
+
+    @Nullable
+    @Override
+    public Request authenticate(@Nullable Route route, @NonNull Response response) throws IOException {
+        Request request = response.request();
+        if (!isOwnServer(request.url())
+                || request.url().encodedPath().endsWith(REFRESH_PATH)
+                || response.priorResponse() != null) {
+            // Đã thử lại một lần mà vẫn 401 thì token mới cũng không được chấp nhận, dừng ở đây
+            return null;
+        }
+        String failedToken = bearerToken(request);
+        if (failedToken == null) return null;
+
+        SessionManager session = SessionManager.getInstance();
+        synchronized (this) {
+            String current = session.getToken();
+            if (current != null && !current.equals(failedToken)) {
+                return withToken(request, current);
+            }
+            String refreshed = refresh(session);
+            return refreshed != null ? withToken(request, refreshed) : null;
+        }
+    }
+
+    @Nullable
+    private String refresh(SessionManager session) throws IOException {
+        String refreshToken = session.getRefreshToken();
+        if (refreshToken == null) {
+            // Phiên lưu từ trước khi server cấp refresh token, không còn cách nào làm mới
+            session.clearSession();
+            return null;
+        }
+        retrofit2.Response<BaseResponse<AuthData>> result = ApiClient.getService()
+                .refreshToken(new RefreshTokenRequest(refreshToken))
+                .execute();
+        BaseResponse<AuthData> body = result.body();
+        if (result.isSuccessful() && body != null && body.isSuccess()
+                && body.getData() != null && body.getData().getToken() != null) {
+            AuthData data = body.getData();
+            session.updateTokens(data.getToken(), data.getRefreshToken());
+            return data.getToken();
+        }
+        if (result.code() == 401) {
+            session.clearSession();
+        } else {
+            Log.w(TAG, "Không làm mới được token: HTTP " + result.code());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String bearerToken(Request request) {
+        String header = request.header("Authorization");
+        return header != null && header.startsWith(BEARER) ? header.substring(BEARER.length()) : null;
+    }
+
+    private static Request withToken(Request request, String token) {
+        return request.newBuilder()
+                .header("Authorization", BEARER + token)
+                .build();
+    }
+
+    private boolean isOwnServer(HttpUrl url) {
+        return url.host().equals(server.host()) && url.port() == server.port();
+    }
+}
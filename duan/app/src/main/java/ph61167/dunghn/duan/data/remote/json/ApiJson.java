@@ -0,0 +1,26 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Gson dùng chung cho Retrofit và các chỗ cần parse JSON của API.
+ * Các model xuất hiện trong danh sách lớn (Product, Order, Favorite) được đọc bằng
+ * TypeAdapter streaming viết tay; các model còn lại vẫn dùng reflection mặc định.
+ */
+public final class ApiJson {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(ProductTypeAdapter.FACTORY)
+            .registerTypeAdapterFactory(OrderTypeAdapter.FACTORY)
+            .registerTypeAdapterFactory(FavoriteTypeAdapter.FACTORY)
+            .create();
+
+    private ApiJson() {
+        // no-op
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+}
@@ -0,0 +1,120 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import ph61167.dunghn.duan.data.model.Favorite;
+
+/** Đọc {@link Favorite} bằng streaming cho danh sách yêu thích. */
+final class FavoriteTypeAdapter extends TypeAdapter<Favorite> {
+
+    static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Favorite.class) return null;
+            return (TypeAdapter<T>) new FavoriteTypeAdapter(gson.getDelegateAdapter(this, TypeToken.get(Favorite.class)));
+        }
+    };
+
+    private final TypeAdapter<Favorite> delegate;
+
+    private FavoriteTypeAdapter(TypeAdapter<Favorite> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(JsonWriter out, Favorite value) throws IOException {
+        delegate.write(out, value);
+    }
+
+    @Override
+    public Favorite read(JsonReader in) throws IOException {
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Favorite favorite = new Favorite();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    favorite.setId(JsonReaders.nextString(in));
+                    break;
+                case "user":
+                    favorite.setUser(readUser(in));
+                    break;
+                case "product":
+                    favorite.setProduct(readProduct(in));
+                    break;
+                case "createdAt":
+                    favorite.setCreatedAt(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return favorite;
+    }
+
+    private static Favorite.UserInfo readUser(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            Favorite.UserInfo user = new Favorite.UserInfo();
+            user.setId(in.nextString());
+            return user;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Favorite.UserInfo user = new Favorite.UserInfo();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    user.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    user.setName(JsonReaders.nextString(in));
+                    break;
+                case "email":
+                    user.setEmail(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private static Favorite.ProductInfo readProduct(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            Favorite.ProductInfo product = new Favorite.ProductInfo();
+            product.setId(in.nextString());
+            return product;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Favorite.ProductInfo product = new Favorite.ProductInfo();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    product.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    product.setName(JsonReaders.nextString(in));
+                    break;
+                case "price":
+                    product.setPrice(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "image":
+                    product.setImage(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return product;
+    }
+}
@@ -0,0 +1,74 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/** Các hàm đọc giá trị có thể null dùng chung cho các TypeAdapter viết tay. */
+final class JsonReaders {
+
+    private JsonReaders() {
+        // no-op
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(in.nextBoolean());
+        }
+        // nextString() cũng đọc được số dưới dạng chuỗi
+        return in.nextString();
+    }
+
+    static Double nextDouble(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER) {
+            return in.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            // Đọc hết chuỗi trước để reader không kẹt lại khi chuỗi không phải số
+            String raw = in.nextString();
+            try {
+                return Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        in.skipValue();
+        return null;
+    }
+
+    static Integer nextInt(JsonReader in) throws IOException {
+        Double value = nextDouble(in);
+        return value != null ? value.intValue() : null;
+    }
+
+    static double nextDouble(JsonReader in, double fallback) throws IOException {
+        Double value = nextDouble(in);
+        return value != null ? value : fallback;
+    }
+
+    static int nextInt(JsonReader in, int fallback) throws IOException {
+        Double value = nextDouble(in);
+        return value != null ? value.intValue() : fallback;
+    }
+
+    /** true nếu token kế tiếp là object; null hoặc kiểu khác thì bỏ qua và trả về false. */
+    static boolean beginObjectOrSkip(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            return true;
+        }
+        in.skipValue();
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ph61167.dunghn.duan.data.model.Order;
+
+/**
+ * Đọc {@link Order} bằng streaming cho các màn danh sách đơn hàng.
+ * {@code user} và {@code items[].product} có thể là object đã populate hoặc chỉ là id;
+ * {@code shippingAddress} dạng chuỗi được đưa vào {@code address}.
+ */
+final class OrderTypeAdapter extends TypeAdapter<Order> {
+
+    static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Order.class) return null;
+            return (TypeAdapter<T>) new OrderTypeAdapter(gson.getDelegateAdapter(this, TypeToken.get(Order.class)));
+        }
+    };
+
+    private final TypeAdapter<Order> delegate;
+
+    private OrderTypeAdapter(TypeAdapter<Order> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(JsonWriter out, Order value) throws IOException {
+        delegate.write(out, value);
+    }
+
+    @Override
+    public Order read(JsonReader in) throws IOException {
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Order order = new Order();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    order.setId(JsonReaders.nextString(in));
+                    break;
+                case "code":
+                    order.setCode(JsonReaders.nextString(in));
+                    break;
+                case "firstProductName":
+                    order.setFirstProductName(JsonReaders.nextString(in));
+                    break;
+                case "firstProductImage":
+                    order.setFirstProductImage(JsonReaders.nextString(in));
+                    break;
+                case "quantity":
+                    order.setQuantity(JsonReaders.nextInt(in, 0));
+                    break;
+                case "itemsCount":
+                    order.setItemsCount(JsonReaders.nextInt(in, 0));
+                    break;
+                case "user":
+                    order.setUser(readUser(in));
+                    break;
+                case "items":
+                    order.setItems(readItems(in));
+                    break;
+                case "shippingAddress":
+                    order.setShippingAddress(readAddress(in));
+                    break;
+                case "status":
+                    order.setStatus(JsonReaders.nextString(in));
+                    break;
+                case "totalAmount":
+                    order.setTotalAmount(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "createdAt":
+                    order.setCreatedAt(JsonReaders.nextString(in));
+                    break;
+                case "updatedAt":
+                    order.setUpdatedAt(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return order;
+    }
+
+    private static Order.UserInfo readUser(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            Order.UserInfo user = new Order.UserInfo();
+            user.setId(in.nextString());
+            return user;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Order.UserInfo user = new Order.UserInfo();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    user.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    user.setName(JsonReaders.nextString(in));
+                    break;
+                case "email":
+                    user.setEmail(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private static List<Order.OrderItem> readItems(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<Order.OrderItem> items = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (!JsonReaders.beginObjectOrSkip(in)) continue;
+            Order.OrderItem item = new Order.OrderItem();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "product":
+                        item.setProduct(readProduct(in));
+                        break;
+                    case "quantity":
+                        item.setQuantity(JsonReaders.nextInt(in, 0));
+                        break;
+                    case "price":
+                        item.setPrice(JsonReaders.nextDouble(in, 0));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            items.add(item);
+        }
+        in.endArray();
+        return items;
+    }
+
+    private static Order.ProductInfo readProduct(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            Order.ProductInfo product = new Order.ProductInfo();
+            product.setId(in.nextString());
+            return product;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Order.ProductInfo product = new Order.ProductInfo();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    product.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    product.setName(JsonReaders.nextString(in));
+                    break;
+                case "price":
+                    product.setPrice(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "image":
+                    product.setImage(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return product;
+    }
+
+    private static Order.ShippingAddress readAddress(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            Order.ShippingAddress address = new Order.ShippingAddress();
+            address.setAddress(in.nextString());
+            return address;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Order.ShippingAddress address = new Order.ShippingAddress();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "fullName":
+                    address.setFullName(JsonReaders.nextString(in));
+                    break;
+                case "phone":
+                    address.setPhone(JsonReaders.nextString(in));
+                    break;
+                case "address":
+                    address.setAddress(JsonReaders.nextString(in));
+                    break;
+                case "city":
+                    address.setCity(JsonReaders.nextString(in));
+                    break;
+                case "district":
+                    address.setDistrict(JsonReaders.nextString(in));
+                    break;
+                case "ward":
+                    address.setWard(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return address;
+    }
+}
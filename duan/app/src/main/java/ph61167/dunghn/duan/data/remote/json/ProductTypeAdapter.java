@@ -0,0 +1,116 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import ph61167.dunghn.duan.data.model.Product;
+
+/**
+ * Đọc {@link Product} bằng streaming, không dùng reflection.
+ * {@code category} có thể là object đã populate hoặc chỉ là id dạng chuỗi.
+ * Ghi vẫn dùng adapter reflective mặc định vì app hiếm khi gửi Product lên server.
+ */
+final class ProductTypeAdapter extends TypeAdapter<Product> {
+
+    static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Product.class) return null;
+            return (TypeAdapter<T>) new ProductTypeAdapter(gson.getDelegateAdapter(this, TypeToken.get(Product.class)));
+        }
+    };
+
+    private final TypeAdapter<Product> delegate;
+
+    private ProductTypeAdapter(TypeAdapter<Product> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(JsonWriter out, Product value) throws IOException {
+        delegate.write(out, value);
+    }
+
+    @Override
+    public Product read(JsonReader in) throws IOException {
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Product product = new Product();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    product.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    product.setName(JsonReaders.nextString(in));
+                    break;
+                case "description":
+                    product.setDescription(JsonReaders.nextString(in));
+                    break;
+                case "price":
+                    product.setPrice(JsonReaders.nextDouble(in, 0));
+                    break;
+                case "stock":
+                    product.setStock(JsonReaders.nextInt(in));
+                    break;
+                case "image":
+                    product.setImage(JsonReaders.nextString(in));
+                    break;
+                case "category":
+                    product.setCategory(readCategory(in));
+                    break;
+                case "rating":
+                    product.setRating(JsonReaders.nextDouble(in));
+                    break;
+                case "soldCount":
+                    product.setSoldCount(JsonReaders.nextInt(in));
+                    break;
+                case "discount":
+                    product.setDiscount(JsonReaders.nextDouble(in));
+                    break;
+                case "createdAt":
+                    product.setCreatedAt(JsonReaders.nextString(in));
+                    break;
+                case "updatedAt":
+                    product.setUpdatedAt(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return product;
+    }
+
+    private static Product.Category readCategory(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING) {
+            Product.Category category = new Product.Category();
+            category.setId(in.nextString());
+            return category;
+        }
+        if (!JsonReaders.beginObjectOrSkip(in)) return null;
+        Product.Category category = new Product.Category();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "_id":
+                    category.setId(JsonReaders.nextString(in));
+                    break;
+                case "name":
+                    category.setName(JsonReaders.nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return category;
+    }
+}
@@ -0,0 +1,27 @@
+package ph61167.dunghn.duan.data.remote.request;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+public class BatchRequest {
+    @SerializedName("requests")
+    private final List<Part> requests;
+
+    public BatchRequest(List<Part> requests) {
+        this.requests = requests;
+    }
+
+    public static class Part {
+        @SerializedName("id")
+        private final String id;
+        // Đường dẫn GET tính từ /api, ví dụ "/favorites/user/<id>"
+        @SerializedName("path")
+        private final String path;
+
+        public Part(String id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+}
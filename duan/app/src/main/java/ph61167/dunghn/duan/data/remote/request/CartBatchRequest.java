@@ -0,0 +1,45 @@
+package ph61167.dunghn.duan.data.remote.request;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+public class CartBatchRequest {
+    @SerializedName("userId")
+    private final String userId;
+    @SerializedName("items")
+    private final List<Entry> items;
+
+    public CartBatchRequest(String userId, List<Entry> items) {
+        this.userId = userId;
+        this.items = items;
+    }
+
+    public static class Entry {
+        @SerializedName("productId")
+        private final String productId;
+        // Số lượng tuyệt đối, 0 = xóa khỏi giỏ
+        @SerializedName("soLuong")
+        private final Integer quantity;
+        // Hoặc số lượng cộng thêm, kèm opId để server không cộng hai lần khi gửi lại
+        @SerializedName("add")
+        private final Integer add;
+        @SerializedName("opId")
+        private final String opId;
+
+        public Entry(String productId, int quantity) {
+            this(productId, quantity, null, null);
+        }
+
+        private Entry(String productId, Integer quantity, Integer add, String opId) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.add = add;
+            this.opId = opId;
+        }
+
+        public static Entry increment(String productId, int add, String opId) {
+            return new Entry(productId, null, add, opId);
+        }
+    }
+}
@@ -4,12 +4,23 @@ import ph61167.dunghn.duan.data.model.User;
 
 public class AuthData {
     private String token;
+    private String refreshToken;
+    // Số giây access token còn hiệu lực
+    private long expiresIn;
     private User user;
 
     public String getToken() {
         return token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
     public User getUser() {
         return user;
     }
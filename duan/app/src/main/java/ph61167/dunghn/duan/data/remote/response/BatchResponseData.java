@@ -0,0 +1,32 @@
+package ph61167.dunghn.duan.data.remote.response;
+
+import com.google.gson.JsonElement;
+
+import java.util.List;
+
+public class BatchResponseData {
+    private List<Part> responses;
+
+    public List<Part> getResponses() {
+        return responses;
+    }
+
+    public static class Part {
+        private String id;
+        private int status;
+        // BaseResponse của từng phần, parse theo kiểu mà phần đó khai báo
+        private JsonElement body;
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public JsonElement getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ph61167.dunghn.duan.data.remote.response;
+
+import java.util.List;
+
+public class FavoriteIdsData {
+    private long version;
+    // true khi version client gửi lên vẫn là mới nhất; lúc đó productIds không có
+    private boolean unchanged;
+    private List<String> productIds;
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    public List<String> getProductIds() {
+        return productIds;
+    }
+}
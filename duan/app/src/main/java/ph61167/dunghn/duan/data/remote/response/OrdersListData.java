@@ -2,13 +2,45 @@ package ph61167.dunghn.duan.data.remote.response;
 
 import java.util.List;
 
-import ph61167.dunghn.duan.data.model.OrderDetail;
+import ph61167.dunghn.duan.data.model.Order;
 
+/** Một trang của GET /orders/user/:userId/list. */
 public class OrdersListData {
-    private List<OrderDetail> items;
+    private List<Order> items;
+    private int total;
+    private int page;
+    private int limit;
+    private int pages;
+    // Server cũ không gửi hai trường này
+    private Boolean hasMore;
+    private String nextCursor;
 
-    public List<OrderDetail> getItems() {
+    public List<Order> getItems() {
         return items;
     }
-}
 
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    /** Truyền vào lần tải trang sau; null khi đã hết. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore != null ? hasMore : page < pages;
+    }
+}
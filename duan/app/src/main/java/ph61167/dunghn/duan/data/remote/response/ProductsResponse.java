@@ -38,6 +38,9 @@ public class ProductsResponse {
         private int totalPages;
         private int totalItems;
         private int itemsPerPage;
+        // Phân trang keyset; server cũ không gửi
+        private Boolean hasMore;
+        private String nextCursor;
 
         public int getCurrentPage() {
             return currentPage;
@@ -70,6 +73,15 @@ public class ProductsResponse {
         public void setItemsPerPage(int itemsPerPage) {
             this.itemsPerPage = itemsPerPage;
         }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        /** Trang đi theo cursor không có totalPages nên ưu tiên cờ hasMore của server. */
+        public boolean hasMore(int page) {
+            return hasMore != null ? hasMore : page < totalPages;
+        }
     }
 
     public static class Filters {
@@ -0,0 +1,102 @@
+package ph61167.dunghn.duan.data.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import ph61167.dunghn.duan.data.model.CartData;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.BatchMultiplexer;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Giỏ hàng của người dùng, dùng chung giữa giỏ hàng, thanh toán, chi tiết sản phẩm và yêu thích.
+ * Mở giỏ hàng rồi sang thanh toán trong vòng {@link #CART_TTL_MS} chỉ tải giỏ một lần.
+ */
+public final class CartRepository {
+
+    private static final long CART_TTL_MS = 30_000;
+
+    private static CartRepository instance;
+
+    private final ResourceCache cache = ResourceCache.getInstance();
+
+    private CartRepository() {
+    }
+
+    public static CartRepository getInstance() {
+        if (instance == null) {
+            instance = new CartRepository();
+        }
+        return instance;
+    }
+
+    public void getCart(@NonNull String userId, boolean force, @NonNull ResultCallback<CartData> callback) {
+        cache.load(key(userId), CART_TTL_MS, force, () -> ApiClient.getService().getCart(userId), callback);
+    }
+
+    @Nullable
+    public CartData peekCart(@NonNull String userId) {
+        return cache.peek(key(userId));
+    }
+
+    /** Ghi giỏ hàng server vừa trả về (ví dụ response của batch) và báo cho observer. */
+    public void putCart(@NonNull String userId, @Nullable CartData data) {
+        cache.put(key(userId), data, CART_TTL_MS);
+    }
+
+    public void observeCart(@NonNull String userId, @NonNull ResourceCache.Observer<CartData> observer) {
+        cache.observe(key(userId), observer);
+    }
+
+    public void removeCartObserver(@NonNull String userId, @NonNull ResourceCache.Observer<CartData> observer) {
+        cache.removeObserver(key(userId), observer);
+    }
+
+    /** Thêm giỏ hàng vào một batch nếu chưa có trong cache; kết quả vào cache như {@link #getCart}. */
+    public void prefetch(@NonNull BatchMultiplexer batch, @NonNull String userId) {
+        if (peekCart(userId) != null) return;
+        batch.add("/v1/cart?userId=" + userId, CartData.class, new ResultCallback<CartData>() {
+            @Override
+            public void onSuccess(CartData data) {
+                putCart(userId, data);
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                // Màn giỏ hàng sẽ tự tải lại khi mở
+            }
+        });
+    }
+
+    public void clearCart(@NonNull String userId, @Nullable ResultCallback<Void> callback) {
+        ApiClient.getService()
+                .clearCart(userId)
+                .enqueue(new Callback<BaseResponse<Object>>() {
+                    @Override
+                    public void onResponse(Call<BaseResponse<Object>> call, Response<BaseResponse<Object>> response) {
+                        // Server xóa hẳn giỏ cũ, lần tải sau sẽ nhận giỏ rỗng mới tạo
+                        cache.invalidate(key(userId));
+                        if (callback == null) return;
+                        BaseResponse<Object> body = response.body();
+                        if (!response.isSuccessful() || body == null || !body.isSuccess()) {
+                            callback.onError(response.code(), body != null ? body.getMessage() : "Không thể xóa giỏ hàng");
+                            return;
+                        }
+                        callback.onSuccess(null);
+                    }
+
+                    @Override
+                    public void onFailure(Call<BaseResponse<Object>> call, Throwable t) {
+                        cache.invalidate(key(userId));
+                        if (callback != null) callback.onError(0, "Lỗi kết nối: " + t.getMessage());
+                    }
+                });
+    }
+
+    private static String key(String userId) {
+        return "cart:" + userId;
+    }
+}
@@ -0,0 +1,166 @@
+package ph61167.dunghn.duan.data.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.FavoriteIdsData;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Tập id sản phẩm yêu thích của người đang đăng nhập, để mỗi ô sản phẩm biết trạng thái tim
+ * trong O(1) mà không gọi mạng. Tập được lưu trên máy kèm version của server; {@link #sync}
+ * gửi version đó lên và chỉ nhận lại danh sách id khi đã có thay đổi.
+ * Bấm tim được ghi đè cục bộ ngay ({@link #setLocal}) và giữ tới khi server xác nhận cùng trạng thái.
+ * Chỉ dùng trên main thread.
+ */
+public final class FavoriteMembership {
+
+    public interface Listener {
+        void onMembershipChanged();
+    }
+
+    private static final String PREF_NAME = "duan_favorite_ids";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_IDS = "ids";
+
+    private static FavoriteMembership instance;
+
+    private final SharedPreferences preferences;
+    private final Set<String> ids = new HashSet<>();
+    // productId -> trạng thái người dùng vừa chọn, chưa được server xác nhận
+    private final Map<String, Boolean> overrides = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private String userId;
+    private Long version;
+    private boolean syncing;
+    // sync() được gọi lại trong lúc đang chờ: response cũ có thể chưa thấy thay đổi mới nhất
+    private boolean resyncRequested;
+
+    private FavoriteMembership(Context context) {
+        preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        userId = preferences.getString(KEY_USER_ID, null);
+        if (userId != null && preferences.contains(KEY_VERSION)) {
+            version = preferences.getLong(KEY_VERSION, 0);
+            ids.addAll(preferences.getStringSet(KEY_IDS, new HashSet<>()));
+        }
+    }
+
+    public static void init(Context context) {
+        if (instance == null) {
+            instance = new FavoriteMembership(context.getApplicationContext());
+        }
+    }
+
+    public static FavoriteMembership getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("FavoriteMembership.init() chưa được gọi");
+        }
+        return instance;
+    }
+
+    public boolean contains(@NonNull String productId) {
+        Boolean override = overrides.get(productId);
+        return override != null ? override : ids.contains(productId);
+    }
+
+    public void setLocal(@NonNull String productId, boolean favorite) {
+        overrides.put(productId, favorite);
+        notifyChanged();
+    }
+
+    /** Hỏi server tập id có đổi không; gọi mỗi khi màn hình cần trạng thái tim hiện ra. */
+    public void sync(@NonNull String userId) {
+        bind(userId);
+        if (syncing) {
+            resyncRequested = true;
+            return;
+        }
+        syncing = true;
+        Long sentVersion = version;
+        ApiClient.getService()
+                .getFavoriteIds(userId, sentVersion)
+                .enqueue(new Callback<BaseResponse<FavoriteIdsData>>() {
+                    @Override
+                    public void onResponse(Call<BaseResponse<FavoriteIdsData>> call,
+                                           Response<BaseResponse<FavoriteIdsData>> response) {
+                        syncing = false;
+                        BaseResponse<FavoriteIdsData> body = response.body();
+                        boolean current = userId.equals(FavoriteMembership.this.userId);
+                        if (current && response.isSuccessful() && body != null && body.isSuccess()
+                                && body.getData() != null) {
+                            apply(body.getData());
+                        }
+                        if (resyncRequested) {
+                            resyncRequested = false;
+                            if (current) sync(userId);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<BaseResponse<FavoriteIdsData>> call, Throwable t) {
+                        // Giữ tập cũ trên máy, lần sau đồng bộ lại
+                        syncing = false;
+                        resyncRequested = false;
+                    }
+                });
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Đổi người dùng thì bỏ tập của người trước ngay, không chờ server. */
+    private void bind(String userId) {
+        if (userId.equals(this.userId)) return;
+        this.userId = userId;
+        version = null;
+        ids.clear();
+        overrides.clear();
+        preferences.edit().clear().putString(KEY_USER_ID, userId).apply();
+        notifyChanged();
+    }
+
+    private void apply(FavoriteIdsData data) {
+        if (!data.isUnchanged() && data.getProductIds() != null) {
+            ids.clear();
+            ids.addAll(data.getProductIds());
+            preferences.edit()
+                    .putLong(KEY_VERSION, data.getVersion())
+                    .putStringSet(KEY_IDS, new HashSet<>(ids))
+                    .apply();
+        }
+        version = data.getVersion();
+        // Server đã cùng trạng thái với lựa chọn cục bộ thì không cần ghi đè nữa
+        Iterator<Map.Entry<String, Boolean>> it = overrides.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Boolean> entry = it.next();
+            if (entry.getValue() == ids.contains(entry.getKey())) it.remove();
+        }
+        if (!data.isUnchanged()) notifyChanged();
+    }
+
+    private void notifyChanged() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onMembershipChanged();
+        }
+    }
+}
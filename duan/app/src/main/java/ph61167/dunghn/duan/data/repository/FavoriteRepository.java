@@ -0,0 +1,120 @@
+package ph61167.dunghn.duan.data.repository;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import ph61167.dunghn.duan.data.model.Favorite;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.BatchMultiplexer;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
+
+/**
+ * Danh sách yêu thích của người dùng, cache chung cho màn yêu thích và chi tiết sản phẩm.
+ * Thêm/bỏ yêu thích đi qua {@link SyncEngine}; lớp này chỉ giữ cache.
+ */
+public final class FavoriteRepository {
+
+    private static final long FAVORITES_TTL_MS = 60_000;
+    private static final Type FAVORITES_TYPE = TypeToken.getParameterized(List.class, Favorite.class).getType();
+
+    private static FavoriteRepository instance;
+
+    private final ResourceCache cache = ResourceCache.getInstance();
+
+    private FavoriteRepository() {
+    }
+
+    public static FavoriteRepository getInstance() {
+        if (instance == null) {
+            instance = new FavoriteRepository();
+        }
+        return instance;
+    }
+
+    /** Danh sách trả về (và được cache) đã áp các thao tác yêu thích còn chờ gửi trong hàng chờ. */
+    public void getFavorites(@NonNull String userId, boolean force, @NonNull ResultCallback<List<Favorite>> callback) {
+        cache.load(key(userId), FAVORITES_TTL_MS, force, () -> ApiClient.getService().getFavoritesByUser(userId),
+                new ResultCallback<List<Favorite>>() {
+                    @Override
+                    public void onSuccess(List<Favorite> favorites) {
+                        if (favorites == null) {
+                            callback.onSuccess(null);
+                            return;
+                        }
+                        SyncEngine.getInstance().withPendingFavorites(userId, favorites, merged -> {
+                            if (merged != favorites) cache.update(key(userId), merged);
+                            callback.onSuccess(merged);
+                        });
+                    }
+
+                    @Override
+                    public void onError(int code, String message) {
+                        callback.onError(code, message);
+                    }
+                });
+    }
+
+    /** true nếu đang có danh sách còn hạn, tức thao tác xóa sẽ được báo qua observer. */
+    public boolean isCached(@NonNull String userId) {
+        return cache.peek(key(userId)) != null;
+    }
+
+    public void observeFavorites(@NonNull String userId, @NonNull ResourceCache.Observer<List<Favorite>> observer) {
+        cache.observe(key(userId), observer);
+    }
+
+    public void removeFavoritesObserver(@NonNull String userId, @NonNull ResourceCache.Observer<List<Favorite>> observer) {
+        cache.removeObserver(key(userId), observer);
+    }
+
+    /** Thêm danh sách yêu thích vào một batch nếu chưa có trong cache. */
+    public void prefetch(@NonNull BatchMultiplexer batch, @NonNull String userId) {
+        if (isCached(userId)) return;
+        batch.add("/favorites/user/" + userId, FAVORITES_TYPE, new ResultCallback<List<Favorite>>() {
+            @Override
+            public void onSuccess(List<Favorite> favorites) {
+                if (favorites != null) putFavorites(userId, favorites);
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                // Màn yêu thích sẽ tự tải lại khi mở
+            }
+        });
+    }
+
+    /**
+     * Ghi danh sách vừa tải ở nơi khác (đồng bộ nền) và báo cho observer, sau khi áp các thao tác
+     * còn trong hàng chờ để danh sách từ server không làm mất lựa chọn chưa gửi của người dùng.
+     */
+    public void putFavorites(@NonNull String userId, @NonNull List<Favorite> favorites) {
+        SyncEngine.getInstance().withPendingFavorites(userId, favorites,
+                merged -> cache.put(key(userId), merged, FAVORITES_TTL_MS));
+    }
+
+    public void invalidateFavorites(@NonNull String userId) {
+        cache.invalidate(key(userId));
+    }
+
+    /** Bỏ đúng một mục khỏi danh sách đang cache thay vì tải lại cả danh sách. */
+    public void removeFromCache(@NonNull String userId, @NonNull String productId) {
+        List<Favorite> cached = cache.peek(key(userId));
+        if (cached == null) return;
+        List<Favorite> patched = new ArrayList<>(cached.size());
+        for (Favorite item : cached) {
+            if (item.getProduct() == null || !productId.equals(item.getProduct().getId())) {
+                patched.add(item);
+            }
+        }
+        cache.update(key(userId), patched);
+    }
+
+    private static String key(String userId) {
+        return "favorites:" + userId;
+    }
+}
@@ -0,0 +1,74 @@
+package ph61167.dunghn.duan.data.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.response.OrdersListData;
+
+/**
+ * Đơn hàng của người dùng, tải theo trang và lọc trạng thái phía server.
+ * Mỗi (trạng thái, trang, cursor) là một mục cache riêng: trang sau dựng từ cursor của trang trước,
+ * nên khi trang 1 tải lại với cursor khác thì trang sau cũ không bao giờ được dùng lại. Trạng thái đơn có thể đổi phía server
+ * (shop xác nhận, giao hàng) nên chỉ giữ {@link #ORDERS_TTL_MS}; đặt đơn mới thì gọi
+ * {@link #invalidateOrders} để bỏ mọi trang đã cache.
+ */
+public final class OrderRepository {
+
+    public static final int PAGE_SIZE = 20;
+    private static final long ORDERS_TTL_MS = 2 * 60_000;
+    // Danh sách chỉ cần bản tóm tắt (firstProductName, itemsCount...); chi tiết đầy đủ lấy qua getOrderDetail
+    public static final String SUMMARY_VIEW = "summary";
+
+    private static OrderRepository instance;
+
+    private final ResourceCache cache = ResourceCache.getInstance();
+
+    private OrderRepository() {
+    }
+
+    public static OrderRepository getInstance() {
+        if (instance == null) {
+            instance = new OrderRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * @param status null để lấy mọi trạng thái
+     * @param page   bắt đầu từ 1
+     * @param cursor nextCursor của trang {@code page - 1}; null ở trang đầu
+     */
+    public void getOrderPage(@NonNull String userId, @Nullable String status, int page, @Nullable String cursor,
+                             boolean force, @NonNull ResultCallback<OrdersListData> callback) {
+        cache.load(key(userId, status, page, cursor), ORDERS_TTL_MS, force,
+                () -> ApiClient.getService().getUserOrders(userId, status, SUMMARY_VIEW, cursor, page, PAGE_SIZE),
+                callback);
+    }
+
+    /**
+     * Ghi một trang vừa tải ở nơi khác (đồng bộ nền). Trang 1 mới thì bỏ các trang sau của cùng
+     * trạng thái: chúng dựng từ cursor cũ và sẽ được tải lại theo cursor mới.
+     */
+    public void putOrderPage(@NonNull String userId, @Nullable String status, int page, @Nullable String cursor,
+                             @NonNull OrdersListData data) {
+        if (page == 1) cache.invalidatePrefix(tabPrefix(userId, status));
+        cache.put(key(userId, status, page, cursor), data, ORDERS_TTL_MS);
+    }
+
+    public void invalidateOrders(@NonNull String userId) {
+        cache.invalidatePrefix(prefix(userId));
+    }
+
+    private static String prefix(String userId) {
+        return "orders:" + userId + ":";
+    }
+
+    private static String tabPrefix(String userId, String status) {
+        return prefix(userId) + (status != null ? status : "all") + ":";
+    }
+
+    private static String key(String userId, String status, int page, String cursor) {
+        return tabPrefix(userId, status) + page + ":c:" + (cursor != null ? cursor : "");
+    }
+}
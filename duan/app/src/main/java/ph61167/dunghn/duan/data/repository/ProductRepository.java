@@ -0,0 +1,77 @@
+package ph61167.dunghn.duan.data.repository;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+
+/**
+ * Chi tiết sản phẩm theo id.
+ * Chi tiết đầy đủ (GET /products/:id, cache {@link #DETAIL_TTL_MS}) nằm trong cache riêng tối đa
+ * {@link #MAX_DETAILS} sản phẩm: tải trước khi cuộn lưới tạo rất nhiều key, không được đẩy giỏ hàng,
+ * yêu thích, đơn hàng ra khỏi cache dùng chung. Ngoài ra còn giữ bản tóm tắt
+ * của các sản phẩm vừa hiển thị trong danh sách, để màn chi tiết vẽ ngay trong lúc chờ server.
+ */
+public final class ProductRepository {
+
+    private static final long DETAIL_TTL_MS = 5 * 60_000;
+    private static final int MAX_DETAILS = 100;
+    private static final int MAX_SUMMARIES = 200;
+
+    private static ProductRepository instance;
+
+    private final ResourceCache cache = new ResourceCache(MAX_DETAILS);
+    private final LruCache<String, Product> summaries = new LruCache<>(MAX_SUMMARIES);
+
+    private ProductRepository() {
+    }
+
+    public static ProductRepository getInstance() {
+        if (instance == null) {
+            instance = new ProductRepository();
+        }
+        return instance;
+    }
+
+    public void getProduct(@NonNull String productId, boolean force, @NonNull ResultCallback<Product> callback) {
+        cache.load(key(productId), DETAIL_TTL_MS, force, () -> ApiClient.getService().getProductById(productId), callback);
+    }
+
+    /** Chi tiết còn hạn nếu có, ngược lại bản tóm tắt từ danh sách; null nếu chưa thấy sản phẩm này. */
+    @Nullable
+    public Product peekProduct(@NonNull String productId) {
+        Product detail = cache.peek(key(productId));
+        return detail != null ? detail : summaries.get(productId);
+    }
+
+    public boolean hasFreshDetail(@NonNull String productId) {
+        return cache.peek(key(productId)) != null;
+    }
+
+    public void rememberSummary(@NonNull Product product) {
+        if (product.getId() != null) summaries.put(product.getId(), product);
+    }
+
+    /** Tải trước chi tiết; bỏ qua nếu đã có trong cache, gộp với request đang chạy nếu có. */
+    public void prefetch(@NonNull String productId) {
+        if (hasFreshDetail(productId)) return;
+        getProduct(productId, false, new ResultCallback<Product>() {
+            @Override
+            public void onSuccess(Product data) {
+                // Chỉ cần nằm trong cache
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                // Tải trước thất bại thì màn chi tiết sẽ tự tải lại
+            }
+        });
+    }
+
+    private static String key(String productId) {
+        return "product:" + productId;
+    }
+}
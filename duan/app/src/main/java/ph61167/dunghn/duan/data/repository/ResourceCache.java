@@ -0,0 +1,217 @@
+package ph61167.dunghn.duan.data.repository;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Cache bộ nhớ dùng chung cho các repository.
+ * - LRU giới hạn {@link #MAX_ENTRIES} mục, mỗi mục có TTL riêng. Loại dữ liệu có rất nhiều key
+ *   (chi tiết sản phẩm) dùng instance riêng để không đẩy giỏ hàng, yêu thích, đơn hàng ra khỏi LRU.
+ * - Nhiều lời gọi {@link #load} cùng key trong lúc request đang chạy chỉ tạo một request.
+ * - Observer của một key được báo mỗi khi giá trị trong cache đổi.
+ * Chỉ dùng trên main thread (callback của Retrofit trên Android chạy ở main thread).
+ */
+public final class ResourceCache {
+
+    public interface Observer<T> {
+        void onChanged(@NonNull String key, @Nullable T value);
+    }
+
+    interface CallFactory<T> {
+        Call<BaseResponse<T>> create();
+    }
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static ResourceCache instance;
+
+    private final LruCache<String, Entry> entries;
+    private final Map<String, List<ResultCallback<Object>>> inFlight = new HashMap<>();
+    private final Map<String, List<Observer<Object>>> observers = new HashMap<>();
+    // Tăng mỗi lần put/invalidate; response của request cũ hơn không được ghi đè lên cache
+    private final Map<String, Integer> versions = new HashMap<>();
+
+    private ResourceCache() {
+        this(MAX_ENTRIES);
+    }
+
+    /** Cache riêng với giới hạn riêng, không chia LRU với {@link #getInstance()}. */
+    ResourceCache(int maxEntries) {
+        entries = new LruCache<>(maxEntries);
+    }
+
+    static ResourceCache getInstance() {
+        if (instance == null) {
+            instance = new ResourceCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Trả giá trị còn hạn trong cache nếu có, ngược lại gọi API.
+     * force = true bỏ qua cache nhưng vẫn gộp vào request đang chạy của cùng key.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void load(@NonNull String key, long ttlMs, boolean force,
+                  @NonNull CallFactory<T> factory, @NonNull ResultCallback<T> callback) {
+        if (!force) {
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.isExpired()) {
+                callback.onSuccess((T) entry.value);
+                return;
+            }
+        }
+        List<ResultCallback<Object>> waiting = inFlight.get(key);
+        if (waiting != null) {
+            waiting.add((ResultCallback<Object>) callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add((ResultCallback<Object>) callback);
+        inFlight.put(key, waiting);
+
+        int startVersion = versionOf(key);
+        factory.create().enqueue(new Callback<BaseResponse<T>>() {
+            @Override
+            public void onResponse(Call<BaseResponse<T>> call, Response<BaseResponse<T>> response) {
+                BaseResponse<T> body = response.body();
+                if (!response.isSuccessful() || body == null || !body.isSuccess()) {
+                    String message = body != null ? body.getMessage() : null;
+                    deliverError(key, response.code(), message != null ? message : "Lỗi máy chủ (" + response.code() + ")");
+                    return;
+                }
+                Object value = body.getData();
+                if (versionOf(key) == startVersion) {
+                    put(key, value, ttlMs);
+                } else {
+                    // Cache đã được cập nhật trong lúc chờ (ví dụ response của thao tác ghi), giá trị đó mới hơn
+                    Entry newer = entries.get(key);
+                    if (newer != null) value = newer.value;
+                }
+                deliverSuccess(key, value);
+            }
+
+            @Override
+            public void onFailure(Call<BaseResponse<T>> call, Throwable t) {
+                deliverError(key, 0, "Lỗi kết nối: " + t.getMessage());
+            }
+        });
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    <T> T peek(@NonNull String key) {
+        Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired() ? (T) entry.value : null;
+    }
+
+    void put(@NonNull String key, @Nullable Object value, long ttlMs) {
+        entries.put(key, new Entry(value, SystemClock.elapsedRealtime() + ttlMs));
+        bumpVersion(key);
+        notifyObservers(key, value);
+    }
+
+    /** Sửa giá trị đang cache tại chỗ và giữ nguyên hạn; không có hoặc đã hết hạn thì bỏ qua. */
+    void update(@NonNull String key, @Nullable Object value) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpired()) return;
+        entries.put(key, new Entry(value, entry.expiresAt));
+        bumpVersion(key);
+        notifyObservers(key, value);
+    }
+
+    /** Bỏ giá trị đã cache; lần load sau sẽ gọi API. Observer không được báo. */
+    void invalidate(@NonNull String key) {
+        entries.remove(key);
+        bumpVersion(key);
+    }
+
+    /** Bỏ mọi key bắt đầu bằng prefix, ví dụ toàn bộ các trang đơn hàng của một người dùng. */
+    void invalidatePrefix(@NonNull String prefix) {
+        for (String key : entries.snapshot().keySet()) {
+            if (key.startsWith(prefix)) invalidate(key);
+        }
+        // Request đang chạy cũng phải bị coi là cũ dù chưa có entry
+        for (String key : inFlight.keySet()) {
+            if (key.startsWith(prefix)) bumpVersion(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void observe(@NonNull String key, @NonNull Observer<T> observer) {
+        List<Observer<Object>> list = observers.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            observers.put(key, list);
+        }
+        list.add((Observer<Object>) observer);
+    }
+
+    void removeObserver(@NonNull String key, @NonNull Observer<?> observer) {
+        List<Observer<Object>> list = observers.get(key);
+        if (list == null) return;
+        list.remove(observer);
+        if (list.isEmpty()) observers.remove(key);
+    }
+
+    private int versionOf(String key) {
+        Integer version = versions.get(key);
+        return version != null ? version : 0;
+    }
+
+    private void bumpVersion(String key) {
+        versions.put(key, versionOf(key) + 1);
+    }
+
+    private void notifyObservers(String key, Object value) {
+        List<Observer<Object>> list = observers.get(key);
+        if (list == null) return;
+        // Sao chép để observer có thể tự hủy đăng ký trong onChanged
+        for (Observer<Object> observer : new ArrayList<>(list)) {
+            observer.onChanged(key, value);
+        }
+    }
+
+    private void deliverSuccess(String key, Object value) {
+        List<ResultCallback<Object>> waiting = inFlight.remove(key);
+        if (waiting == null) return;
+        for (ResultCallback<Object> callback : waiting) {
+            callback.onSuccess(value);
+        }
+    }
+
+    private void deliverError(String key, int code, String message) {
+        List<ResultCallback<Object>> waiting = inFlight.remove(key);
+        if (waiting == null) return;
+        for (ResultCallback<Object> callback : waiting) {
+            callback.onError(code, message);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ph61167.dunghn.duan.data.repository;
+
+public interface ResultCallback<T> {
+
+    void onSuccess(T data);
+
+    /**
+     * @param code mã HTTP của response lỗi, 0 nếu lỗi kết nối
+     */
+    void onError(int code, String message);
+}
@@ -0,0 +1,78 @@
+package ph61167.dunghn.duan.data.sync;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.util.List;
+
+import ph61167.dunghn.duan.data.local.CartLedger;
+import ph61167.dunghn.duan.data.local.SessionManager;
+import ph61167.dunghn.duan.data.model.CartData;
+import ph61167.dunghn.duan.data.model.Favorite;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.ApiService;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.OrdersListData;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import ph61167.dunghn.duan.data.repository.FavoriteRepository;
+import ph61167.dunghn.duan.data.repository.OrderRepository;
+import retrofit2.Response;
+
+/**
+ * Làm mới giỏ hàng, yêu thích và trang đơn hàng đầu tiên khi máy rảnh và đang sạc.
+ * Process còn sống thì dữ liệu vào thẳng cache trong bộ nhớ; nếu không, HTTP cache trên đĩa
+ * cũng đã có bản mới để lần mở màn hình sau chỉ cần revalidate.
+ */
+public final class CacheRefreshWorker extends Worker {
+
+    static final String WORK_NAME = "cache-refresh";
+
+    public CacheRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String userId = SessionManager.getInstance().getUserId();
+        if (userId == null) return Result.success();
+
+        ApiService service = ApiClient.getService();
+        try {
+            // Giỏ trên server chưa có các lần thêm còn trong hàng chờ; ghi đè cache lúc này sẽ làm chúng biến mất
+            boolean cartAddsPending = SyncOutbox.getInstance(getApplicationContext())
+                    .count(userId, PendingMutation.TYPE_CART_ADD) > 0;
+            CartData cart = cartAddsPending ? null : dataOf(service.getCart(userId).execute());
+            if (cart != null) {
+                SyncEngine.onMain(() -> {
+                    // Số lượng đổi trong màn giỏ hàng chưa gửi xong cũng chưa có trên server
+                    if (CartLedger.getInstance().hasUnsyncedChanges()) return;
+                    CartRepository.getInstance().putCart(userId, cart);
+                });
+            }
+            List<Favorite> favorites = dataOf(service.getFavoritesByUser(userId).execute());
+            if (favorites != null) {
+                SyncEngine.onMain(() -> FavoriteRepository.getInstance().putFavorites(userId, favorites));
+            }
+            OrdersListData orders = dataOf(service.getUserOrders(
+                    userId, null, OrderRepository.SUMMARY_VIEW, null, 1, OrderRepository.PAGE_SIZE).execute());
+            if (orders != null) {
+                SyncEngine.onMain(() -> OrderRepository.getInstance().putOrderPage(userId, null, 1, null, orders));
+            }
+        } catch (IOException e) {
+            return Result.retry();
+        }
+        return Result.success();
+    }
+
+    @Nullable
+    private static <T> T dataOf(Response<BaseResponse<T>> response) {
+        BaseResponse<T> body = response.body();
+        return response.isSuccessful() && body != null && body.isSuccess() ? body.getData() : null;
+    }
+}
@@ -0,0 +1,156 @@
+package ph61167.dunghn.duan.data.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ph61167.dunghn.duan.data.local.SessionManager;
+import ph61167.dunghn.duan.data.model.CartData;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.ApiService;
+import ph61167.dunghn.duan.data.remote.request.CartBatchRequest;
+import ph61167.dunghn.duan.data.remote.request.FavoriteRequest;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import ph61167.dunghn.duan.data.repository.FavoriteMembership;
+import ph61167.dunghn.duan.data.repository.FavoriteRepository;
+import retrofit2.Response;
+
+/**
+ * Gửi lại các thao tác trong {@link SyncOutbox} của người đang đăng nhập.
+ * Mọi lần thêm giỏ hàng đang chờ gom thành một POST /cart/items/batch; yêu thích gửi từng cái.
+ * Mất mạng / 5xx thì trả {@link Result#retry()} để WorkManager thử lại theo backoff;
+ * 401/403 (phiên hết hạn, làm mới token thất bại) thì giữ nguyên hàng chờ và dừng tới khi đăng nhập lại
+ * ({@link SyncEngine#replayPending()}); lỗi 4xx khác thì bỏ thao tác đó vì gửi lại cũng không thành công.
+ */
+public final class OutboxWorker extends Worker {
+
+    static final String WORK_NAME = "outbox-replay";
+    private static final String TAG = "OutboxWorker";
+    // Khớp MAX_BATCH_ITEMS của POST /cart/items/batch
+    private static final int BATCH_LIMIT = 100;
+
+    private enum Outcome { SENT, RETRY, NEEDS_LOGIN }
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String userId = SessionManager.getInstance().getUserId();
+        // Thao tác của người đã đăng xuất được giữ lại tới khi họ đăng nhập lại
+        if (userId == null) return Result.success();
+
+        SyncOutbox outbox = SyncOutbox.getInstance(getApplicationContext());
+        List<PendingMutation> batch;
+        while (!(batch = outbox.pending(userId, BATCH_LIMIT)).isEmpty()) {
+            if (isStopped()) return Result.retry();
+            Outcome outcome = replay(userId, batch, outbox);
+            if (outcome == Outcome.RETRY) return Result.retry();
+            if (outcome == Outcome.NEEDS_LOGIN) {
+                // Thử lại theo backoff cũng vẫn 401; lần đăng nhập sau sẽ lên lịch gửi lại
+                Log.i(TAG, "Phiên đăng nhập không còn hợp lệ, giữ " + outbox.count(userId) + " thao tác chờ đăng nhập lại");
+                return Result.success();
+            }
+        }
+        return Result.success();
+    }
+
+    private Outcome replay(String userId, List<PendingMutation> batch, SyncOutbox outbox) {
+        ApiService service = ApiClient.getService();
+        List<CartBatchRequest.Entry> cartEntries = new ArrayList<>();
+        List<Long> cartIds = new ArrayList<>();
+        List<Long> done = new ArrayList<>();
+        boolean favoriteAdded = false;
+        boolean favoriteSent = false;
+        try {
+            for (PendingMutation mutation : batch) {
+                String productId = mutation.getProductId();
+                switch (mutation.getType()) {
+                    case PendingMutation.TYPE_CART_ADD:
+                        cartEntries.add(CartBatchRequest.Entry.increment(
+                                productId, mutation.getQuantity(), mutation.getOpId()));
+                        cartIds.add(mutation.getId());
+                        break;
+                    case PendingMutation.TYPE_FAVORITE_ADD: {
+                        int code = service.addFavorite(new FavoriteRequest(userId, productId)).execute().code();
+                        if (isTransient(code)) return Outcome.RETRY;
+                        if (isAuthError(code)) return Outcome.NEEDS_LOGIN;
+                        // 409: đã có trong yêu thích, coi như xong
+                        logDropped(mutation, code, 409);
+                        done.add(mutation.getId());
+                        favoriteAdded = true;
+                        favoriteSent = true;
+                        break;
+                    }
+                    case PendingMutation.TYPE_FAVORITE_REMOVE: {
+                        int code = service.removeFavorite(userId, productId).execute().code();
+                        if (isTransient(code)) return Outcome.RETRY;
+                        if (isAuthError(code)) return Outcome.NEEDS_LOGIN;
+                        // 404: đã bị xóa từ trước
+                        logDropped(mutation, code, 404);
+                        done.add(mutation.getId());
+                        favoriteSent = true;
+                        break;
+                    }
+                    default:
+                        done.add(mutation.getId());
+                        break;
+                }
+            }
+
+            if (!cartEntries.isEmpty()) {
+                Response<BaseResponse<CartData>> response =
+                        service.syncCartItems(new CartBatchRequest(userId, cartEntries)).execute();
+                if (isTransient(response.code())) return Outcome.RETRY;
+                if (isAuthError(response.code())) return Outcome.NEEDS_LOGIN;
+                done.addAll(cartIds);
+                BaseResponse<CartData> body = response.body();
+                if (response.isSuccessful() && body != null && body.isSuccess() && body.getData() != null) {
+                    // Response là giỏ hàng đầy đủ, màn giỏ hàng đang mở nhận ngay qua observer
+                    CartData data = body.getData();
+                    SyncEngine.onMain(() -> CartRepository.getInstance().putCart(userId, data));
+                } else {
+                    Log.w(TAG, "Bỏ " + cartIds.size() + " thao tác giỏ hàng: HTTP " + response.code());
+                }
+            }
+            return Outcome.SENT;
+        } catch (IOException e) {
+            Log.d(TAG, "Mất kết nối, thử lại sau: " + e.getMessage());
+            return Outcome.RETRY;
+        } finally {
+            outbox.remove(done);
+            if (favoriteAdded) {
+                // Danh sách server sắp theo thời gian thêm, tải lại để đúng thứ tự
+                SyncEngine.onMain(() -> FavoriteRepository.getInstance().invalidateFavorites(userId));
+            }
+            if (favoriteSent) {
+                // Xác nhận lại tập id để bỏ các ghi đè cục bộ đã được server áp dụng
+                SyncEngine.onMain(() -> FavoriteMembership.getInstance().sync(userId));
+            }
+        }
+    }
+
+    private static boolean isTransient(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    private static boolean isAuthError(int code) {
+        return code == 401 || code == 403;
+    }
+
+    private static void logDropped(PendingMutation mutation, int code, int acceptedCode) {
+        if ((code < 200 || code >= 300) && code != acceptedCode) {
+            Log.w(TAG, "Bỏ thao tác " + mutation.getType() + " " + mutation.getProductId() + ": HTTP " + code);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ph61167.dunghn.duan.data.sync;
+
+/** Một thao tác ghi đang chờ gửi lên server, đọc ra từ {@link SyncOutbox}. */
+public final class PendingMutation {
+
+    public static final String TYPE_CART_ADD = "cart_add";
+    public static final String TYPE_FAVORITE_ADD = "favorite_add";
+    public static final String TYPE_FAVORITE_REMOVE = "favorite_remove";
+
+    private final long id;
+    // UUID gửi kèm request để server bỏ qua nếu đã áp dụng (gửi lại sau khi mất response)
+    private final String opId;
+    private final String type;
+    private final String userId;
+    private final String productId;
+    private final int quantity;
+    private final long createdAt;
+
+    PendingMutation(long id, String opId, String type, String userId, String productId,
+                    int quantity, long createdAt) {
+        this.id = id;
+        this.opId = opId;
+        this.type = type;
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getOpId() {
+        return opId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
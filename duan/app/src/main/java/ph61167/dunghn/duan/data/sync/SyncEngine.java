@@ -0,0 +1,192 @@
+package ph61167.dunghn.duan.data.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import ph61167.dunghn.duan.data.local.ProductCatalogStore;
+import ph61167.dunghn.duan.data.model.Favorite;
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.repository.FavoriteMembership;
+import ph61167.dunghn.duan.data.repository.FavoriteRepository;
+
+/**
+ * Điểm vào của đồng bộ nền.
+ * Thao tác ghi được lưu vào {@link SyncOutbox} trước rồi mới gửi, nên mất mạng giữa chừng
+ * hay app bị kill cũng không mất; {@link OutboxWorker} gửi lại khi có mạng, lỗi tạm thời thì
+ * WorkManager lùi lịch theo cấp số nhân. {@link CacheRefreshWorker} làm mới cache lúc máy
+ * rảnh, đang sạc và dùng Wi-Fi.
+ */
+public final class SyncEngine {
+
+    private static final long RETRY_BACKOFF_SECONDS = 10;
+    private static final long REFRESH_INTERVAL_HOURS = 6;
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private static volatile SyncEngine instance;
+
+    private final Context appContext;
+    private final SyncOutbox outbox;
+    // Một luồng để các thao tác vào hàng chờ đúng thứ tự người dùng bấm
+    private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sync-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SyncEngine(Context context) {
+        this.appContext = context;
+        this.outbox = SyncOutbox.getInstance(context);
+    }
+
+    /** Gọi trong Application.onCreate, sau SessionManager.init. */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (SyncEngine.class) {
+                if (instance == null) {
+                    SyncEngine engine = new SyncEngine(context.getApplicationContext());
+                    engine.schedulePeriodicRefresh();
+                    // Hàng chờ còn thao tác từ lần chạy trước thì gửi tiếp
+                    engine.scheduleReplay();
+                    instance = engine;
+                }
+            }
+        }
+    }
+
+    public static SyncEngine getInstance() {
+        SyncEngine engine = instance;
+        if (engine == null) {
+            throw new IllegalStateException("SyncEngine.init() chưa được gọi");
+        }
+        return engine;
+    }
+
+    /** Gọi sau khi đăng nhập: gửi các thao tác bị giữ lại vì phiên trước đã hết hạn. */
+    public void replayPending() {
+        scheduleReplay();
+    }
+
+    public void addToCart(@NonNull String userId, @NonNull String productId, int quantity) {
+        io.execute(() -> {
+            outbox.addToCart(userId, productId, quantity);
+            scheduleReplay();
+        });
+    }
+
+    /**
+     * Gọi trên main thread. Trạng thái tim đổi ngay qua {@link FavoriteMembership};
+     * bỏ yêu thích còn được áp ngay lên danh sách đang cache.
+     */
+    public void setFavorite(@NonNull String userId, @NonNull String productId, boolean favorite) {
+        FavoriteMembership.getInstance().setLocal(productId, favorite);
+        if (!favorite) {
+            FavoriteRepository.getInstance().removeFromCache(userId, productId);
+        }
+        io.execute(() -> {
+            outbox.setFavorite(userId, productId, favorite);
+            scheduleReplay();
+        });
+    }
+
+    /**
+     * Áp các thao tác yêu thích còn trong hàng chờ lên danh sách vừa tải từ server, vì server chưa
+     * thấy chúng: bỏ sản phẩm đang chờ bỏ yêu thích, thêm sản phẩm đang chờ thêm (thông tin lấy từ
+     * catalog offline; sản phẩm chưa có trong catalog thì đợi server). Gọi trên main thread;
+     * kết quả về main thread, là chính {@code fetched} nếu không có gì cần áp.
+     */
+    public void withPendingFavorites(@NonNull String userId, @NonNull List<Favorite> fetched,
+                                     @NonNull Consumer<List<Favorite>> callback) {
+        // Cùng luồng với setFavorite nên thấy mọi thao tác người dùng đã bấm trước đó
+        io.execute(() -> {
+            Map<String, Boolean> pending = outbox.pendingFavorites(userId);
+            List<Favorite> result = pending.isEmpty() ? fetched : applyPendingFavorites(fetched, pending);
+            onMain(() -> callback.accept(result));
+        });
+    }
+
+    private List<Favorite> applyPendingFavorites(List<Favorite> fetched, Map<String, Boolean> pending) {
+        List<Favorite> result = new ArrayList<>(fetched.size());
+        Set<String> present = new HashSet<>();
+        for (Favorite item : fetched) {
+            String productId = item.getProduct() != null ? item.getProduct().getId() : null;
+            if (productId != null && Boolean.FALSE.equals(pending.get(productId))) continue;
+            if (productId != null) present.add(productId);
+            result.add(item);
+        }
+        List<String> toAdd = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : pending.entrySet()) {
+            if (entry.getValue() && !present.contains(entry.getKey())) toAdd.add(entry.getKey());
+        }
+        if (toAdd.isEmpty()) return result;
+        // Server trả mục mới thêm lên đầu danh sách
+        List<Favorite> added = new ArrayList<>(toAdd.size());
+        for (Product product : ProductCatalogStore.getInstance(appContext).getByIds(toAdd)) {
+            Favorite.ProductInfo info = new Favorite.ProductInfo();
+            info.setId(product.getId());
+            info.setName(product.getName());
+            info.setPrice(product.getPrice());
+            info.setImage(product.getImage());
+            Favorite favorite = new Favorite();
+            favorite.setProduct(info);
+            added.add(0, favorite);
+        }
+        added.addAll(result);
+        return added;
+    }
+
+    /** Worker chạy trên luồng nền; cache trong bộ nhớ chỉ được sửa trên main thread. */
+    static void onMain(Runnable action) {
+        MAIN.post(action);
+    }
+
+    private void scheduleReplay() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, RETRY_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        // APPEND_OR_REPLACE: worker đang chạy có thể đã đọc hàng chờ rỗng lần cuối và sắp kết thúc,
+        // nên thao tác mới phải có một lần chạy nối sau nó (KEEP sẽ bỏ qua và thao tác nằm chờ tới lần
+        // mở app sau). Lần chạy trước thất bại/bị hủy thì chuỗi được thay bằng request này.
+        WorkManager.getInstance(appContext)
+                .enqueueUniqueWork(OutboxWorker.WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    private void schedulePeriodicRefresh() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                CacheRefreshWorker.class, REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(appContext)
+                .enqueueUniquePeriodicWork(CacheRefreshWorker.WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,167 @@
+package ph61167.dunghn.duan.data.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hàng chờ thao tác ghi lưu trên máy, sống sót qua mất mạng và app bị kill.
+ * Thêm giỏ hàng được giữ nguyên từng lần (server cộng dồn); yêu thích chỉ giữ trạng thái
+ * mong muốn cuối cùng cho mỗi sản phẩm.
+ * Các hàm đều chạy đồng bộ, phải gọi ngoài main thread.
+ */
+public final class SyncOutbox extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "duan_outbox.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE = "outbox";
+    private static final String COL_ID = "id";
+    private static final String COL_OP_ID = "op_id";
+    private static final String COL_TYPE = "type";
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_PRODUCT_ID = "product_id";
+    private static final String COL_QUANTITY = "quantity";
+    private static final String COL_CREATED_AT = "created_at";
+
+    private static volatile SyncOutbox instance;
+
+    private SyncOutbox(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    public static SyncOutbox getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncOutbox.class) {
+                if (instance == null) {
+                    instance = new SyncOutbox(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_OP_ID + " TEXT NOT NULL, "
+                + COL_TYPE + " TEXT NOT NULL, "
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_PRODUCT_ID + " TEXT NOT NULL, "
+                + COL_QUANTITY + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_CREATED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_outbox_user ON " + TABLE + "(" + COL_USER_ID + ", " + COL_ID + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Chưa có phiên bản cũ nào; khi đổi schema phải chuyển dữ liệu chứ không được xóa
+    }
+
+    public void addToCart(String userId, String productId, int quantity) {
+        insert(getWritableDatabase(), PendingMutation.TYPE_CART_ADD, userId, productId, quantity);
+    }
+
+    /** Ghi đè thao tác yêu thích chưa gửi của cùng sản phẩm; chỉ trạng thái cuối cùng là đáng gửi. */
+    public void setFavorite(String userId, String productId, boolean favorite) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE,
+                    COL_USER_ID + " = ? AND " + COL_PRODUCT_ID + " = ? AND " + COL_TYPE + " IN (?, ?)",
+                    new String[]{userId, productId,
+                            PendingMutation.TYPE_FAVORITE_ADD, PendingMutation.TYPE_FAVORITE_REMOVE});
+            insert(db, favorite ? PendingMutation.TYPE_FAVORITE_ADD : PendingMutation.TYPE_FAVORITE_REMOVE,
+                    userId, productId, 0);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Các thao tác cũ nhất của một người dùng, theo đúng thứ tự đã ghi. */
+    public List<PendingMutation> pending(String userId, int limit) {
+        List<PendingMutation> result = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE, null, COL_USER_ID + " = ?", new String[]{userId},
+                null, null, COL_ID + " ASC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                result.add(new PendingMutation(
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COL_ID)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COL_OP_ID)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COL_TYPE)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_ID)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_ID)),
+                        cursor.getInt(cursor.getColumnIndexOrThrow(COL_QUANTITY)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COL_CREATED_AT))));
+            }
+        }
+        return result;
+    }
+
+    /** productId → trạng thái yêu thích đang chờ gửi (true = thêm, false = bỏ), theo thứ tự đã ghi. */
+    public Map<String, Boolean> pendingFavorites(String userId) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE, new String[]{COL_PRODUCT_ID, COL_TYPE},
+                COL_USER_ID + " = ? AND " + COL_TYPE + " IN (?, ?)",
+                new String[]{userId, PendingMutation.TYPE_FAVORITE_ADD, PendingMutation.TYPE_FAVORITE_REMOVE},
+                null, null, COL_ID + " ASC")) {
+            while (cursor.moveToNext()) {
+                result.put(cursor.getString(0), PendingMutation.TYPE_FAVORITE_ADD.equals(cursor.getString(1)));
+            }
+        }
+        return result;
+    }
+
+    public void remove(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Long id : ids) {
+                db.delete(TABLE, COL_ID + " = ?", new String[]{String.valueOf(id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public int count(String userId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE " + COL_USER_ID + " = ?", new String[]{userId})) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /** Số thao tác một loại còn chờ gửi, ví dụ {@link PendingMutation#TYPE_CART_ADD}. */
+    public int count(String userId, String type) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM " + TABLE + " WHERE " + COL_USER_ID + " = ? AND " + COL_TYPE + " = ?",
+                new String[]{userId, type})) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private static void insert(SQLiteDatabase db, String type, String userId, String productId, int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(COL_OP_ID, UUID.randomUUID().toString());
+        values.put(COL_TYPE, type);
+        values.put(COL_USER_ID, userId);
+        values.put(COL_PRODUCT_ID, productId);
+        values.put(COL_QUANTITY, quantity);
+        values.put(COL_CREATED_AT, System.currentTimeMillis());
+        db.insert(TABLE, null, values);
+    }
+}
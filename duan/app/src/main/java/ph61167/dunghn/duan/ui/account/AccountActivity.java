@@ -25,7 +25,11 @@ public class AccountActivity extends AppCompatActivity {
         binding = ActivityAccountBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         if (!sessionManager.isLoggedIn()) {
             navigateToLogin();
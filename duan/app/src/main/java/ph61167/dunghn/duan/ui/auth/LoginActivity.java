@@ -15,6 +15,7 @@ import ph61167.dunghn.duan.data.remote.ApiClient;
 import ph61167.dunghn.duan.data.remote.request.LoginRequest;
 import ph61167.dunghn.duan.data.remote.response.AuthData;
 import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
 import ph61167.dunghn.duan.databinding.ActivityLoginBinding;
 import ph61167.dunghn.duan.ui.home.HomeActivity;
 import retrofit2.Call;
@@ -32,12 +33,18 @@ public class LoginActivity extends AppCompatActivity {
         binding = ActivityLoginBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
 
-        if (sessionManager.isLoggedIn()) {
-            navigateToHome();
-            return;
-        }
+        // Màn mở đầu: phiên đã lưu đọc trên luồng nền, ẩn form tới khi biết đã đăng nhập hay chưa
+        binding.getRoot().setVisibility(View.INVISIBLE);
+        sessionManager.whenReady(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (sessionManager.isLoggedIn()) {
+                navigateToHome();
+                return;
+            }
+            binding.getRoot().setVisibility(View.VISIBLE);
+        });
 
         binding.tvRegister.setOnClickListener(v ->
                 startActivity(new Intent(this, RegisterActivity.class))
@@ -95,6 +102,8 @@ public class LoginActivity extends AppCompatActivity {
                                 // Đăng nhập thành công
                                 Log.d("LoginActivity", "Login successful");
                                 sessionManager.saveSession(body.getData());
+                                // Thao tác offline bị giữ lại vì phiên cũ hết hạn thì gửi tiếp
+                                SyncEngine.getInstance().replayPending();
                                 Toast.makeText(LoginActivity.this,
                                         body.getMessage() != null ? body.getMessage() : "Đăng nhập thành công",
                                         Toast.LENGTH_SHORT).show();
@@ -32,7 +32,7 @@ public class RegisterActivity extends AppCompatActivity {
         binding = ActivityRegisterBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
 
         binding.tvLogin.setOnClickListener(v -> {
             startActivity(new Intent(this, LoginActivity.class));
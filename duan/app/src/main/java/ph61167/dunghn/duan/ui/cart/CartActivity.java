@@ -1,30 +1,36 @@
 package ph61167.dunghn.duan.ui.cart;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import java.text.NumberFormat;
+import java.util.List;
 import java.util.Locale;
 
+import ph61167.dunghn.duan.data.local.CartLedger;
 import ph61167.dunghn.duan.data.local.SessionManager;
 import ph61167.dunghn.duan.data.model.CartData;
-import ph61167.dunghn.duan.data.remote.ApiClient;
-import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
 import ph61167.dunghn.duan.databinding.ActivityCartBinding;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import ph61167.dunghn.duan.ui.checkout.CheckoutActivity;
 
 public class CartActivity extends AppCompatActivity {
 
     private ActivityCartBinding binding;
     private CartAdapter cartAdapter;
     private SessionManager sessionManager;
+    private final CartLedger cartLedger = CartLedger.getInstance();
+    // Giữ lại để onDestroy chỉ gỡ đúng listener của màn này
+    private CartLedger.Listener ledgerListener;
+    private final CartRepository cartRepository = CartRepository.getInstance();
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
 
     @Override
@@ -33,15 +39,24 @@ public class CartActivity extends AppCompatActivity {
         binding = ActivityCartBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         binding.btnBack.setOnClickListener(v -> finish());
         setupRecyclerView();
+        String currentUserId = sessionManager.getUserId();
+        if (currentUserId != null && !currentUserId.isEmpty()) cartLedger.bind(currentUserId);
+        setupLedger();
         setupSelectAll();
         fetchCart();
 
         binding.btnCheckout.setOnClickListener(v -> {
-            Toast.makeText(this, "Tiến hành thanh toán", Toast.LENGTH_SHORT).show();
+            // Gửi ngay thay đổi đang chờ để màn thanh toán nhận giỏ đã đồng bộ
+            cartLedger.flushNow();
+            startActivity(new Intent(this, CheckoutActivity.class));
         });
     }
 
@@ -50,15 +65,35 @@ public class CartActivity extends AppCompatActivity {
         binding.rvCart.setLayoutManager(new LinearLayoutManager(this));
         binding.rvCart.setAdapter(cartAdapter);
         cartAdapter.setOnQuantityChangeListener((item, newQuantity) -> {
-            // Optional: call API update quantity here
-            // Cập nhật tạm thời số lượng để tính tổng
-            itemQuantityUpdate(item, newQuantity);
-            updateTotal();
+            // Áp ngay lên giỏ hiển thị, ledger gom các lần bấm +/- thành một request
+            String productId = item.getProduct() != null ? item.getProduct().getId() : null;
+            if (productId != null) cartLedger.setQuantity(productId, newQuantity);
         });
         cartAdapter.setOnDeleteClickListener(item -> deleteItem(item));
         cartAdapter.setOnSelectionChangeListener(this::updateTotal);
     }
 
+    private void setupLedger() {
+        ledgerListener = new CartLedger.Listener() {
+            @Override
+            public void onCartChanged(@NonNull List<CartData.Item> items) {
+                cartAdapter.submitList(items, CartActivity.this::updateTotal);
+                binding.rvCart.setVisibility(items.isEmpty() ? View.GONE : View.VISIBLE);
+            }
+
+            @Override
+            public void onAdjusted(@NonNull List<CartData.Adjustment> adjustments) {
+                Toast.makeText(CartActivity.this, "Một số sản phẩm đã được điều chỉnh theo tồn kho", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onSyncError(String message) {
+                Toast.makeText(CartActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        };
+        cartLedger.setListener(ledgerListener);
+    }
+
     private void fetchCart() {
         showLoading(true);
         String userId = sessionManager.getUserId();
@@ -67,31 +102,20 @@ public class CartActivity extends AppCompatActivity {
             Toast.makeText(this, "Bạn chưa đăng nhập", Toast.LENGTH_SHORT).show();
             return;
         }
-        ApiClient.getService().getCart(userId).enqueue(new Callback<BaseResponse<CartData>>() {
+        cartRepository.getCart(userId, false, new ResultCallback<CartData>() {
             @Override
-            public void onResponse(Call<BaseResponse<CartData>> call, Response<BaseResponse<CartData>> response) {
+            public void onSuccess(CartData data) {
                 showLoading(false);
-                if (!response.isSuccessful() || response.body() == null) {
-                    Toast.makeText(CartActivity.this, "Không thể tải giỏ hàng (" + response.code() + ")", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-                BaseResponse<CartData> body = response.body();
-                if (body.isSuccess() && body.getData() != null) {
-                    CartData data = body.getData();
-                    cartAdapter.submitList(data.getItems());
-                    binding.cbSelectAll.setChecked(false);
-                    updateTotal();
-                    boolean isEmpty = data.getItems() == null || data.getItems().isEmpty();
-                    binding.rvCart.setVisibility(isEmpty ? View.GONE : View.VISIBLE);
-                } else {
-                    Toast.makeText(CartActivity.this, body.getMessage(), Toast.LENGTH_SHORT).show();
-                }
+                binding.cbSelectAll.setChecked(false);
+                cartAdapter.clearSelection();
+                // Ledger áp lại các thay đổi chưa đồng bộ lên giỏ vừa tải rồi báo onCartChanged
+                cartLedger.replaceBase(data);
             }
 
             @Override
-            public void onFailure(Call<BaseResponse<CartData>> call, Throwable t) {
+            public void onError(int code, String message) {
                 showLoading(false);
-                Toast.makeText(CartActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                Toast.makeText(CartActivity.this, message, Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -115,55 +139,29 @@ public class CartActivity extends AppCompatActivity {
         });
     }
 
-    private void itemQuantityUpdate(CartData.Item target, int newQuantity) {
-        for (CartData.Item it : cartAdapter.getItems()) {
-            if (it == target) {
-                try {
-                    java.lang.reflect.Field f = it.getClass().getDeclaredField("quantity");
-                    f.setAccessible(true);
-                    f.setInt(it, newQuantity);
-                } catch (Exception ignored) {}
-                break;
-            }
-        }
-    }
-
     private void deleteItem(CartData.Item item) {
-        String userId = sessionManager.getUserId();
         String productId = item.getProduct() != null ? item.getProduct().getId() : null;
-        if (userId == null || productId == null) {
+        if (productId == null) {
             Toast.makeText(this, "Thiếu thông tin xóa item", Toast.LENGTH_SHORT).show();
             return;
         }
-        showLoading(true);
-        ApiClient.getService().deleteCartItem(productId, userId).enqueue(new Callback<BaseResponse<CartData>>() {
-            @Override
-            public void onResponse(Call<BaseResponse<CartData>> call, Response<BaseResponse<CartData>> response) {
-                showLoading(false);
-                if (!response.isSuccessful() || response.body() == null) {
-                    Toast.makeText(CartActivity.this, "Không thể xóa (" + response.code() + ")", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-                BaseResponse<CartData> body = response.body();
-                if (body.isSuccess() && body.getData() != null) {
-                    CartData data = body.getData();
-                    cartAdapter.submitList(data.getItems());
-                    binding.tvTotalPrice.setText(currencyFormat.format(data.getTotalAmount()));
-                    Toast.makeText(CartActivity.this, body.getMessage(), Toast.LENGTH_SHORT).show();
-                } else {
-                    Toast.makeText(CartActivity.this, body.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            }
-
-            @Override
-            public void onFailure(Call<BaseResponse<CartData>> call, Throwable t) {
-                showLoading(false);
-                Toast.makeText(CartActivity.this, "Lỗi kết nối: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-            }
-        });
+        cartLedger.remove(productId);
+        Toast.makeText(this, "Đã xóa item", Toast.LENGTH_SHORT).show();
     }
 
     private void showLoading(boolean isLoading) {
         binding.rvCart.setVisibility(isLoading ? View.INVISIBLE : View.VISIBLE);
     }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        cartLedger.flushNow();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (ledgerListener != null) cartLedger.clearListener(ledgerListener);
+    }
 }
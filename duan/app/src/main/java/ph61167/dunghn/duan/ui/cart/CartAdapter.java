@@ -4,27 +4,40 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
 
 import ph61167.dunghn.duan.data.model.CartData;
 import ph61167.dunghn.duan.databinding.ItemCartBinding;
 
-public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder> {
+public class CartAdapter extends ListAdapter<CartData.Item, CartAdapter.CartViewHolder> {
 
-    private final List<CartData.Item> items = new ArrayList<>();
-    private final java.util.HashSet<CartData.Item> selected = new java.util.HashSet<>();
+    // Payload cho bind từng phần: chỉ đổi checkbox hoặc chỉ đổi số lượng/giá
+    static final Object PAYLOAD_SELECTION = new Object();
+    static final Object PAYLOAD_QUANTITY = new Object();
+
+    // Lưu id thay vì object để lựa chọn không phụ thuộc instance sau mỗi lần diff
+    private final Set<String> selected = new HashSet<>();
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
     private OnQuantityChangeListener quantityChangeListener;
     private OnDeleteClickListener deleteClickListener;
     private OnSelectionChangeListener selectionChangeListener;
 
+    public CartAdapter() {
+        super(new CartItemDiffCallback());
+    }
+
     public interface OnQuantityChangeListener {
         void onChange(CartData.Item item, int newQuantity);
     }
@@ -49,30 +62,39 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
         this.selectionChangeListener = l;
     }
 
+    @Override
     public void submitList(List<CartData.Item> data) {
-        items.clear();
-        selected.clear();
-        if (data != null) items.addAll(data);
-        notifyDataSetChanged();
+        submitList(data, null);
     }
 
-    public List<CartData.Item> getItems() { return items; }
+    /** Giữ lựa chọn của các item vẫn còn trong danh sách mới. */
+    @Override
+    public void submitList(List<CartData.Item> data, Runnable commitCallback) {
+        Set<String> keys = new HashSet<>();
+        if (data != null) {
+            for (CartData.Item it : data) keys.add(keyOf(it));
+        }
+        selected.retainAll(keys);
+        super.submitList(data != null ? new ArrayList<>(data) : null, commitCallback);
+    }
+
+    public List<CartData.Item> getItems() { return getCurrentList(); }
 
     public List<CartData.Item> getSelectedItems() {
         List<CartData.Item> res = new ArrayList<>();
-        for (CartData.Item it : items) if (selected.contains(it)) res.add(it);
+        for (CartData.Item it : getCurrentList()) if (selected.contains(keyOf(it))) res.add(it);
         return res;
     }
 
     public void selectAll() {
         selected.clear();
-        selected.addAll(items);
-        notifyDataSetChanged();
+        for (CartData.Item it : getCurrentList()) selected.add(keyOf(it));
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
     }
 
     public void clearSelection() {
         selected.clear();
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
     }
 
     @NonNull
@@ -85,11 +107,29 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull CartViewHolder holder, int position) {
-        holder.bind(items.get(position), currencyFormat, quantityChangeListener, deleteClickListener, selected, selectionChangeListener);
+        holder.bind(getItem(position), currencyFormat, quantityChangeListener, deleteClickListener, selected, selectionChangeListener);
     }
 
     @Override
-    public int getItemCount() { return items.size(); }
+    public void onBindViewHolder(@NonNull CartViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        CartData.Item item = getItem(position);
+        for (Object payload : payloads) {
+            if (payload == PAYLOAD_SELECTION) {
+                holder.bindSelection(item, selected, selectionChangeListener);
+            } else if (payload == PAYLOAD_QUANTITY) {
+                holder.bindQuantity(item, currencyFormat, quantityChangeListener);
+            }
+        }
+    }
+
+    static String keyOf(CartData.Item item) {
+        if (item.getId() != null) return item.getId();
+        return item.getProduct() != null ? item.getProduct().getId() : null;
+    }
 
     static class CartViewHolder extends RecyclerView.ViewHolder {
         private final ItemCartBinding binding;
@@ -99,25 +139,29 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
             this.binding = binding;
         }
 
-        void bind(CartData.Item item, NumberFormat fmt, OnQuantityChangeListener l, OnDeleteClickListener d, java.util.Set<CartData.Item> selectedSet, OnSelectionChangeListener selListener) {
+        void bind(CartData.Item item, NumberFormat fmt, OnQuantityChangeListener l, OnDeleteClickListener d, Set<String> selectedSet, OnSelectionChangeListener selListener) {
             String name = item.getProduct() != null ? item.getProduct().getName() : "";
             String image = item.getProduct() != null ? item.getProduct().getImage() : null;
             binding.tvProductName.setText(name);
-            binding.tvProductPrice.setText(fmt.format(item.getUnitPrice()));
-            binding.tvQuantity.setText(String.valueOf(item.getQuantity()));
+            bindQuantity(item, fmt, l);
             Glide.with(binding.ivProduct.getContext())
                     .load(image)
                     .placeholder(ph61167.dunghn.duan.R.drawable.img)
                     .error(ph61167.dunghn.duan.R.drawable.img)
                     .into(binding.ivProduct);
 
-            binding.cbSelect.setOnCheckedChangeListener(null);
-            binding.cbSelect.setChecked(selectedSet.contains(item));
-            binding.cbSelect.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                if (isChecked) selectedSet.add(item); else selectedSet.remove(item);
-                if (selListener != null) selListener.onChange();
+            bindSelection(item, selectedSet, selListener);
+
+            binding.btnDelete.setOnClickListener(v -> {
+                if (d != null) d.onDelete(item);
             });
+        }
+
+        void bindQuantity(CartData.Item item, NumberFormat fmt, OnQuantityChangeListener l) {
+            binding.tvProductPrice.setText(fmt.format(item.getUnitPrice()));
+            binding.tvQuantity.setText(String.valueOf(item.getQuantity()));
 
+            // Gắn lại listener để luôn trỏ tới item hiện tại sau mỗi lần bind từng phần
             binding.btnDecrease.setOnClickListener(v -> {
                 int q = Math.max(1, safeInt(binding.tvQuantity.getText().toString()) - 1);
                 binding.tvQuantity.setText(String.valueOf(q));
@@ -128,9 +172,15 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
                 binding.tvQuantity.setText(String.valueOf(q));
                 if (l != null) l.onChange(item, q);
             });
+        }
 
-            binding.btnDelete.setOnClickListener(v -> {
-                if (d != null) d.onDelete(item);
+        void bindSelection(CartData.Item item, Set<String> selectedSet, OnSelectionChangeListener selListener) {
+            String key = keyOf(item);
+            binding.cbSelect.setOnCheckedChangeListener(null);
+            binding.cbSelect.setChecked(selectedSet.contains(key));
+            binding.cbSelect.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (isChecked) selectedSet.add(key); else selectedSet.remove(key);
+                if (selListener != null) selListener.onChange();
             });
         }
 
@@ -138,4 +188,31 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
             try { return Integer.parseInt(s.trim()); } catch (Exception e) { return 1; }
         }
     }
+
+    static class CartItemDiffCallback extends DiffUtil.ItemCallback<CartData.Item> {
+        @Override
+        public boolean areItemsTheSame(@NonNull CartData.Item oldItem, @NonNull CartData.Item newItem) {
+            return Objects.equals(keyOf(oldItem), keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CartData.Item oldItem, @NonNull CartData.Item newItem) {
+            return sameProduct(oldItem, newItem)
+                    && oldItem.getQuantity() == newItem.getQuantity()
+                    && oldItem.getUnitPrice() == newItem.getUnitPrice();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull CartData.Item oldItem, @NonNull CartData.Item newItem) {
+            // Cùng sản phẩm, chỉ khác số lượng/giá: không cần tải lại ảnh
+            return sameProduct(oldItem, newItem) ? PAYLOAD_QUANTITY : null;
+        }
+
+        private static boolean sameProduct(CartData.Item a, CartData.Item b) {
+            CartData.ProductInfo pa = a.getProduct();
+            CartData.ProductInfo pb = b.getProduct();
+            if (pa == null || pb == null) return pa == pb;
+            return Objects.equals(pa.getName(), pb.getName()) && Objects.equals(pa.getImage(), pb.getImage());
+        }
+    }
 }
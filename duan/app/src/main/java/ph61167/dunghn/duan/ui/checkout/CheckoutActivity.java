@@ -14,13 +14,15 @@ import java.util.List;
 import java.util.Locale;
 
 import ph61167.dunghn.duan.data.local.SessionManager;
-import ph61167.dunghn.duan.data.model.CartItem;
+import ph61167.dunghn.duan.data.model.CartData;
 import ph61167.dunghn.duan.data.model.Order;
 import ph61167.dunghn.duan.data.remote.ApiClient;
-import ph61167.dunghn.duan.data.remote.ApiService;
 import ph61167.dunghn.duan.data.remote.request.CreateOrderRequest;
 import ph61167.dunghn.duan.data.remote.response.BaseResponse;
-import ph61167.dunghn.duan.data.remote.response.CartResponse;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import ph61167.dunghn.duan.data.repository.OrderRepository;
+import ph61167.dunghn.duan.data.repository.ResourceCache;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
 import ph61167.dunghn.duan.databinding.ActivityCheckoutBinding;
 import ph61167.dunghn.duan.ui.orders.OrdersActivity;
 import retrofit2.Call;
@@ -32,7 +34,10 @@ public class CheckoutActivity extends AppCompatActivity {
     private ActivityCheckoutBinding binding;
     private SessionManager sessionManager;
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
-    private CartResponse cartData;
+    private final CartRepository cartRepository = CartRepository.getInstance();
+    // Batch của CartLedger trả về sau khi màn này mở sẽ cập nhật lại tổng tiền
+    private ResourceCache.Observer<CartData> cartObserver;
+    private CartData cartData;
     private String paymentMethod = "COD";
 
     @Override
@@ -41,7 +46,11 @@ public class CheckoutActivity extends AppCompatActivity {
         binding = ActivityCheckoutBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         if (!sessionManager.isLoggedIn()) {
             finish();
@@ -49,6 +58,7 @@ public class CheckoutActivity extends AppCompatActivity {
         }
 
         setupClickListeners();
+        setupDefaults();
         fetchCart();
     }
 
@@ -75,30 +85,25 @@ public class CheckoutActivity extends AppCompatActivity {
             return;
         }
 
-        ApiClient.getService()
-                .getCart(userId)
-                .enqueue(new Callback<BaseResponse<CartResponse>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<CartResponse>> call,
-                            Response<BaseResponse<CartResponse>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            BaseResponse<CartResponse> body = response.body();
-                            if (body.isSuccess() && body.getData() != null) {
-                                cartData = body.getData();
-                                setupCartData();
-                            }
-                        }
-                    }
+        cartObserver = (key, value) -> {
+            cartData = value;
+            setupCartData();
+        };
+        cartRepository.observeCart(userId, cartObserver);
+        cartRepository.getCart(userId, false, new ResultCallback<CartData>() {
+            @Override
+            public void onSuccess(CartData data) {
+                cartData = data;
+                setupCartData();
+            }
 
-                    @Override
-                    public void onFailure(Call<BaseResponse<CartResponse>> call, Throwable t) {
-                        Toast.makeText(CheckoutActivity.this,
-                                "Lỗi khi tải giỏ hàng",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+            @Override
+            public void onError(int code, String message) {
+                Toast.makeText(CheckoutActivity.this,
+                        "Lỗi khi tải giỏ hàng",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void setupCartData() {
@@ -111,7 +116,10 @@ public class CheckoutActivity extends AppCompatActivity {
         double subtotal = cartData.getTotalAmount();
         binding.tvSubtotal.setText(currencyFormat.format(subtotal));
         binding.tvTotal.setText(currencyFormat.format(subtotal));
+    }
 
+    // Chỉ gọi một lần: giỏ hàng có thể được cập nhật lại nhiều lần, không được ghi đè địa chỉ đã nhập
+    private void setupDefaults() {
         // Setup default address
         String userName = sessionManager.getUserName();
         String userEmail = sessionManager.getUserEmail();
@@ -218,12 +226,12 @@ public class CheckoutActivity extends AppCompatActivity {
 
         // Create order items
         List<CreateOrderRequest.OrderItemRequest> orderItems = new ArrayList<>();
-        for (CartItem item : cartData.getItems()) {
+        for (CartData.Item item : cartData.getItems()) {
             if (item.getProduct() != null) {
                 orderItems.add(new CreateOrderRequest.OrderItemRequest(
                         item.getProduct().getId(),
                         item.getQuantity(),
-                        item.getProduct().getPrice()
+                        item.getUnitPrice()
                 ));
             }
         }
@@ -267,6 +275,7 @@ public class CheckoutActivity extends AppCompatActivity {
 
                                 // Clear cart
                                 clearCart();
+                                OrderRepository.getInstance().invalidateOrders(userId);
 
                                 // Navigate to orders
                                 Intent intent = new Intent(CheckoutActivity.this, OrdersActivity.class);
@@ -300,22 +309,15 @@ public class CheckoutActivity extends AppCompatActivity {
         String userId = sessionManager.getUserId();
         if (userId == null) return;
 
-        ApiClient.getService()
-                .clearCart(userId)
-                .enqueue(new Callback<BaseResponse<CartResponse>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<CartResponse>> call,
-                            Response<BaseResponse<CartResponse>> response
-                    ) {
-                        // Cart cleared
-                    }
+        cartRepository.clearCart(userId, null);
+    }
 
-                    @Override
-                    public void onFailure(Call<BaseResponse<CartResponse>> call, Throwable t) {
-                        // Ignore
-                    }
-                });
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        String userId = sessionManager.getUserId();
+        if (userId != null && cartObserver != null) {
+            cartRepository.removeCartObserver(userId, cartObserver);
+        }
     }
 }
-
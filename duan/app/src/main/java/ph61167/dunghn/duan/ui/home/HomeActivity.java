@@ -2,22 +2,39 @@ package ph61167.dunghn.duan.ui.home;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import ph61167.dunghn.duan.data.local.ProductCatalogStore;
+import ph61167.dunghn.duan.data.local.ProductSearchIndex;
 import ph61167.dunghn.duan.data.local.SessionManager;
 import ph61167.dunghn.duan.data.model.Product;
 import ph61167.dunghn.duan.data.remote.ApiClient;
 import ph61167.dunghn.duan.data.remote.ApiService;
+import ph61167.dunghn.duan.data.remote.BatchMultiplexer;
 import ph61167.dunghn.duan.data.remote.request.FavoriteRequest;
 import ph61167.dunghn.duan.data.remote.response.BaseResponse;
 import ph61167.dunghn.duan.data.remote.response.ProductsResponse;
+import ph61167.dunghn.duan.data.repository.CartRepository;
+import ph61167.dunghn.duan.data.repository.FavoriteMembership;
+import ph61167.dunghn.duan.data.repository.FavoriteRepository;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
 import ph61167.dunghn.duan.databinding.ActivityHomeBinding;
 import ph61167.dunghn.duan.ui.auth.LoginActivity;
 import ph61167.dunghn.duan.ui.cart.CartActivity;
@@ -28,19 +45,56 @@ import retrofit2.Response;
 
 public class HomeActivity extends AppCompatActivity {
 
+    private static final String TAG = "HomeActivity";
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_PAGES_IN_MEMORY = 5;
+    // Kết quả tìm local đọc từ SQLite tối đa bằng cửa sổ trang lưới giữ trong bộ nhớ
+    private static final int SEARCH_RESULT_LIMIT = PAGE_SIZE * MAX_PAGES_IN_MEMORY;
+    private static final int SYNC_PAGE_SIZE = 100;
+    private static final long FULL_SYNC_INTERVAL_MS = 24L * 60 * 60 * 1000;
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int GRID_SPAN = 2;
+    // Số ô ảnh nạp trước khi cuộn, khoảng 3 hàng lưới
+    private static final int IMAGE_PRELOAD_COUNT = 6;
+
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
     private ActivityHomeBinding binding;
+    private ProductCatalogStore catalogStore;
+    private long createdAtMillis;
+    private boolean firstRenderLogged;
     private SessionManager sessionManager;
     private ProductAdapter productAdapter;
-    private java.util.List<Product> allProducts = new java.util.ArrayList<>();
-    private java.util.List<String> categories = new java.util.ArrayList<>();
+    private ProductPager productPager;
+    private String lastPageSource = "network";
+    // nextCursor server trả cho từng trang, khóa là số trang sẽ dùng cursor đó
+    private final java.util.Map<Integer, String> pageCursors = new java.util.HashMap<>();
+    private boolean searchActive;
+    private String currentQuery = "";
+    private String currentCategoryId;
+    // Dựng lại trên ioExecutor mỗi khi catalog offline thay đổi
+    private ProductSearchIndex searchIndex;
+    private boolean catalogComplete;
+    private ProductSearchController searchController;
+    private ProductDetailPrefetcher detailPrefetcher;
+    private java.util.List<Product.Category> categories = new java.util.ArrayList<>();
+    private final FavoriteMembership favoriteMembership = FavoriteMembership.getInstance();
+    private final FavoriteMembership.Listener favoritesListener = () -> {
+        if (productAdapter != null) productAdapter.notifyFavoritesChanged();
+    };
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtMillis = SystemClock.elapsedRealtime();
         binding = ActivityHomeBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+        catalogStore = ProductCatalogStore.getInstance(this);
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         if (!sessionManager.isLoggedIn()) {
             navigateToLogin();
@@ -52,8 +106,21 @@ public class HomeActivity extends AppCompatActivity {
         setupBottomNavigation();
         setupClickListeners();
         setupSearchAndFilter();
-        fetchProducts();
-        fetchCategories();
+        loadCatalog();
+        prefetchUserData();
+    }
+
+    /**
+     * Giỏ hàng và yêu thích (chưa có trong cache) lấy chung một round trip qua /batch,
+     * để mở giỏ hàng, yêu thích hay chi tiết sản phẩm sau đó không phải chờ mạng.
+     */
+    private void prefetchUserData() {
+        String userId = sessionManager.getUserId();
+        if (userId == null) return;
+        BatchMultiplexer batch = new BatchMultiplexer();
+        CartRepository.getInstance().prefetch(batch, userId);
+        FavoriteRepository.getInstance().prefetch(batch, userId);
+        batch.execute();
     }
 
     private void setupHeader() {
@@ -140,45 +207,230 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        productAdapter = new ProductAdapter();
-        binding.rvProducts.setLayoutManager(new GridLayoutManager(this, 2));
+        // Ô ảnh: nửa chiều ngang màn hình trừ margin 8dp hai bên, cao 160dp (item_product.xml)
+        android.util.DisplayMetrics metrics = getResources().getDisplayMetrics();
+        int imageWidth = metrics.widthPixels / GRID_SPAN - Math.round(16 * metrics.density);
+        int imageHeight = Math.round(160 * metrics.density);
+        RequestManager glide = Glide.with(this);
+        productAdapter = new ProductAdapter(glide, imageWidth, imageHeight);
+        productAdapter.setFavoriteState(new ProductAdapter.FavoriteState() {
+            @Override
+            public boolean isFavorite(String productId) {
+                return favoriteMembership.contains(productId);
+            }
+
+            @Override
+            public void toggle(Product product) {
+                String userId = sessionManager.getUserId();
+                if (userId == null || product.getId() == null) return;
+                boolean favorite = !favoriteMembership.contains(product.getId());
+                // Tim đổi ngay qua favoritesListener, server được đồng bộ nền
+                SyncEngine.getInstance().setFavorite(userId, product.getId(), favorite);
+            }
+        });
+        favoriteMembership.addListener(favoritesListener);
+        binding.rvProducts.setLayoutManager(new GridLayoutManager(this, GRID_SPAN));
         binding.rvProducts.setAdapter(productAdapter);
+        binding.rvProducts.addOnScrollListener(new RecyclerViewPreloader<>(
+                glide,
+                productAdapter,
+                new FixedPreloadSizeProvider<>(imageWidth, imageHeight),
+                IMAGE_PRELOAD_COUNT
+        ));
+        detailPrefetcher = new ProductDetailPrefetcher(productAdapter);
+        detailPrefetcher.attach(binding.rvProducts);
+
+        productPager = new ProductPager(productAdapter, this::loadProductPage, PAGE_SIZE, MAX_PAGES_IN_MEMORY);
+        productPager.setListener(new ProductPager.Listener() {
+            @Override
+            public void onFirstPage(@NonNull List<Product> items) {
+                showProductLoading(false);
+                detailPrefetcher.schedule();
+                fetchCategories();
+                if (!firstRenderLogged) {
+                    firstRenderLogged = true;
+                    String source = lastPageSource;
+                    binding.rvProducts.post(() -> Log.i(TAG, "Time to first product (" + source + "): "
+                            + (SystemClock.elapsedRealtime() - createdAtMillis) + " ms"));
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                showProductLoading(false);
+                Toast.makeText(HomeActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+        productPager.attach(binding.rvProducts);
     }
 
-    private void fetchProducts() {
+    private void loadCatalog() {
         showProductLoading(true);
+        productPager.refresh();
+        rebuildSearchIndex();
+        syncCatalog();
+    }
+
+    private void rebuildSearchIndex() {
+        ioExecutor.execute(() -> {
+            ProductSearchIndex index = catalogStore.buildSearchIndex();
+            boolean complete = catalogStore.getLastFullSyncMillis() > 0;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                searchIndex = index;
+                catalogComplete = complete;
+                fetchCategories();
+                if (searchActive) {
+                    filterProducts(currentQuery, currentCategoryId);
+                }
+            });
+        });
+    }
+
+    /**
+     * Nguồn trang cho {@link ProductPager}: đọc từ catalog offline nếu đã có đủ trang,
+     * nếu không thì tải trang đó từ server và ghi lại vào catalog.
+     */
+    private void loadProductPage(int page, int pageSize, ProductPager.PageCallback callback) {
+        ioExecutor.execute(() -> {
+            int offset = (page - 1) * pageSize;
+            List<Product> local = catalogStore.getPage(offset, pageSize);
+            boolean catalogComplete = catalogStore.getLastFullSyncMillis() > 0;
+            if (local.size() == pageSize || catalogComplete) {
+                boolean hasMore = local.size() == pageSize && offset + pageSize < catalogStore.count();
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    lastPageSource = "cache";
+                    callback.onPage(local, hasMore);
+                });
+                return;
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                fetchRemotePage(page, pageSize, local, callback);
+            });
+        });
+    }
+
+    private void fetchRemotePage(
+            int page,
+            int pageSize,
+            List<Product> fallback,
+            ProductPager.PageCallback callback
+    ) {
+        if (page == 1) pageCursors.clear();
+        // Biết cursor thì server đi thẳng tới vị trí đó; chưa biết (trang trước lấy từ catalog offline) thì dùng page
         ApiClient.getService()
-                .getProducts()
-                .enqueue(new Callback<BaseResponse<List<Product>>>() {
+                .getProducts(null, pageCursors.get(page), page, pageSize)
+                .enqueue(new Callback<BaseResponse<ProductsResponse>>() {
                     @Override
                     public void onResponse(
-                            Call<BaseResponse<List<Product>>> call,
-                            Response<BaseResponse<List<Product>>> response
+                            Call<BaseResponse<ProductsResponse>> call,
+                            Response<BaseResponse<ProductsResponse>> response
                     ) {
-                        showProductLoading(false);
-                        if (!response.isSuccessful() || response.body() == null) {
-                            Toast.makeText(HomeActivity.this,
-                                    "Không thể tải sản phẩm",
-                                    Toast.LENGTH_SHORT).show();
+                        if (isFinishing() || isDestroyed()) return;
+                        BaseResponse<ProductsResponse> body = response.body();
+                        if (!response.isSuccessful() || body == null || !body.isSuccess() || body.getData() == null) {
+                            deliverFallback(fallback, callback, body != null ? body.getMessage() : "Không thể tải sản phẩm");
                             return;
                         }
+                        List<Product> products = body.getData().getProducts() != null
+                                ? body.getData().getProducts()
+                                : java.util.Collections.<Product>emptyList();
+                        ProductsResponse.Pagination pagination = body.getData().getPagination();
+                        boolean hasMore = pagination != null && pagination.hasMore(page);
+                        if (hasMore && pagination.getNextCursor() != null) {
+                            pageCursors.put(page + 1, pagination.getNextCursor());
+                        }
+                        ioExecutor.execute(() -> catalogStore.upsertAll(products));
+                        lastPageSource = "network";
+                        callback.onPage(products, hasMore);
+                    }
 
-                        BaseResponse<List<Product>> body = response.body();
-                        if (body.isSuccess()) {
-                            productAdapter.submitList(body.getData());
-                        } else {
-                            Toast.makeText(HomeActivity.this,
-                                    body.getMessage(),
-                                    Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onFailure(Call<BaseResponse<ProductsResponse>> call, Throwable t) {
+                        if (isFinishing() || isDestroyed()) return;
+                        deliverFallback(fallback, callback, "Lỗi kết nối: " + t.getMessage());
+                    }
+                });
+    }
+
+    private void deliverFallback(List<Product> fallback, ProductPager.PageCallback callback, String message) {
+        if (!fallback.isEmpty()) {
+            lastPageSource = "cache";
+            callback.onPage(fallback, false);
+        } else {
+            callback.onError(message);
+        }
+    }
+
+    /**
+     * Đồng bộ nền với server: nếu đã có catalog thì chỉ lấy các sản phẩm có
+     * {@code updatedAt} mới hơn bản lưu, định kỳ mới tải lại toàn bộ để dọn sản phẩm đã xóa.
+     */
+    private void syncCatalog() {
+        ioExecutor.execute(() -> {
+            boolean hasCache = catalogStore.count() > 0;
+            boolean fullSyncDue = System.currentTimeMillis() - catalogStore.getLastFullSyncMillis()
+                    > FULL_SYNC_INTERVAL_MS;
+            String updatedSince = hasCache && !fullSyncDue ? catalogStore.getLatestUpdatedAt() : null;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                fetchCatalogPage(updatedSince, null, 1, new java.util.HashSet<>());
+            });
+        });
+    }
+
+    private void fetchCatalogPage(String updatedSince, String cursor, int page, java.util.Set<String> seenIds) {
+        ApiClient.getService()
+                .getProducts(updatedSince, cursor, page, SYNC_PAGE_SIZE)
+                .enqueue(new Callback<BaseResponse<ProductsResponse>>() {
+                    @Override
+                    public void onResponse(
+                            Call<BaseResponse<ProductsResponse>> call,
+                            Response<BaseResponse<ProductsResponse>> response
+                    ) {
+                        if (isFinishing() || isDestroyed()) return;
+                        BaseResponse<ProductsResponse> body = response.body();
+                        if (!response.isSuccessful() || body == null || !body.isSuccess() || body.getData() == null) {
+                            Log.w(TAG, "Catalog sync failed: " + (body != null ? body.getMessage() : response.code()));
+                            return;
+                        }
+
+                        ProductsResponse data = body.getData();
+                        List<Product> products = data.getProducts() != null
+                                ? data.getProducts()
+                                : java.util.Collections.<Product>emptyList();
+                        for (Product product : products) {
+                            seenIds.add(product.getId());
                         }
+                        ProductsResponse.Pagination pagination = data.getPagination();
+                        boolean hasMore = pagination != null && pagination.hasMore(page);
+                        String nextCursor = pagination != null ? pagination.getNextCursor() : null;
+
+                        ioExecutor.execute(() -> {
+                            catalogStore.upsertAll(products);
+                            if (!hasMore && updatedSince == null) {
+                                catalogStore.retainOnly(seenIds);
+                            }
+                            boolean changed = !hasMore && (updatedSince == null || !seenIds.isEmpty());
+                            runOnUiThread(() -> {
+                                if (isFinishing() || isDestroyed()) return;
+                                if (changed) {
+                                    rebuildSearchIndex();
+                                    if (!searchActive) productPager.reloadWindow();
+                                }
+                                if (hasMore) {
+                                    fetchCatalogPage(updatedSince, nextCursor, page + 1, seenIds);
+                                }
+                            });
+                        });
                     }
 
                     @Override
-                    public void onFailure(Call<BaseResponse<List<Product>>> call, Throwable t) {
-                        showProductLoading(false);
-                        Toast.makeText(HomeActivity.this,
-                                "Lỗi kết nối: " + t.getMessage(),
-                                Toast.LENGTH_SHORT).show();
+                    public void onFailure(Call<BaseResponse<ProductsResponse>> call, Throwable t) {
+                        // Vẫn đang hiển thị catalog offline, chỉ ghi log
+                        Log.w(TAG, "Catalog sync failed: " + t.getMessage());
                     }
                 });
     }
@@ -189,12 +441,74 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void setupSearchAndFilter() {
+        searchController = new ProductSearchController(new ProductSearchController.LocalSource() {
+            @Override
+            public void search(@NonNull String query, @Nullable String categoryId,
+                               @NonNull ProductSearchController.LocalResults callback) {
+                if (searchIndex == null) {
+                    // Chỉ mục chưa dựng xong thì tạm tìm trong các trang đang hiển thị
+                    List<Product> visible = productPager.snapshot();
+                    callback.onResults(pickByIds(visible,
+                            ProductSearchIndex.build(visible).search(query, categoryId)));
+                    return;
+                }
+                List<String> matched = searchIndex.search(query, categoryId);
+                // Mỗi lần gõ chỉ đọc lại đủ số dòng hiển thị, không phải toàn bộ kết quả
+                List<String> ids = matched.size() > SEARCH_RESULT_LIMIT
+                        ? new java.util.ArrayList<>(matched.subList(0, SEARCH_RESULT_LIMIT))
+                        : matched;
+                ioExecutor.execute(() -> {
+                    List<Product> items = catalogStore.getByIds(ids);
+                    runOnUiThread(() -> {
+                        if (isFinishing() || isDestroyed()) return;
+                        callback.onResults(items);
+                    });
+                });
+            }
+
+            @Override
+            public boolean isComplete() {
+                return catalogComplete;
+            }
+        }, new ProductSearchController.Listener() {
+            @Override
+            public void onResults(@NonNull String query, @Nullable String categoryId,
+                                  @NonNull List<Product> items, boolean fromServer) {
+                // Bỏ kết quả nếu người dùng đã xóa bộ lọc trong lúc chờ
+                if (!searchActive) return;
+                productAdapter.submitList(items);
+            }
+
+            @Override
+            public void onRemoteItems(@NonNull List<Product> items) {
+                ioExecutor.execute(() -> catalogStore.upsertAll(items));
+            }
+        }, SEARCH_DEBOUNCE_MS);
+
         // Search functionality
         if (binding.etSearch != null) {
             binding.etSearch.setOnEditorActionListener((v, actionId, event) -> {
                 performSearch();
                 return true;
             });
+            binding.etSearch.addTextChangedListener(new android.text.TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(android.text.Editable s) {
+                    String query = s.toString().trim();
+                    if (query.equals(currentQuery)) return;
+                    if (!applyFilterState(query, currentCategoryId)) {
+                        searchController.onQueryChanged(query, currentCategoryId);
+                    }
+                }
+            });
         }
 
         // Filter button
@@ -205,28 +519,43 @@ public class HomeActivity extends AppCompatActivity {
 
     private void performSearch() {
         String query = binding.etSearch != null ? binding.etSearch.getText().toString().trim() : "";
-        filterProducts(query, null);
+        filterProducts(query, currentCategoryId);
+    }
+
+    private static List<Product> pickByIds(List<Product> products, List<String> ids) {
+        java.util.Map<String, Product> byId = new java.util.HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> result = new java.util.ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product != null) result.add(product);
+        }
+        return result;
     }
 
     private void filterProducts(String searchQuery, String categoryId) {
-        java.util.List<Product> filtered = new java.util.ArrayList<>();
-        
-        for (Product product : allProducts) {
-            boolean matchesSearch = searchQuery.isEmpty() || 
-                    (product.getName() != null && product.getName().toLowerCase().contains(searchQuery.toLowerCase())) ||
-                    (product.getDescription() != null && product.getDescription().toLowerCase().contains(searchQuery.toLowerCase()));
-            
-            boolean matchesCategory = categoryId == null || 
-                    categoryId.isEmpty() ||
-                    (product.getCategory() != null && product.getCategory().getId() != null && 
-                     product.getCategory().getId().equals(categoryId));
-            
-            if (matchesSearch && matchesCategory) {
-                filtered.add(product);
-            }
+        if (!applyFilterState(searchQuery, categoryId)) {
+            searchController.submit(searchQuery, categoryId);
         }
-        
-        productAdapter.submitList(filtered);
+    }
+
+    /**
+     * Ghi nhận bộ lọc hiện tại. Khi không còn bộ lọc nào thì trả lưới về các trang
+     * của pager ngay và trả về true; ngược lại trả về false để chạy tìm kiếm.
+     */
+    private boolean applyFilterState(String searchQuery, String categoryId) {
+        currentQuery = searchQuery;
+        currentCategoryId = categoryId;
+        boolean noFilter = searchQuery.isEmpty() && (categoryId == null || categoryId.isEmpty());
+        searchActive = !noFilter;
+        productPager.setPaused(searchActive);
+        if (noFilter) {
+            searchController.cancel();
+            productAdapter.submitList(productPager.snapshot());
+        }
+        return noFilter;
     }
 
     private void showFilterDialog() {
@@ -236,30 +565,34 @@ public class HomeActivity extends AppCompatActivity {
         String[] categoryArray = new String[categories.size() + 1];
         categoryArray[0] = "Tất cả";
         for (int i = 0; i < categories.size(); i++) {
-            categoryArray[i + 1] = categories.get(i);
+            categoryArray[i + 1] = categories.get(i).getName();
         }
         
         builder.setItems(categoryArray, (dialog, which) -> {
+            String query = binding.etSearch != null ? binding.etSearch.getText().toString().trim() : "";
             if (which == 0) {
-                filterProducts(binding.etSearch != null ? binding.etSearch.getText().toString().trim() : "", null);
+                filterProducts(query, null);
             } else {
-                // Get category ID from the selected category name
-                // This is simplified - you may need to fetch category IDs from API
-                filterProducts(binding.etSearch != null ? binding.etSearch.getText().toString().trim() : "", null);
+                filterProducts(query, categories.get(which - 1).getId());
             }
         });
         builder.show();
     }
 
     private void fetchCategories() {
+        if (searchIndex != null) {
+            categories = new java.util.ArrayList<>(searchIndex.getCategories());
+            return;
+        }
         // Extract unique categories from products
-        java.util.Set<String> categorySet = new java.util.HashSet<>();
-        for (Product product : allProducts) {
-            if (product.getCategory() != null && product.getCategory().getName() != null) {
-                categorySet.add(product.getCategory().getName());
+        java.util.Map<String, Product.Category> categoryMap = new java.util.LinkedHashMap<>();
+        for (Product product : productPager.snapshot()) {
+            Product.Category category = product.getCategory();
+            if (category != null && category.getId() != null && category.getName() != null) {
+                categoryMap.put(category.getId(), category);
             }
         }
-        categories = new java.util.ArrayList<>(categorySet);
+        categories = new java.util.ArrayList<>(categoryMap.values());
     }
 
     private void navigateToLogin() {
@@ -274,5 +607,17 @@ public class HomeActivity extends AppCompatActivity {
         super.onResume();
         // Set home item as selected when returning to this activity
         binding.bottomNavigation.setSelectedItemId(ph61167.dunghn.duan.R.id.nav_home);
+        // Chỉ hỏi version, danh sách id chỉ tải lại khi có thay đổi (kể cả từ máy khác)
+        String userId = sessionManager.getUserId();
+        if (userId != null) favoriteMembership.sync(userId);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (searchController != null) searchController.cancel();
+        if (detailPrefetcher != null) detailPrefetcher.detach();
+        favoriteMembership.removeListener(favoritesListener);
+        ioExecutor.shutdown();
     }
 }
@@ -1,32 +1,68 @@
 package ph61167.dunghn.duan.ui.home;
 
-import android.content.Intent;
+import android.app.Activity;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import ph61167.dunghn.duan.R;
 import ph61167.dunghn.duan.data.model.Product;
-import com.bumptech.glide.Glide;
+import ph61167.dunghn.duan.data.remote.ImageUrls;
 import ph61167.dunghn.duan.databinding.ItemProductBinding;
 
-public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
+public class ProductAdapter extends ListAdapter<Product, ProductAdapter.ProductViewHolder>
+        implements ListPreloader.PreloadModelProvider<Product> {
+
+    /** Payload khi chỉ phần chữ (giá, giảm giá, đã bán...) đổi, không cần tải lại ảnh. */
+    static final Object PAYLOAD_TEXT = new Object();
+    /** Payload khi chỉ trạng thái yêu thích đổi. */
+    static final Object PAYLOAD_FAVORITE = new Object();
 
-    private final List<Product> products = new ArrayList<>();
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
+    private final RequestManager glide;
+    private final int imageWidth;
+    private final int imageHeight;
     private OnProductClickListener listener;
+    private FavoriteState favoriteState;
+    // Id ổn định cho RecyclerView: cấp số tăng dần cho mỗi id sản phẩm, không trùng như hashCode().
+    // Chỉ giữ id của danh sách hiện tại (xem onCurrentListChanged) để map không lớn dần theo lúc cuộn
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId;
+
+    /**
+     * {@code imageWidth}/{@code imageHeight} là kích thước ô ảnh trong lưới; ảnh được decode
+     * đúng cỡ này để request lúc bind trùng key với request của preloader.
+     */
+    public ProductAdapter(RequestManager glide, int imageWidth, int imageHeight) {
+        super(new ProductDiffCallback());
+        setHasStableIds(true);
+        this.glide = glide;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+    }
 
     public interface OnProductClickListener {
         void onProductClick(Product product);
@@ -38,12 +74,68 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         this.listener = listener;
     }
 
-    public void submitList(List<Product> data) {
-        products.clear();
-        if (data != null) {
-            products.addAll(data);
+    /** Trạng thái tim của từng ô; phải trả lời ngay (tra bộ nhớ), được gọi lúc bind. */
+    public interface FavoriteState {
+        boolean isFavorite(String productId);
+
+        void toggle(Product product);
+    }
+
+    public void setFavoriteState(FavoriteState favoriteState) {
+        this.favoriteState = favoriteState;
+    }
+
+    /** Vẽ lại tim của các ô đang hiển thị, không đụng tới ảnh và chữ. */
+    public void notifyFavoritesChanged() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_FAVORITE);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        if (id == null) return RecyclerView.NO_ID;
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = nextStableId++;
+            stableIds.put(id, stableId);
         }
-        notifyDataSetChanged();
+        return stableId;
+    }
+
+    @Override
+    public void onCurrentListChanged(@NonNull List<Product> previousList, @NonNull List<Product> currentList) {
+        // Pager chỉ giữ một cửa sổ trang: bỏ id của sản phẩm đã rời danh sách
+        if (stableIds.size() <= currentList.size()) return;
+        Set<String> current = new HashSet<>(currentList.size() * 2);
+        for (Product product : currentList) {
+            current.add(product.getId());
+        }
+        stableIds.keySet().retainAll(current);
+    }
+
+    @NonNull
+    @Override
+    public List<Product> getPreloadItems(int position) {
+        if (position < 0 || position >= getItemCount()) return Collections.emptyList();
+        Product product = getItem(position);
+        String imageUrl = product.getImage();
+        return imageUrl != null && !imageUrl.isEmpty()
+                ? Collections.singletonList(product)
+                : Collections.<Product>emptyList();
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Product product) {
+        return thumbnailRequest(product.getImage());
+    }
+
+    RequestBuilder<Drawable> thumbnailRequest(String imageUrl) {
+        return glide.load(ImageUrls.forWidth(imageUrl, imageWidth))
+                .override(imageWidth, imageHeight)
+                .centerCrop()
+                .placeholder(R.drawable.img)
+                .error(R.drawable.img);
     }
 
     @NonNull
@@ -54,66 +146,104 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                 parent,
                 false
         );
-        return new ProductViewHolder(binding);
+        return new ProductViewHolder(binding, this);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        holder.bind(products.get(position), currencyFormat, listener);
+        holder.bind(getItem(position), currencyFormat, this);
     }
 
     @Override
-    public int getItemCount() {
-        return products.size();
+    public void onBindViewHolder(@NonNull ProductViewHolder holder, int position, @NonNull List<Object> payloads) {
+        boolean textChanged = payloads.contains(PAYLOAD_TEXT);
+        if (textChanged || payloads.contains(PAYLOAD_FAVORITE)) {
+            Product product = getItem(position);
+            // Item mới thay cho item cũ cùng id: click phải dùng bản mới dù không bind lại toàn bộ
+            holder.product = product;
+            if (textChanged) holder.bindText(product, currencyFormat);
+            holder.bindFavorite(product, favoriteState);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
     }
 
     static class ProductViewHolder extends RecyclerView.ViewHolder {
 
         private final ItemProductBinding binding;
+        // Sản phẩm đang hiển thị; mọi lần bind (kể cả bind theo payload) đều cập nhật
+        private Product product;
 
-        ProductViewHolder(ItemProductBinding binding) {
+        ProductViewHolder(ItemProductBinding binding, ProductAdapter adapter) {
             super(binding.getRoot());
             this.binding = binding;
-        }
 
-        void bind(Product product, NumberFormat format, OnProductClickListener listener) {
-            // Set product name
-            binding.tvProductName.setText(product.getName());
-            binding.tvProductPrice.setText(format.format(product.getPrice()));
-            Glide.with(binding.ivProduct.getContext())
-                    .load(product.getImage())
-                    .placeholder(ph61167.dunghn.duan.R.drawable.img)
-                    .error(ph61167.dunghn.duan.R.drawable.img)
-                    .into(binding.ivProduct);
+            // Gắn listener một lần, đọc sản phẩm hiện tại lúc click thay vì giữ bản lúc bind
             binding.getRoot().setOnClickListener(v -> {
-                android.content.Context ctx = v.getContext();
-                android.content.Intent i = new android.content.Intent(ctx, ph61167.dunghn.duan.ui.product.ProductDetailActivity.class);
-                i.putExtra("product_id", product.getId());
-                i.putExtra("product_name", product.getName());
-                i.putExtra("product_description", product.getDescription());
-                i.putExtra("product_price", product.getPrice());
-                i.putExtra("product_image", product.getImage());
-                ctx.startActivity(i);
+                if (product == null) return;
+                if (adapter.listener != null) {
+                    adapter.listener.onProductClick(product);
+                } else if (product.getId() != null && v.getContext() instanceof Activity) {
+                    // Open product detail: chi tiết lấy theo id, ảnh trong ô làm shared element
+                    ProductDetailActivity.start((Activity) v.getContext(), product, binding.ivProduct,
+                            adapter.imageWidth, adapter.imageHeight);
+                }
             });
-            
-            // Format and set price
-            String priceFormatted = format.format(product.getPrice());
-            binding.tvProductPrice.setText(priceFormatted);
-            
+
+            if (binding.ivAddCart != null) {
+                binding.ivAddCart.setOnClickListener(v -> {
+                    if (product == null) return;
+                    if (adapter.listener != null) {
+                        adapter.listener.onAddToCartClick(product);
+                    } else {
+                        Toast.makeText(v.getContext(), "Đã thêm " + product.getName() + " vào giỏ hàng", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+
+            if (binding.ivFavorite != null) {
+                binding.ivFavorite.setOnClickListener(v -> {
+                    if (product == null) return;
+                    if (adapter.listener != null) {
+                        adapter.listener.onFavoriteClick(product);
+                    } else if (adapter.favoriteState != null) {
+                        adapter.favoriteState.toggle(product);
+                    } else {
+                        Toast.makeText(v.getContext(), "Đã thêm vào yêu thích", Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        }
+
+        void bind(Product product, NumberFormat format, ProductAdapter adapter) {
+            this.product = product;
+            bindText(product, format);
+            bindFavorite(product, adapter.favoriteState);
+
             // Load image from URL using Glide
             String imageUrl = product.getImage();
             if (imageUrl != null && !imageUrl.isEmpty()) {
-                Glide.with(binding.getRoot().getContext())
-                        .load(imageUrl)
-                        .placeholder(R.drawable.img)
-                        .error(R.drawable.img)
-                        .centerCrop()
+                adapter.thumbnailRequest(imageUrl)
                         .transition(DrawableTransitionOptions.withCrossFade())
                         .into(binding.ivProduct);
             } else {
+                adapter.glide.clear(binding.ivProduct);
                 binding.ivProduct.setImageResource(R.drawable.img);
             }
-            
+        }
+        
+        void bindFavorite(Product product, @Nullable FavoriteState state) {
+            if (binding.ivFavorite == null) return;
+            boolean favorite = state != null && product.getId() != null && state.isFavorite(product.getId());
+            binding.ivFavorite.setImageResource(favorite
+                    ? android.R.drawable.btn_star_big_on
+                    : android.R.drawable.btn_star_big_off);
+        }
+
+        void bindText(Product product, NumberFormat format) {
+            binding.tvProductName.setText(product.getName());
+            binding.tvProductPrice.setText(format.format(product.getPrice()));
+
             // Set rating if available
             if (binding.tvRating != null) {
                 Double rating = product.getRating();
@@ -137,47 +267,8 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
                     binding.tvDiscount.setVisibility(View.GONE);
                 }
             }
-            
-            // Click listeners
-            binding.getRoot().setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onProductClick(product);
-                } else {
-                    // Open product detail
-                    Intent intent = new Intent(v.getContext(), ProductDetailActivity.class);
-                    intent.putExtra("product_id", product.getId());
-                    intent.putExtra("product_name", product.getName());
-                    intent.putExtra("product_price", product.getPrice());
-                    intent.putExtra("product_image", product.getImage());
-                    intent.putExtra("product_description", product.getDescription());
-                    intent.putExtra("product_stock", product.getStock() != null ? product.getStock() : 0);
-                    intent.putExtra("product_rating", product.getRating() != null ? product.getRating() : 4.5);
-                    intent.putExtra("product_sold", product.getSoldCount() != null ? product.getSoldCount() : 0);
-                    v.getContext().startActivity(intent);
-                }
-            });
-            
-            if (binding.ivAddCart != null) {
-                binding.ivAddCart.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onAddToCartClick(product);
-                    } else {
-                        Toast.makeText(v.getContext(), "Đã thêm " + product.getName() + " vào giỏ hàng", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }
-            
-            if (binding.ivFavorite != null) {
-                binding.ivFavorite.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onFavoriteClick(product);
-                    } else {
-                        Toast.makeText(v.getContext(), "Đã thêm vào yêu thích", Toast.LENGTH_SHORT).show();
-                    }
-                });
-            }
         }
-        
+
         private String formatSoldCount(int count) {
             if (count >= 1000) {
                 return String.format(Locale.US, "%.1fk", count / 1000.0);
@@ -185,4 +276,31 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
             return String.valueOf(count);
         }
     }
+
+    static class ProductDiffCallback extends DiffUtil.ItemCallback<Product> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return Objects.equals(oldItem.getImage(), newItem.getImage()) && sameText(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Product oldItem, @NonNull Product newItem) {
+            return Objects.equals(oldItem.getImage(), newItem.getImage()) ? PAYLOAD_TEXT : null;
+        }
+
+        private static boolean sameText(Product a, Product b) {
+            return Objects.equals(a.getName(), b.getName())
+                    && a.getPrice() == b.getPrice()
+                    && Objects.equals(a.getDescription(), b.getDescription())
+                    && Objects.equals(a.getStock(), b.getStock())
+                    && Objects.equals(a.getRating(), b.getRating())
+                    && Objects.equals(a.getSoldCount(), b.getSoldCount())
+                    && Objects.equals(a.getDiscount(), b.getDiscount());
+        }
+    }
 }
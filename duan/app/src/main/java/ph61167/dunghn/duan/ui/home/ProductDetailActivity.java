@@ -1,31 +1,54 @@
 package ph61167.dunghn.duan.ui.home;
 
+import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.ImageView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityOptionsCompat;
+import androidx.core.view.ViewCompat;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 
 import java.text.NumberFormat;
 import java.util.Locale;
+import java.util.Objects;
 
 import ph61167.dunghn.duan.R;
 import ph61167.dunghn.duan.data.local.SessionManager;
-import ph61167.dunghn.duan.data.remote.ApiClient;
-import ph61167.dunghn.duan.data.remote.response.BaseResponse;
-import ph61167.dunghn.duan.data.remote.response.CartResponse;
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.remote.ImageUrls;
+import ph61167.dunghn.duan.data.repository.FavoriteMembership;
+import ph61167.dunghn.duan.data.repository.ProductRepository;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
 import ph61167.dunghn.duan.databinding.ActivityProductDetailBinding;
 import ph61167.dunghn.duan.ui.cart.CartActivity;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class ProductDetailActivity extends AppCompatActivity {
 
+    private static final String EXTRA_PRODUCT_ID = "product_id";
+    private static final String EXTRA_PRODUCT_NAME = "product_name";
+    private static final String EXTRA_PRODUCT_PRICE = "product_price";
+    private static final String EXTRA_PRODUCT_IMAGE = "product_image";
+    private static final String EXTRA_THUMB_WIDTH = "thumb_width";
+    private static final String EXTRA_THUMB_HEIGHT = "thumb_height";
+    private static final long MAX_TRANSITION_WAIT_MS = 300;
+
     private ActivityProductDetailBinding binding;
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
     
@@ -33,12 +56,52 @@ public class ProductDetailActivity extends AppCompatActivity {
     private String productName;
     private double productPrice;
     private String productImage;
-    private String productDescription;
-    private int productStock;
-    private double productRating;
-    private int productSold;
+    // null khi chưa có chi tiết từ server (mở từ yêu thích...)
+    private Integer productStock;
     private int quantity = 1;
     private SessionManager sessionManager;
+    private int thumbWidth;
+    private int thumbHeight;
+    private boolean enterTransitionPostponed;
+    private ProductDetailViewModel viewModel;
+    private final FavoriteMembership favoriteMembership = FavoriteMembership.getInstance();
+    private final FavoriteMembership.Listener favoritesListener = this::renderFavorite;
+
+    /**
+     * Mở chi tiết từ một ô sản phẩm trong lưới. Ảnh thumbnail đang hiển thị được dùng làm
+     * shared element và làm ảnh tạm (cùng key trong memory cache của Glide) trong lúc tải ảnh lớn.
+     */
+    public static void start(@NonNull Activity activity, @NonNull Product product,
+                             @Nullable ImageView thumbnail, int thumbWidth, int thumbHeight) {
+        ProductRepository.getInstance().rememberSummary(product);
+        Intent intent = newIntent(activity, product.getId(), product.getName(), product.getPrice(), product.getImage());
+        intent.putExtra(EXTRA_THUMB_WIDTH, thumbWidth);
+        intent.putExtra(EXTRA_THUMB_HEIGHT, thumbHeight);
+        if (thumbnail != null && product.getImage() != null && !product.getImage().isEmpty()) {
+            String transitionName = transitionName(product.getId());
+            ViewCompat.setTransitionName(thumbnail, transitionName);
+            ActivityOptionsCompat options = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                    activity, thumbnail, transitionName);
+            activity.startActivity(intent, options.toBundle());
+        } else {
+            activity.startActivity(intent);
+        }
+    }
+
+    /** name/price/image chỉ để hiển thị tạm nếu chưa có sản phẩm trong cache; chi tiết luôn lấy theo id. */
+    public static Intent newIntent(@NonNull Context context, @NonNull String productId,
+                                   @Nullable String name, double price, @Nullable String image) {
+        Intent intent = new Intent(context, ProductDetailActivity.class);
+        intent.putExtra(EXTRA_PRODUCT_ID, productId);
+        intent.putExtra(EXTRA_PRODUCT_NAME, name);
+        intent.putExtra(EXTRA_PRODUCT_PRICE, price);
+        intent.putExtra(EXTRA_PRODUCT_IMAGE, image);
+        return intent;
+    }
+
+    private static String transitionName(String productId) {
+        return "product_image_" + productId;
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,30 +109,56 @@ public class ProductDetailActivity extends AppCompatActivity {
         binding = ActivityProductDetailBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
 
-        // Get data from intent
-        getIntentData();
-        
-        // Setup UI
-        setupUI();
+        productId = getIntent().getStringExtra(EXTRA_PRODUCT_ID);
+        if (productId == null) {
+            finish();
+            return;
+        }
+        thumbWidth = getIntent().getIntExtra(EXTRA_THUMB_WIDTH, 0);
+        thumbHeight = getIntent().getIntExtra(EXTRA_THUMB_HEIGHT, 0);
+        ViewCompat.setTransitionName(binding.ivProduct, transitionName(productId));
+        if (savedInstanceState == null && thumbWidth > 0) {
+            // Chờ ảnh tạm sẵn sàng rồi mới chạy shared element để không nhấp nháy
+            supportPostponeEnterTransition();
+            enterTransitionPostponed = true;
+        }
+
+        // ViewModel giữ sản phẩm và số lượng qua xoay màn hình; lần đầu vẽ ngay từ cache
+        // (chi tiết hoặc bản tóm tắt của danh sách) rồi nhận bản đầy đủ từ server
+        viewModel = new ViewModelProvider(this).get(ProductDetailViewModel.class);
+        quantity = viewModel.currentQuantity();
+        viewModel.getProduct().observe(this, this::bindProduct);
+        viewModel.getLoadError().observe(this, code -> {
+            if (code != null && code == 404) {
+                Toast.makeText(this, "Sản phẩm không còn tồn tại", Toast.LENGTH_SHORT).show();
+                binding.btnAddToCart.setEnabled(false);
+            }
+        });
+        viewModel.start(productId, fallbackProduct());
+        // Trạng thái sao tra trong tập id yêu thích trên máy, không cần gọi mạng
+        renderFavorite();
+        favoriteMembership.addListener(favoritesListener);
         
         // Setup click listeners
         setupClickListeners();
     }
 
-    private void getIntentData() {
-        productId = getIntent().getStringExtra("product_id");
-        productName = getIntent().getStringExtra("product_name");
-        productPrice = getIntent().getDoubleExtra("product_price", 0);
-        productImage = getIntent().getStringExtra("product_image");
-        productDescription = getIntent().getStringExtra("product_description");
-        productStock = getIntent().getIntExtra("product_stock", 0);
-        productRating = getIntent().getDoubleExtra("product_rating", 4.5);
-        productSold = getIntent().getIntExtra("product_sold", 0);
+    private Product fallbackProduct() {
+        Product fallback = new Product();
+        fallback.setId(productId);
+        fallback.setName(getIntent().getStringExtra(EXTRA_PRODUCT_NAME));
+        fallback.setPrice(getIntent().getDoubleExtra(EXTRA_PRODUCT_PRICE, 0));
+        fallback.setImage(getIntent().getStringExtra(EXTRA_PRODUCT_IMAGE));
+        return fallback;
     }
 
-    private void setupUI() {
+    private void bindProduct(Product product) {
+        productName = product.getName();
+        productPrice = product.getPrice();
+        productStock = product.getStock();
+
         // Set product name
         binding.tvProductName.setText(productName);
         
@@ -78,35 +167,43 @@ public class ProductDetailActivity extends AppCompatActivity {
         binding.tvTotalPrice.setText(currencyFormat.format(productPrice * quantity));
         
         // Set product description
-        if (productDescription != null && !productDescription.isEmpty()) {
-            binding.tvProductDescription.setText(productDescription);
+        String description = product.getDescription();
+        if (description != null && !description.isEmpty()) {
+            binding.tvProductDescription.setText(description);
         }
         
-        // Load product image
-        if (productImage != null && !productImage.isEmpty()) {
-            Glide.with(this)
-                    .load(productImage)
-                    .placeholder(R.drawable.img)
-                    .error(R.drawable.img)
-                    .centerCrop()
-                    .transition(DrawableTransitionOptions.withCrossFade())
-                    .into(binding.ivProduct);
+        // Chỉ tải lại ảnh khi URL đổi, bản chi tiết thường trùng ảnh với bản tóm tắt
+        if (!Objects.equals(productImage, product.getImage())) {
+            productImage = product.getImage();
+            loadImage();
+        } else if (productImage == null) {
+            startPostponedTransition();
         }
         
         // Set rating
-        binding.tvRating.setText(String.valueOf(productRating));
+        Double rating = product.getRating();
+        binding.tvRating.setText(rating != null ? String.valueOf(rating) : "-");
         
         // Set reviews count
-        int reviewCount = productSold / 10;
+        int sold = product.getSoldCount() != null ? product.getSoldCount() : 0;
+        int reviewCount = sold / 10;
         binding.tvReviews.setText("(" + formatNumber(reviewCount) + " đánh giá)");
         
         // Set sold count
-        binding.tvSold.setText("Đã bán " + formatSoldCount(productSold));
+        binding.tvSold.setText("Đã bán " + formatSoldCount(sold));
         
         // Set stock status
-        if (productStock > 0) {
+        if (productStock == null) {
+            binding.tvStock.setText("");
+            binding.btnAddToCart.setEnabled(true);
+        } else if (productStock > 0) {
             binding.tvStock.setText("Còn " + productStock + " sản phẩm");
             binding.tvStock.setTextColor(getResources().getColor(R.color.success, null));
+            binding.btnAddToCart.setEnabled(true);
+            if (quantity > productStock) {
+                quantity = productStock;
+                updateQuantityUI();
+            }
         } else {
             binding.tvStock.setText("Hết hàng");
             binding.tvStock.setTextColor(getResources().getColor(R.color.error, null));
@@ -117,6 +214,54 @@ public class ProductDetailActivity extends AppCompatActivity {
         binding.tvQuantity.setText(String.valueOf(quantity));
     }
 
+    private void loadImage() {
+        if (productImage == null || productImage.isEmpty()) {
+            binding.ivProduct.setImageResource(R.drawable.img);
+            startPostponedTransition();
+            return;
+        }
+        RequestManager glide = Glide.with(this);
+        int screenWidth = getResources().getDisplayMetrics().widthPixels;
+        RequestBuilder<Drawable> request = glide.load(ImageUrls.forWidth(productImage, screenWidth))
+                .placeholder(R.drawable.img)
+                .error(R.drawable.img)
+                .centerCrop();
+        if (thumbWidth > 0 && thumbHeight > 0) {
+            // Cùng URL/kích thước/transform với ô trong lưới nên thường lấy thẳng từ memory cache
+            request = request.thumbnail(glide.load(ImageUrls.forWidth(productImage, thumbWidth))
+                    .override(thumbWidth, thumbHeight)
+                    .centerCrop());
+        } else {
+            request = request.transition(DrawableTransitionOptions.withCrossFade());
+        }
+        request.listener(new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                        @NonNull Target<Drawable> target, boolean isFirstResource) {
+                startPostponedTransition();
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                                           Target<Drawable> target, @NonNull DataSource dataSource,
+                                           boolean isFirstResource) {
+                startPostponedTransition();
+                return false;
+            }
+        }).into(binding.ivProduct);
+        if (enterTransitionPostponed) {
+            // Ảnh tạm không có trong cache thì không bắt người dùng chờ mạng
+            binding.ivProduct.postDelayed(this::startPostponedTransition, MAX_TRANSITION_WAIT_MS);
+        }
+    }
+
+    private void startPostponedTransition() {
+        if (!enterTransitionPostponed) return;
+        enterTransitionPostponed = false;
+        supportStartPostponedEnterTransition();
+    }
+
     private void setupClickListeners() {
         // Back button
         binding.btnBack.setOnClickListener(v -> finish());
@@ -146,7 +291,7 @@ public class ProductDetailActivity extends AppCompatActivity {
         
         // Increase quantity
         binding.btnIncrease.setOnClickListener(v -> {
-            if (quantity < productStock) {
+            if (productStock == null || quantity < productStock) {
                 quantity++;
                 updateQuantityUI();
             } else {
@@ -156,7 +301,7 @@ public class ProductDetailActivity extends AppCompatActivity {
         
         // Add to cart button
         binding.btnAddToCart.setOnClickListener(v -> {
-            if (productStock > 0) {
+            if (productStock == null || productStock > 0) {
                 addToCart();
             } else {
                 Toast.makeText(this, "Sản phẩm đã hết hàng", Toast.LENGTH_SHORT).show();
@@ -178,47 +323,23 @@ public class ProductDetailActivity extends AppCompatActivity {
             return;
         }
 
-        ApiClient.getService()
-                .addToCart(userId, new ph61167.dunghn.duan.data.remote.ApiService.AddToCartRequest(productId, quantity))
-                .enqueue(new Callback<BaseResponse<CartResponse>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<CartResponse>> call,
-                            Response<BaseResponse<CartResponse>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            BaseResponse<CartResponse> body = response.body();
-                            if (body.isSuccess()) {
-                                Toast.makeText(ProductDetailActivity.this,
-                                        "Đã thêm " + quantity + " " + productName + " vào giỏ hàng",
-                                        Toast.LENGTH_SHORT).show();
-                                
-                                // Option to go to cart
-                                android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(ProductDetailActivity.this);
-                                builder.setTitle("Thêm vào giỏ hàng thành công");
-                                builder.setMessage("Bạn có muốn xem giỏ hàng không?");
-                                builder.setPositiveButton("Xem giỏ hàng", (dialog, which) -> {
-                                    startActivity(new Intent(ProductDetailActivity.this, CartActivity.class));
-                                });
-                                builder.setNegativeButton("Tiếp tục mua sắm", (dialog, which) -> {
-                                    dialog.dismiss();
-                                });
-                                builder.show();
-                            } else {
-                                Toast.makeText(ProductDetailActivity.this,
-                                        body.getMessage(),
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(Call<BaseResponse<CartResponse>> call, Throwable t) {
-                        Toast.makeText(ProductDetailActivity.this,
-                                "Lỗi khi thêm vào giỏ hàng: " + t.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        // Ghi vào hàng chờ trên máy rồi đồng bộ nền, mất mạng lúc này cũng không mất thao tác
+        SyncEngine.getInstance().addToCart(userId, productId, quantity);
+        Toast.makeText(this,
+                "Đã thêm " + quantity + " " + productName + " vào giỏ hàng",
+                Toast.LENGTH_SHORT).show();
+
+        // Option to go to cart
+        android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(this);
+        builder.setTitle("Thêm vào giỏ hàng thành công");
+        builder.setMessage("Bạn có muốn xem giỏ hàng không?");
+        builder.setPositiveButton("Xem giỏ hàng", (dialog, which) -> {
+            startActivity(new Intent(ProductDetailActivity.this, CartActivity.class));
+        });
+        builder.setNegativeButton("Tiếp tục mua sắm", (dialog, which) -> {
+            dialog.dismiss();
+        });
+        builder.show();
     }
 
     private void toggleFavorite() {
@@ -228,74 +349,22 @@ public class ProductDetailActivity extends AppCompatActivity {
             return;
         }
 
-        ph61167.dunghn.duan.data.remote.request.FavoriteRequest request = 
-                new ph61167.dunghn.duan.data.remote.request.FavoriteRequest(userId, productId);
-
-        ApiClient.getService()
-                .addFavorite(request)
-                .enqueue(new Callback<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> call,
-                            Response<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            BaseResponse<ph61167.dunghn.duan.data.model.Favorite> body = response.body();
-                            if (body.isSuccess()) {
-                                binding.btnFavorite.setImageResource(android.R.drawable.btn_star_big_on);
-                                Toast.makeText(ProductDetailActivity.this,
-                                        "Đã thêm vào yêu thích",
-                                        Toast.LENGTH_SHORT).show();
-                            } else {
-                                // Try to remove if already exists
-                                removeFavorite();
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> call,
-                            Throwable t
-                    ) {
-                        Toast.makeText(ProductDetailActivity.this,
-                                "Lỗi khi thêm yêu thích",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        boolean favorite = !favoriteMembership.contains(productId);
+        // Ngôi sao đổi ngay qua favoritesListener, server được đồng bộ nền
+        SyncEngine.getInstance().setFavorite(userId, productId, favorite);
+        Toast.makeText(this,
+                favorite ? "Đã thêm vào yêu thích" : "Đã xóa khỏi yêu thích",
+                Toast.LENGTH_SHORT).show();
     }
 
-    private void removeFavorite() {
-        String userId = sessionManager.getUserId();
-        if (userId == null) return;
-
-        ApiClient.getService()
-                .removeFavorite(userId, productId)
-                .enqueue(new Callback<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> call,
-                            Response<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            binding.btnFavorite.setImageResource(android.R.drawable.btn_star_big_off);
-                            Toast.makeText(ProductDetailActivity.this,
-                                    "Đã xóa khỏi yêu thích",
-                                    Toast.LENGTH_SHORT).show();
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.model.Favorite>> call,
-                            Throwable t
-                    ) {
-                        // Ignore
-                    }
-                });
+    private void renderFavorite() {
+        binding.btnFavorite.setImageResource(favoriteMembership.contains(productId)
+                ? android.R.drawable.btn_star_big_on
+                : android.R.drawable.btn_star_big_off);
     }
 
     private void updateQuantityUI() {
+        viewModel.setQuantity(quantity);
         binding.tvQuantity.setText(String.valueOf(quantity));
         binding.tvTotalPrice.setText(currencyFormat.format(productPrice * quantity));
     }
@@ -313,4 +382,10 @@ public class ProductDetailActivity extends AppCompatActivity {
         }
         return String.valueOf(count);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        favoriteMembership.removeListener(favoritesListener);
+    }
 }
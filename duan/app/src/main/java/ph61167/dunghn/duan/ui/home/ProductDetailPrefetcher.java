@@ -0,0 +1,74 @@
+package ph61167.dunghn.duan.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.repository.ProductRepository;
+
+/**
+ * Tải trước chi tiết của các sản phẩm nằm yên trên màn hình.
+ * Danh sách dừng cuộn quá {@link #DWELL_MS} thì coi như người dùng đang xem các ô đó và
+ * tải trước tối đa {@link #MAX_PREFETCH} chi tiết; cuộn tiếp trước thời hạn thì hủy.
+ */
+final class ProductDetailPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final long DWELL_MS = 700;
+    private static final int MAX_PREFETCH = 4;
+
+    private final ProductAdapter adapter;
+    private final ProductRepository repository = ProductRepository.getInstance();
+    private RecyclerView recyclerView;
+    private final Runnable prefetchVisible = this::prefetchVisible;
+
+    ProductDetailPrefetcher(@NonNull ProductAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    void attach(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(this);
+        schedule();
+    }
+
+    void detach() {
+        if (recyclerView == null) return;
+        recyclerView.removeCallbacks(prefetchVisible);
+        recyclerView.removeOnScrollListener(this);
+        recyclerView = null;
+    }
+
+    /** Gọi khi danh sách đổi mà không cuộn, ví dụ trang đầu vừa hiển thị. */
+    void schedule() {
+        if (recyclerView == null) return;
+        recyclerView.removeCallbacks(prefetchVisible);
+        recyclerView.postDelayed(prefetchVisible, DWELL_MS);
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            schedule();
+        } else {
+            recyclerView.removeCallbacks(prefetchVisible);
+        }
+    }
+
+    private void prefetchVisible() {
+        if (recyclerView == null || !(recyclerView.getLayoutManager() instanceof GridLayoutManager)) return;
+        GridLayoutManager layoutManager = (GridLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstCompletelyVisibleItemPosition();
+        int last = layoutManager.findLastCompletelyVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) return;
+        int started = 0;
+        for (int position = first; position <= last && started < MAX_PREFETCH; position++) {
+            if (position >= adapter.getItemCount()) break;
+            Product product = adapter.getCurrentList().get(position);
+            if (product.getId() == null || repository.hasFreshDetail(product.getId())) continue;
+            repository.rememberSummary(product);
+            repository.prefetch(product.getId());
+            started++;
+        }
+    }
+}
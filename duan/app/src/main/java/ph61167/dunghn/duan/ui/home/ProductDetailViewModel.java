@@ -0,0 +1,76 @@
+package ph61167.dunghn.duan.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.repository.ProductRepository;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
+
+/**
+ * Trạng thái màn chi tiết sản phẩm, giữ qua xoay màn hình.
+ * Dữ liệu sản phẩm lấy từ {@link ProductRepository} (cache theo id dùng chung cả app),
+ * nên mở lại một sản phẩm vừa xem không gọi mạng.
+ */
+public class ProductDetailViewModel extends ViewModel {
+
+    private final ProductRepository repository = ProductRepository.getInstance();
+    private final MutableLiveData<Product> product = new MutableLiveData<>();
+    private final MutableLiveData<Integer> quantity = new MutableLiveData<>(1);
+    private final MutableLiveData<Integer> loadError = new MutableLiveData<>();
+    private String productId;
+
+    /**
+     * Gọi mỗi lần onCreate; chỉ lần đầu (hoặc khi đổi sản phẩm) mới thực sự tải.
+     *
+     * @param fallback dữ liệu tạm từ Intent khi sản phẩm chưa có trong cache
+     */
+    public void start(@NonNull String productId, @Nullable Product fallback) {
+        if (productId.equals(this.productId)) return;
+        this.productId = productId;
+        Product cached = repository.peekProduct(productId);
+        if (cached != null) {
+            product.setValue(cached);
+        } else if (fallback != null) {
+            product.setValue(fallback);
+        }
+        repository.getProduct(productId, false, new ResultCallback<Product>() {
+            @Override
+            public void onSuccess(Product data) {
+                if (data != null && productId.equals(ProductDetailViewModel.this.productId)) {
+                    product.setValue(data);
+                }
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                loadError.setValue(code);
+            }
+        });
+    }
+
+    public LiveData<Product> getProduct() {
+        return product;
+    }
+
+    public LiveData<Integer> getQuantity() {
+        return quantity;
+    }
+
+    /** Mã HTTP khi tải chi tiết thất bại, 0 nếu lỗi kết nối. */
+    public LiveData<Integer> getLoadError() {
+        return loadError;
+    }
+
+    public void setQuantity(int value) {
+        quantity.setValue(Math.max(1, value));
+    }
+
+    public int currentQuantity() {
+        Integer value = quantity.getValue();
+        return value != null ? value : 1;
+    }
+}
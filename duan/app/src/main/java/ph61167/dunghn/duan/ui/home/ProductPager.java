@@ -0,0 +1,209 @@
+package ph61167.dunghn.duan.ui.home;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import ph61167.dunghn.duan.data.model.Product;
+
+/**
+ * Nạp sản phẩm theo trang khi người dùng cuộn lưới ở HomeActivity.
+ * Trang kế tiếp được nạp trước khi tới cuối viewport, và chỉ giữ tối đa
+ * {@code maxPages} trang trong bộ nhớ; trang ở đầu bên kia bị bỏ và nạp lại khi cuộn ngược.
+ * Mỗi thay đổi cửa sổ chỉ gửi một danh sách mới, ProductAdapter tự diff để tính các dòng thêm/bớt.
+ */
+public class ProductPager {
+
+    public interface PageSource {
+        void load(int page, int pageSize, @NonNull PageCallback callback);
+    }
+
+    public interface PageCallback {
+        void onPage(@NonNull List<Product> items, boolean hasMore);
+
+        void onError(String message);
+    }
+
+    public interface Listener {
+        void onFirstPage(@NonNull List<Product> items);
+
+        void onError(String message);
+    }
+
+    private static final class Page {
+        final int number;
+        final List<Product> items;
+
+        Page(int number, List<Product> items) {
+            this.number = number;
+            this.items = items;
+        }
+    }
+
+    private final ProductAdapter adapter;
+    private final PageSource source;
+    private final int pageSize;
+    private final int maxPages;
+    private final int prefetchDistance;
+    private final Deque<Page> pages = new ArrayDeque<>();
+    private Listener listener;
+    private boolean lastPageReached;
+    private boolean loading;
+    private boolean paused;
+    // Tăng mỗi lần reset để bỏ qua kết quả của lần nạp cũ
+    private int generation;
+
+    public ProductPager(ProductAdapter adapter, PageSource source, int pageSize, int maxPages) {
+        this.adapter = adapter;
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.prefetchDistance = Math.max(pageSize / 2, 1);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void attach(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (!(rv.getLayoutManager() instanceof GridLayoutManager)) return;
+                GridLayoutManager lm = (GridLayoutManager) rv.getLayoutManager();
+                if (dy > 0 && lm.findLastVisibleItemPosition() >= adapter.getItemCount() - prefetchDistance) {
+                    loadNext();
+                } else if (dy < 0 && lm.findFirstVisibleItemPosition() <= prefetchDistance) {
+                    loadPrevious();
+                }
+            }
+        });
+    }
+
+    /** Tạm ngừng nạp theo cuộn, ví dụ khi lưới đang hiển thị kết quả tìm kiếm. */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /** Bỏ toàn bộ cửa sổ hiện tại và nạp lại từ trang 1. */
+    public void refresh() {
+        generation++;
+        pages.clear();
+        lastPageReached = false;
+        loading = false;
+        adapter.submitList(null);
+        loadNext();
+    }
+
+    /** Nạp lại đúng các trang đang giữ, dùng sau khi dữ liệu nguồn thay đổi. */
+    public void reloadWindow() {
+        if (pages.isEmpty()) {
+            refresh();
+            return;
+        }
+        int first = pages.peekFirst().number;
+        int count = pages.size();
+        generation++;
+        int token = generation;
+        loading = true;
+        List<Page> reloaded = new ArrayList<>();
+        reloadFrom(first, first + count - 1, reloaded, token);
+    }
+
+    private void reloadFrom(int page, int lastPage, List<Page> acc, int token) {
+        source.load(page, pageSize, new PageCallback() {
+            @Override
+            public void onPage(@NonNull List<Product> items, boolean hasMore) {
+                if (token != generation) return;
+                if (!items.isEmpty()) acc.add(new Page(page, items));
+                if (page < lastPage && hasMore) {
+                    reloadFrom(page + 1, lastPage, acc, token);
+                    return;
+                }
+                loading = false;
+                pages.clear();
+                pages.addAll(acc);
+                lastPageReached = !hasMore;
+                adapter.submitList(snapshot());
+            }
+
+            @Override
+            public void onError(String message) {
+                if (token != generation) return;
+                loading = false;
+                if (listener != null) listener.onError(message);
+            }
+        });
+    }
+
+    public void loadNext() {
+        if (paused || loading || lastPageReached) return;
+        int next = pages.isEmpty() ? 1 : pages.peekLast().number + 1;
+        int token = generation;
+        loading = true;
+        source.load(next, pageSize, new PageCallback() {
+            @Override
+            public void onPage(@NonNull List<Product> items, boolean hasMore) {
+                if (token != generation) return;
+                loading = false;
+                lastPageReached = !hasMore || items.isEmpty();
+                if (items.isEmpty()) return;
+                pages.addLast(new Page(next, items));
+                if (pages.size() > maxPages) {
+                    pages.removeFirst();
+                }
+                adapter.submitList(snapshot());
+                if (next == 1 && listener != null) listener.onFirstPage(items);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (token != generation) return;
+                loading = false;
+                if (listener != null) listener.onError(message);
+            }
+        });
+    }
+
+    private void loadPrevious() {
+        if (paused || loading || pages.isEmpty()) return;
+        int previous = pages.peekFirst().number - 1;
+        if (previous < 1) return;
+        int token = generation;
+        loading = true;
+        source.load(previous, pageSize, new PageCallback() {
+            @Override
+            public void onPage(@NonNull List<Product> items, boolean hasMore) {
+                if (token != generation) return;
+                loading = false;
+                if (items.isEmpty()) return;
+                pages.addFirst(new Page(previous, items));
+                if (pages.size() > maxPages) {
+                    pages.removeLast();
+                    lastPageReached = false;
+                }
+                adapter.submitList(snapshot());
+            }
+
+            @Override
+            public void onError(String message) {
+                if (token != generation) return;
+                loading = false;
+            }
+        });
+    }
+
+    /** Các sản phẩm đang nằm trong cửa sổ bộ nhớ. */
+    public List<Product> snapshot() {
+        List<Product> all = new ArrayList<>(pages.size() * pageSize);
+        for (Page page : pages) {
+            all.addAll(page.items);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,165 @@
+package ph61167.dunghn.duan.ui.home;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ph61167.dunghn.duan.data.model.Product;
+import ph61167.dunghn.duan.data.remote.ApiClient;
+import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.ProductsResponse;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Tìm kiếm khi đang gõ ở HomeActivity.
+ * Mỗi lần đổi từ khóa sẽ đợi {@code debounceMs} rồi trả kết quả từ catalog local trước;
+ * nếu catalog local chưa đầy đủ thì gọi thêm GET /products với {@code search}/{@code category}
+ * và gộp kết quả. Lệnh gọi cũ bị cancel khi có từ khóa mới, kết quả trễ bị bỏ qua.
+ * Chỉ dùng trên main thread.
+ */
+public class ProductSearchController {
+
+    public interface LocalSource {
+        /** Trả kết quả qua {@code callback} trên main thread; có thể đọc database ở thread khác trước đó. */
+        void search(@NonNull String query, @Nullable String categoryId, @NonNull LocalResults callback);
+
+        /** true nếu catalog local đã có toàn bộ sản phẩm, khi đó không cần hỏi server. */
+        boolean isComplete();
+    }
+
+    public interface LocalResults {
+        void onResults(@NonNull List<Product> items);
+    }
+
+    public interface Listener {
+        void onResults(@NonNull String query, @Nullable String categoryId, @NonNull List<Product> items, boolean fromServer);
+
+        void onRemoteItems(@NonNull List<Product> items);
+    }
+
+    private static final int REMOTE_LIMIT = 50;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final LocalSource localSource;
+    private final Listener listener;
+    private final long debounceMs;
+    private Runnable pending;
+    private Call<BaseResponse<ProductsResponse>> inFlight;
+    // Tăng mỗi lần có truy vấn mới, dùng để bỏ kết quả đến muộn
+    private int sequence;
+
+    public ProductSearchController(@NonNull LocalSource localSource, @NonNull Listener listener, long debounceMs) {
+        this.localSource = localSource;
+        this.listener = listener;
+        this.debounceMs = debounceMs;
+    }
+
+    /** Gọi mỗi khi ô tìm kiếm đổi nội dung. */
+    public void onQueryChanged(@NonNull String query, @Nullable String categoryId) {
+        cancelPending();
+        pending = () -> {
+            pending = null;
+            run(query, categoryId);
+        };
+        handler.postDelayed(pending, debounceMs);
+    }
+
+    /** Chạy ngay, ví dụ khi bấm nút tìm trên bàn phím hoặc chọn danh mục. */
+    public void submit(@NonNull String query, @Nullable String categoryId) {
+        cancelPending();
+        run(query, categoryId);
+    }
+
+    public void cancel() {
+        cancelPending();
+        cancelInFlight();
+        sequence++;
+    }
+
+    private void run(String query, String categoryId) {
+        int token = ++sequence;
+        cancelInFlight();
+
+        localSource.search(query, categoryId, local -> {
+            // Đã có truy vấn mới trong lúc đọc catalog local
+            if (token != sequence) return;
+            listener.onResults(query, categoryId, local, false);
+
+            boolean hasFilter = !query.isEmpty() || (categoryId != null && !categoryId.isEmpty());
+            if (!hasFilter || localSource.isComplete()) return;
+            searchRemote(token, query, categoryId, local);
+        });
+    }
+
+    private void searchRemote(int token, String query, String categoryId, List<Product> local) {
+        Call<BaseResponse<ProductsResponse>> call = ApiClient.getService().searchProducts(
+                query.isEmpty() ? null : query,
+                categoryId,
+                null,
+                null,
+                null,
+                1,
+                REMOTE_LIMIT
+        );
+        inFlight = call;
+        call.enqueue(new Callback<BaseResponse<ProductsResponse>>() {
+            @Override
+            public void onResponse(
+                    Call<BaseResponse<ProductsResponse>> call,
+                    Response<BaseResponse<ProductsResponse>> response
+            ) {
+                if (token != sequence || call.isCanceled()) return;
+                inFlight = null;
+                BaseResponse<ProductsResponse> body = response.body();
+                if (!response.isSuccessful() || body == null || !body.isSuccess()
+                        || body.getData() == null || body.getData().getProducts() == null) {
+                    return;
+                }
+                List<Product> remote = body.getData().getProducts();
+                listener.onRemoteItems(remote);
+                listener.onResults(query, categoryId, merge(local, remote), true);
+            }
+
+            @Override
+            public void onFailure(Call<BaseResponse<ProductsResponse>> call, Throwable t) {
+                // Đã hiển thị kết quả local, lỗi mạng hoặc bị cancel thì bỏ qua
+                if (token == sequence) inFlight = null;
+            }
+        });
+    }
+
+    private static List<Product> merge(List<Product> local, List<Product> remote) {
+        List<Product> merged = new ArrayList<>(local.size() + remote.size());
+        Set<String> seen = new HashSet<>();
+        for (Product product : local) {
+            if (seen.add(product.getId())) merged.add(product);
+        }
+        for (Product product : remote) {
+            if (seen.add(product.getId())) merged.add(product);
+        }
+        return merged;
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            handler.removeCallbacks(pending);
+            pending = null;
+        }
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+}
@@ -63,14 +63,10 @@ public class OrderItemsAdapter extends RecyclerView.Adapter<OrderItemsAdapter.It
                     .error(ph61167.dunghn.duan.R.drawable.img)
                     .into(binding.ivImage);
             binding.getRoot().setOnClickListener(v -> {
-                String name = item.getProduct() != null ? item.getProduct().getName() : "";
+                if (item.getProduct() == null || item.getProduct().getId() == null) return;
                 android.content.Context ctx = v.getContext();
-                android.content.Intent i = new android.content.Intent(ctx, ph61167.dunghn.duan.ui.product.ProductDetailActivity.class);
-                i.putExtra("product_name", name);
-                i.putExtra("product_price", item.getPrice());
-                i.putExtra("product_description", "");
-                i.putExtra("product_image", image);
-                ctx.startActivity(i);
+                ctx.startActivity(ph61167.dunghn.duan.ui.home.ProductDetailActivity.newIntent(
+                        ctx, item.getProduct().getId(), item.getProduct().getName(), item.getPrice(), image));
             });
         }
     }
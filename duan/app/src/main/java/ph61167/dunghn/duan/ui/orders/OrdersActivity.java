@@ -5,27 +5,35 @@ import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ph61167.dunghn.duan.data.local.SessionManager;
 import ph61167.dunghn.duan.data.model.Order;
-import ph61167.dunghn.duan.data.remote.ApiClient;
-import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.remote.response.OrdersListData;
+import ph61167.dunghn.duan.data.repository.OrderRepository;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
 import ph61167.dunghn.duan.databinding.ActivityOrdersBinding;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class OrdersActivity extends AppCompatActivity {
 
+    // Còn cách cuối danh sách chừng này đơn thì tải trang tiếp
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private ActivityOrdersBinding binding;
     private SessionManager sessionManager;
     private OrdersAdapter ordersAdapter;
     private String currentStatusFilter = "all";
+    // Mỗi tab giữ các trang đã tải, đổi tab chỉ hiển thị lại chứ không tải lại từ đầu
+    private final Map<String, TabState> tabs = new HashMap<>();
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -33,7 +41,11 @@ public class OrdersActivity extends AppCompatActivity {
         binding = ActivityOrdersBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         if (!sessionManager.isLoggedIn()) {
             finish();
@@ -43,13 +55,24 @@ public class OrdersActivity extends AppCompatActivity {
         setupRecyclerView();
         setupClickListeners();
         setupTabLayout();
-        fetchOrders();
+        // Lần tải đầu diễn ra trong onResume
     }
 
     private void setupRecyclerView() {
         ordersAdapter = new OrdersAdapter();
-        binding.rvOrders.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        binding.rvOrders.setLayoutManager(layoutManager);
         binding.rvOrders.setAdapter(ordersAdapter);
+        binding.rvOrders.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= ordersAdapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage(tabFor(currentStatusFilter));
+                }
+            }
+        });
     }
 
     private void setupClickListeners() {
@@ -95,70 +118,102 @@ public class OrdersActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Hiển thị ngay các trang tab hiện tại đã có, rồi kiểm tra lại trang đầu qua repository:
+     * còn hạn thì không gọi mạng; hết hạn (hoặc vừa đặt đơn mới) thì tải lại tab từ trang 1.
+     */
     private void fetchOrders() {
-        showLoading(true);
         String userId = sessionManager.getUserId();
         if (userId == null) {
-            showLoading(false);
             Toast.makeText(this, "Vui lòng đăng nhập lại", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
 
-        ApiClient.getService()
-                .getOrdersByUser(userId)
-                .enqueue(new Callback<BaseResponse<List<Order>>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<List<Order>>> call,
-                            Response<BaseResponse<List<Order>>> response
-                    ) {
-                        showLoading(false);
-                        if (!response.isSuccessful() || response.body() == null) {
-                            showEmptyState(true);
-                            Toast.makeText(OrdersActivity.this,
-                                    "Không thể tải đơn hàng",
-                                    Toast.LENGTH_SHORT).show();
-                            return;
-                        }
-
-                        BaseResponse<List<Order>> body = response.body();
-                        if (body.isSuccess() && body.getData() != null) {
-                            List<Order> orders = body.getData();
-
-                            if (!"all".equals(currentStatusFilter)) {
-                                java.util.List<Order> filtered = new java.util.ArrayList<>();
-                                for (Order order : orders) {
-                                    if (currentStatusFilter.equals(order.getStatus())) {
-                                        filtered.add(order);
-                                    }
-                                }
-                                orders = filtered;
-                            }
-
-                            if (orders != null && !orders.isEmpty()) {
-                                ordersAdapter.submitList(orders);
-                                showEmptyState(false);
-                            } else {
-                                ordersAdapter.submitList(java.util.Collections.emptyList());
-                                showEmptyState(true);
-                            }
-                        } else {
-                            ordersAdapter.submitList(java.util.Collections.emptyList());
-                            showEmptyState(true);
-                        }
-                    }
+        TabState tab = tabFor(currentStatusFilter);
+        if (tab.loadedPages > 0) {
+            render(tab);
+        } else {
+            showLoading(true);
+        }
+        if (tab.loading) return;
+        loadPage(userId, tab, 1, null);
+    }
+
+    private void loadNextPage(TabState tab) {
+        String userId = sessionManager.getUserId();
+        if (userId == null || tab.loading || !tab.hasMore || tab.loadedPages == 0) return;
+        // Trang sau đi theo cursor nên cuộn sâu bao nhiêu server cũng không phải skip
+        loadPage(userId, tab, tab.loadedPages + 1, tab.nextCursor);
+    }
 
-                    @Override
-                    public void onFailure(Call<BaseResponse<List<Order>>> call, Throwable t) {
-                        showLoading(false);
-                        showEmptyState(true);
-                        Log.e("OrdersActivity", "Error fetching orders: " + t.getMessage(), t);
-                        Toast.makeText(OrdersActivity.this,
-                                "Lỗi kết nối: " + t.getMessage(),
-                                Toast.LENGTH_SHORT).show();
+    private void loadPage(String userId, TabState tab, int page, String cursor) {
+        tab.loading = true;
+        String status = "all".equals(tab.status) ? null : tab.status;
+        boolean force = page > 1 && tab.freshSnapshot;
+        OrderRepository.getInstance().getOrderPage(userId, status, page, cursor, force, new ResultCallback<OrdersListData>() {
+            @Override
+            public void onSuccess(OrdersListData data) {
+                tab.loading = false;
+                List<Order> items = data != null && data.getItems() != null
+                        ? data.getItems()
+                        : java.util.Collections.<Order>emptyList();
+                if (page == 1) {
+                    // Trang đầu không đổi (cache hit) thì giữ nguyên các trang sau đã tải
+                    if (tab.firstPage == data && tab.loadedPages > 0) {
+                        if (isCurrent(tab)) render(tab);
+                        return;
                     }
-                });
+                    tab.orders.clear();
+                    tab.firstPage = data;
+                    tab.freshSnapshot = true;
+                } else if (page != tab.loadedPages + 1) {
+                    // Tab đã được tải lại từ đầu trong lúc chờ trang này
+                    return;
+                }
+                tab.orders.addAll(items);
+                tab.loadedPages = page;
+                tab.hasMore = data != null && data.hasMore();
+                tab.nextCursor = data != null ? data.getNextCursor() : null;
+                if (isCurrent(tab)) render(tab);
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                tab.loading = false;
+                if (!isCurrent(tab)) return;
+                showLoading(false);
+                if (tab.loadedPages == 0) showEmptyState(true);
+                Log.e("OrdersActivity", "Error fetching orders: " + message);
+                Toast.makeText(OrdersActivity.this,
+                        code == 0 ? message : "Không thể tải đơn hàng",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void render(TabState tab) {
+        showLoading(false);
+        if (tab.orders.isEmpty()) {
+            ordersAdapter.submitList(java.util.Collections.emptyList());
+            showEmptyState(true);
+        } else {
+            ordersAdapter.submitList(new ArrayList<>(tab.orders));
+            showEmptyState(false);
+        }
+    }
+
+    private TabState tabFor(String status) {
+        TabState tab = tabs.get(status);
+        if (tab == null) {
+            tab = new TabState(status);
+            tabs.put(status, tab);
+        }
+        return tab;
+    }
+
+    private boolean isCurrent(TabState tab) {
+        return tab.status.equals(currentStatusFilter);
     }
 
     private void showLoading(boolean isLoading) {
@@ -180,4 +235,21 @@ public class OrdersActivity extends AppCompatActivity {
         super.onResume();
         fetchOrders();
     }
+
+    private static final class TabState {
+        final String status;
+        final List<Order> orders = new ArrayList<>();
+        // Response trang 1 đang hiển thị; cache trả lại cùng object nghĩa là chưa hết hạn
+        OrdersListData firstPage;
+        int loadedPages;
+        boolean hasMore;
+        String nextCursor;
+        boolean loading;
+        // Trang 1 vừa được thay bằng bản mới: các trang sau trong cache thuộc bản chụp cũ, phải tải lại
+        boolean freshSnapshot;
+
+        TabState(String status) {
+            this.status = status;
+        }
+    }
 }
@@ -96,30 +96,39 @@ public class OrdersAdapter extends ListAdapter<Order, OrdersAdapter.OrderViewHol
             }
 
             // Set first product image and name
+            // Danh sách dùng bản tóm tắt (firstProductName, itemsCount...); items chỉ có khi server trả đơn đầy đủ
+            String productName = order.getFirstProductName();
+            String imageUrl = order.getFirstProductImage();
+            int firstQuantity = order.getQuantity();
+            int totalItems = order.getItemsCount();
             if (order.getItems() != null && !order.getItems().isEmpty()) {
                 Order.OrderItem firstItem = order.getItems().get(0);
                 if (firstItem.getProduct() != null) {
-                    binding.tvProductName.setText(firstItem.getProduct().getName());
-                    
-                    String imageUrl = firstItem.getProduct().getImage();
-                    if (imageUrl != null && !imageUrl.isEmpty()) {
-                        Glide.with(binding.getRoot().getContext())
-                                .load(imageUrl)
-                                .placeholder(R.drawable.img)
-                                .error(R.drawable.img)
-                                .centerCrop()
-                                .transition(DrawableTransitionOptions.withCrossFade())
-                                .into(binding.ivProduct);
-                    }
-
-                    // Set item count
-                    int totalItems = order.getItems().size();
-                    if (totalItems > 1) {
-                        binding.tvItemCount.setText("x" + firstItem.getQuantity() + " và " + (totalItems - 1) + " sản phẩm khác");
-                    } else {
-                        binding.tvItemCount.setText("x" + firstItem.getQuantity());
-                    }
+                    productName = firstItem.getProduct().getName();
+                    imageUrl = firstItem.getProduct().getImage();
                 }
+                firstQuantity = firstItem.getQuantity();
+                totalItems = order.getItems().size();
+            }
+
+            if (productName != null) {
+                binding.tvProductName.setText(productName);
+            }
+            if (imageUrl != null && !imageUrl.isEmpty()) {
+                Glide.with(binding.getRoot().getContext())
+                        .load(imageUrl)
+                        .placeholder(R.drawable.img)
+                        .error(R.drawable.img)
+                        .centerCrop()
+                        .transition(DrawableTransitionOptions.withCrossFade())
+                        .into(binding.ivProduct);
+            }
+
+            // Set item count
+            if (totalItems > 1) {
+                binding.tvItemCount.setText("x" + firstQuantity + " và " + (totalItems - 1) + " sản phẩm khác");
+            } else if (totalItems == 1) {
+                binding.tvItemCount.setText("x" + firstQuantity);
             }
 
             // Set total amount
@@ -8,26 +8,21 @@ import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 import ph61167.dunghn.duan.data.model.User;
 import ph61167.dunghn.duan.databinding.ItemUserBinding;
 import ph61167.dunghn.duan.ui.users.detail.UserDetailActivity;
 
-public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
+public class UserAdapter extends ListAdapter<User, UserAdapter.UserViewHolder> {
 
-    private final List<User> users = new ArrayList<>();
-
-    public void submitList(List<User> data) {
-        users.clear();
-        if (data != null) {
-            users.addAll(data);
-        }
-        notifyDataSetChanged();
+    public UserAdapter() {
+        super(new UserDiffCallback());
     }
 
     @NonNull
@@ -43,12 +38,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        holder.bind(users.get(position));
-    }
-
-    @Override
-    public int getItemCount() {
-        return users.size();
+        holder.bind(getItem(position));
     }
 
     static class UserViewHolder extends RecyclerView.ViewHolder {
@@ -91,4 +81,19 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
             context.startActivity(intent);
         }
     }
+
+    static class UserDiffCallback extends DiffUtil.ItemCallback<User> {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getEmail(), newItem.getEmail())
+                    && Objects.equals(oldItem.getRole(), newItem.getRole())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+        }
+    }
 }
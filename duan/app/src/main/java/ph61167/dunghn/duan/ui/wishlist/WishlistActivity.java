@@ -1,6 +1,5 @@
 package ph61167.dunghn.duan.ui.wishlist;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Toast;
@@ -13,19 +12,20 @@ import java.util.List;
 
 import ph61167.dunghn.duan.data.local.SessionManager;
 import ph61167.dunghn.duan.data.model.Favorite;
-import ph61167.dunghn.duan.data.remote.ApiClient;
-import ph61167.dunghn.duan.data.remote.response.BaseResponse;
+import ph61167.dunghn.duan.data.repository.FavoriteRepository;
+import ph61167.dunghn.duan.data.repository.ResourceCache;
+import ph61167.dunghn.duan.data.repository.ResultCallback;
+import ph61167.dunghn.duan.data.sync.SyncEngine;
 import ph61167.dunghn.duan.databinding.ActivityWishlistBinding;
 import ph61167.dunghn.duan.ui.home.ProductDetailActivity;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class WishlistActivity extends AppCompatActivity {
 
     private ActivityWishlistBinding binding;
     private SessionManager sessionManager;
     private WishlistAdapter wishlistAdapter;
+    private final FavoriteRepository favoriteRepository = FavoriteRepository.getInstance();
+    private ResourceCache.Observer<List<Favorite>> favoritesObserver;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -33,7 +33,11 @@ public class WishlistActivity extends AppCompatActivity {
         binding = ActivityWishlistBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance();
+
+        if (sessionManager.relaunchWhenReady(this)) {
+            return;
+        }
 
         if (!sessionManager.isLoggedIn()) {
             finish();
@@ -42,7 +46,16 @@ public class WishlistActivity extends AppCompatActivity {
 
         setupRecyclerView();
         setupClickListeners();
-        fetchFavorites();
+        observeFavorites();
+        // Lần tải đầu diễn ra trong onResume
+    }
+
+    private void observeFavorites() {
+        String userId = sessionManager.getUserId();
+        if (userId == null) return;
+        // Xóa một mục (ở đây hoặc màn chi tiết) sửa thẳng danh sách trong cache rồi báo về đây
+        favoritesObserver = (key, favorites) -> showFavorites(favorites);
+        favoriteRepository.observeFavorites(userId, favoritesObserver);
     }
 
     private void setupRecyclerView() {
@@ -68,124 +81,67 @@ public class WishlistActivity extends AppCompatActivity {
             return;
         }
 
-        ApiClient.getService()
-                .getFavoritesByUser(userId)
-                .enqueue(new Callback<BaseResponse<List<Favorite>>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<List<Favorite>>> call,
-                            Response<BaseResponse<List<Favorite>>> response
-                    ) {
-                        showLoading(false);
-                        if (!response.isSuccessful() || response.body() == null) {
-                            showEmptyState(true);
-                            return;
-                        }
-
-                        BaseResponse<List<Favorite>> body = response.body();
-                        if (body.isSuccess() && body.getData() != null && !body.getData().isEmpty()) {
-                            wishlistAdapter.submitList(body.getData());
-                            showEmptyState(false);
-                        } else {
-                            wishlistAdapter.submitList(java.util.Collections.emptyList());
-                            showEmptyState(true);
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(Call<BaseResponse<List<Favorite>>> call, Throwable t) {
-                        showLoading(false);
-                        showEmptyState(true);
-                        Toast.makeText(WishlistActivity.this,
-                                "Lỗi khi tải danh sách yêu thích",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        favoriteRepository.getFavorites(userId, false, new ResultCallback<List<Favorite>>() {
+            @Override
+            public void onSuccess(List<Favorite> favorites) {
+                showLoading(false);
+                showFavorites(favorites);
+            }
+
+            @Override
+            public void onError(int code, String message) {
+                showLoading(false);
+                showEmptyState(true);
+                if (code == 0) {
+                    Toast.makeText(WishlistActivity.this,
+                            "Lỗi khi tải danh sách yêu thích",
+                            Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    private void showFavorites(List<Favorite> favorites) {
+        if (favorites != null && !favorites.isEmpty()) {
+            wishlistAdapter.submitList(favorites);
+            showEmptyState(false);
+        } else {
+            wishlistAdapter.submitList(java.util.Collections.emptyList());
+            showEmptyState(true);
+        }
     }
 
     private void onProductClick(Favorite favorite) {
         if (favorite.getProduct() == null) return;
         Favorite.ProductInfo product = favorite.getProduct();
         
-        Intent intent = new Intent(this, ProductDetailActivity.class);
-        intent.putExtra("product_id", product.getId());
-        intent.putExtra("product_name", product.getName());
-        intent.putExtra("product_price", product.getPrice());
-        intent.putExtra("product_image", product.getImage());
-        intent.putExtra("product_description", "");
-        intent.putExtra("product_stock", 0);
-        intent.putExtra("product_rating", 4.5);
-        intent.putExtra("product_sold", 0);
-        startActivity(intent);
+        if (product.getId() == null) return;
+        // Tồn kho, đánh giá... do màn chi tiết tự lấy theo id
+        startActivity(ProductDetailActivity.newIntent(
+                this, product.getId(), product.getName(), product.getPrice(), product.getImage()));
     }
 
     private void onRemoveClick(Favorite favorite) {
         String userId = sessionManager.getUserId();
-        if (userId == null || favorite.getProduct() == null) return;
-
-        ApiClient.getService()
-                .removeFavorite(userId, favorite.getProduct().getId())
-                .enqueue(new Callback<BaseResponse<Favorite>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<Favorite>> call,
-                            Response<BaseResponse<Favorite>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            BaseResponse<Favorite> body = response.body();
-                            if (body.isSuccess()) {
-                                Toast.makeText(WishlistActivity.this,
-                                        "Đã xóa khỏi yêu thích",
-                                        Toast.LENGTH_SHORT).show();
-                                fetchFavorites(); // Refresh list
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(Call<BaseResponse<Favorite>> call, Throwable t) {
-                        Toast.makeText(WishlistActivity.this,
-                                "Lỗi khi xóa",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        if (userId == null || favorite.getProduct() == null || favorite.getProduct().getId() == null) return;
+
+        // Bỏ ngay trên danh sách đang cache (báo qua favoritesObserver), server được đồng bộ nền
+        SyncEngine.getInstance().setFavorite(userId, favorite.getProduct().getId(), false);
+        Toast.makeText(this, "Đã xóa khỏi yêu thích", Toast.LENGTH_SHORT).show();
+        // Cache đã hết hạn thì chỉ bỏ mục này khỏi danh sách đang hiển thị
+        if (favoriteRepository.isCached(userId)) return;
+        List<Favorite> remaining = new java.util.ArrayList<>(wishlistAdapter.getCurrentList());
+        remaining.remove(favorite);
+        showFavorites(remaining);
     }
 
     private void onAddToCartClick(Favorite favorite) {
-        if (favorite.getProduct() == null) return;
+        if (favorite.getProduct() == null || favorite.getProduct().getId() == null) return;
         String userId = sessionManager.getUserId();
         if (userId == null) return;
 
-        Favorite.ProductInfo product = favorite.getProduct();
-        ApiClient.getService()
-                .addToCart(userId, new ph61167.dunghn.duan.data.remote.ApiService.AddToCartRequest(
-                        product.getId(), 1))
-                .enqueue(new Callback<BaseResponse<ph61167.dunghn.duan.data.remote.response.CartResponse>>() {
-                    @Override
-                    public void onResponse(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.remote.response.CartResponse>> call,
-                            Response<BaseResponse<ph61167.dunghn.duan.data.remote.response.CartResponse>> response
-                    ) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            BaseResponse<ph61167.dunghn.duan.data.remote.response.CartResponse> body = response.body();
-                            if (body.isSuccess()) {
-                                Toast.makeText(WishlistActivity.this,
-                                        "Đã thêm vào giỏ hàng",
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(
-                            Call<BaseResponse<ph61167.dunghn.duan.data.remote.response.CartResponse>> call,
-                            Throwable t
-                    ) {
-                        Toast.makeText(WishlistActivity.this,
-                                "Lỗi khi thêm vào giỏ hàng",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        SyncEngine.getInstance().addToCart(userId, favorite.getProduct().getId(), 1);
+        Toast.makeText(this, "Đã thêm vào giỏ hàng", Toast.LENGTH_SHORT).show();
     }
 
     private void showLoading(boolean isLoading) {
@@ -206,7 +162,17 @@ public class WishlistActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        // Chỉ gọi mạng khi danh sách trong cache đã hết hạn hoặc bị invalidate
         fetchFavorites();
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        String userId = sessionManager.getUserId();
+        if (userId != null && favoritesObserver != null) {
+            favoriteRepository.removeFavoritesObserver(userId, favoritesObserver);
+        }
+    }
 }
 
@@ -18,6 +18,7 @@ import java.util.Locale;
 
 import ph61167.dunghn.duan.R;
 import ph61167.dunghn.duan.data.model.Favorite;
+import ph61167.dunghn.duan.data.remote.ImageUrls;
 import ph61167.dunghn.duan.databinding.ItemWishlistBinding;
 
 public class WishlistAdapter extends ListAdapter<Favorite, WishlistAdapter.WishlistViewHolder> {
@@ -76,8 +77,10 @@ public class WishlistAdapter extends ListAdapter<Favorite, WishlistAdapter.Wishl
             // Load product image
             String imageUrl = product.getImage();
             if (imageUrl != null && !imageUrl.isEmpty()) {
+                // Lưới 2 cột: ô ảnh rộng khoảng nửa màn hình
+                int cellWidth = binding.getRoot().getResources().getDisplayMetrics().widthPixels / 2;
                 Glide.with(binding.getRoot().getContext())
-                        .load(imageUrl)
+                        .load(ImageUrls.forWidth(imageUrl, cellWidth))
                         .placeholder(R.drawable.img)
                         .error(R.drawable.img)
                         .centerCrop()
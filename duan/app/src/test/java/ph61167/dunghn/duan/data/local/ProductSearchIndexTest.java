@@ -0,0 +1,246 @@
+package ph61167.dunghn.duan.data.local;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import ph61167.dunghn.duan.data.model.Product;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * So sánh {@link ProductSearchIndex} với cách quét tuần tự trước đây (duyệt từng sản phẩm,
+ * so {@code contains} trên tên, mô tả và id danh mục), thêm phần bỏ dấu ở cả hai phía.
+ * {@link #benchmark_indexVsLinearScan()} chỉ để đo tay, mặc định bị bỏ qua.
+ */
+public class ProductSearchIndexTest {
+
+    private static final String[] WORDS = {
+            "Điện thoại", "Máy tính", "Bàn phím", "Chuột", "Tai nghe", "Sạc nhanh", "Ốp lưng",
+            "Loa", "Đồng hồ", "Màn hình", "Cáp", "Quạt", "Nồi cơm", "Bình đun", "Áo thun", "Giày"
+    };
+    private static final String[] BRANDS = {
+            "Samsung", "Apple", "Xiaomi", "Sony", "Logitech", "Anker", "Đông Á", "Sunhouse"
+    };
+    private static final String[] DESCRIPTIONS = {
+            "Chính hãng, bảo hành 12 tháng", "Hàng trưng bày", "Chống nước IP68", "Pin trâu",
+            "Không dây Bluetooth", "Giao nhanh trong ngày"
+    };
+    private static final String[] QUERIES = {
+            "", "d", "đi", "dien", "ĐIỆN THOẠI", "dien thoai", "thoại", "may tinh", "ban phim",
+            "chuot logitech", "tai", "sac", "op lung", "dong ho", "dong a", "  man   hinh  ",
+            "samsung", "APPLE", "xyz", "qu", "noi com", "binh dun", "ao", "giày 4",
+            "bao hanh", "chống nước", "bluetooth", "pin", "thang hang", "4 chinh"
+    };
+
+    @Test
+    public void search_matchesDiacriticsInBothDirections() {
+        List<Product> catalog = Arrays.asList(
+                product("1", "Điện thoại Samsung", "c1", "Điện thoại"),
+                product("2", "Dien thoai cu", "c1", "Điện thoại"),
+                product("3", "Ốp lưng điện thoại", "c2", "Phụ kiện"),
+                product("4", "Máy tính bảng", "c3", "Máy tính")
+        );
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+
+        assertEquals(Arrays.asList("1", "2", "3"), index.search("dien thoai", null));
+        assertEquals(Arrays.asList("1", "2", "3"), index.search("ĐIỆN THOẠI", null));
+        assertEquals(Arrays.asList("3"), index.search("op", null));
+        assertEquals(Arrays.asList("4"), index.search("máy  tính", null));
+        assertEquals(Collections.emptyList(), index.search("tivi", null));
+    }
+
+    @Test
+    public void search_matchesDescriptionButNotAcrossNameAndDescription() {
+        List<Product> catalog = Arrays.asList(
+                product("1", "Tai nghe Sony", "Chống ồn chủ động", "c1", "Âm thanh"),
+                product("2", "Loa Anker", null, "c1", "Âm thanh"),
+                product("3", "Chuột", "Không dây", "c2", "Phụ kiện")
+        );
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+
+        assertEquals(Arrays.asList("1"), index.search("chong on", null));
+        assertEquals(Arrays.asList("3"), index.search("KHÔNG DÂY", "c2"));
+        // Tên "Chuột" nối với mô tả "Không dây" không được tạo ra chuỗi "chuot khong"
+        assertEquals(Collections.emptyList(), index.search("chuot khong", null));
+        assertEquals(Collections.emptyList(), index.search("sonychong", null));
+    }
+
+    @Test
+    public void search_filtersByCategoryAndKeepsCatalogOrder() {
+        List<Product> catalog = Arrays.asList(
+                product("1", "Điện thoại Samsung", "c1", "Điện thoại"),
+                product("2", "Ốp lưng Samsung", "c2", "Phụ kiện"),
+                product("3", "Điện thoại Xiaomi", "c1", "Điện thoại"),
+                product("4", "Sạc Samsung", null, null)
+        );
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+
+        assertEquals(Arrays.asList("1", "3"), index.search("", "c1"));
+        assertEquals(Arrays.asList("1"), index.search("samsung", "c1"));
+        assertEquals(Arrays.asList("1", "2", "4"), index.search("samsung", null));
+        assertEquals(Arrays.asList("1", "2", "4"), index.search("samsung", ""));
+        assertEquals(Collections.emptyList(), index.search("samsung", "khong-co"));
+        assertEquals(2, index.getCategories().size());
+        assertEquals("c1", index.getCategories().get(0).getId());
+    }
+
+    @Test
+    public void search_sameResultsAsLinearScan() {
+        List<Product> catalog = catalog(3000, new Random(42));
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+        List<String> categoryIds = Arrays.asList(null, "", "cat-0", "cat-3", "cat-7", "khong-co");
+
+        for (String query : QUERIES) {
+            for (String categoryId : categoryIds) {
+                assertEquals("query=\"" + query + "\" category=" + categoryId,
+                        linearScan(catalog, query, categoryId), index.search(query, categoryId));
+            }
+        }
+    }
+
+    @Test
+    public void builder_sameResultsAsBuildFromProducts() {
+        List<Product> catalog = catalog(500, new Random(7));
+        ProductSearchIndex.Builder builder = new ProductSearchIndex.Builder();
+        for (Product product : catalog) {
+            builder.add(product.getId(), product.getName(), product.getDescription(),
+                    product.getCategory() != null ? product.getCategory().getId() : null,
+                    product.getCategory() != null ? product.getCategory().getName() : null);
+        }
+        ProductSearchIndex streamed = builder.build();
+        ProductSearchIndex fromList = ProductSearchIndex.build(catalog);
+
+        for (String query : QUERIES) {
+            assertEquals(fromList.search(query, "cat-1"), streamed.search(query, "cat-1"));
+        }
+    }
+
+    /**
+     * In thời gian dựng và tìm của hai cách ra stdout, không assert thời gian.
+     * Muốn chạy thì bỏ {@code @Ignore} tạm thời rồi chạy riêng:
+     * {@code ./gradlew :app:testDebugUnitTest --tests "*ProductSearchIndexTest.benchmark*"}.
+     */
+    @Ignore("Benchmark chạy tay, không thuộc bộ test đúng/sai")
+    @Test
+    public void benchmark_indexVsLinearScan() {
+        List<Product> catalog = catalog(20000, new Random(1));
+        int rounds = 20;
+
+        long buildStart = System.nanoTime();
+        ProductSearchIndex index = ProductSearchIndex.build(catalog);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        // Chạy nóng trước để JIT biên dịch cả hai cách
+        runQueries(index, catalog, 3, true);
+        runQueries(index, catalog, 3, false);
+
+        long indexNanos = runQueries(index, catalog, rounds, true);
+        long scanNanos = runQueries(index, catalog, rounds, false);
+        int searches = rounds * QUERIES.length;
+
+        System.out.printf(Locale.ROOT,
+                "ProductSearchIndex: %d sản phẩm, dựng %.1f ms; %d lần tìm: index %.3f ms/lần, quét tuần tự %.3f ms/lần (x%.1f)%n",
+                catalog.size(), buildNanos / 1e6, searches,
+                indexNanos / 1e6 / searches, scanNanos / 1e6 / searches,
+                (double) scanNanos / Math.max(1, indexNanos));
+        assertEquals(catalog.size(), index.size());
+    }
+
+    private static long runQueries(ProductSearchIndex index, List<Product> catalog, int rounds, boolean useIndex) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String query : QUERIES) {
+                found += useIndex
+                        ? index.search(query, null).size()
+                        : linearScan(catalog, query, null).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(found >= 0);
+        return elapsed;
+    }
+
+    /** Cách lọc cũ của HomeActivity: duyệt toàn bộ, bỏ dấu từng tên và mô tả rồi so {@code contains}. */
+    private static List<String> linearScan(List<Product> catalog, String query, String categoryId) {
+        String needle = fold(query);
+        List<String> result = new ArrayList<>();
+        for (Product product : catalog) {
+            boolean matchesSearch = needle.isEmpty()
+                    || fold(product.getName()).contains(needle)
+                    || fold(product.getDescription()).contains(needle);
+            boolean matchesCategory = categoryId == null
+                    || categoryId.isEmpty()
+                    || (product.getCategory() != null && categoryId.equals(product.getCategory().getId()));
+            if (matchesSearch && matchesCategory) {
+                result.add(product.getId());
+            }
+        }
+        return result;
+    }
+
+    // Viết riêng, không dùng ProductSearchIndex.normalize, để phép so sánh có ý nghĩa
+    private static String fold(String value) {
+        if (value == null) return "";
+        String decomposed = Normalizer.normalize(value.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (c == 'đ') c = 'd';
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+                continue;
+            }
+            if (space) out.append(' ');
+            space = false;
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    private static List<Product> catalog(int size, Random random) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " "
+                    + BRANDS[random.nextInt(BRANDS.length)] + " " + random.nextInt(100);
+            // Một phần sản phẩm không có mô tả, như dữ liệu thật
+            int pick = random.nextInt(DESCRIPTIONS.length + 2);
+            String description = pick < DESCRIPTIONS.length ? DESCRIPTIONS[pick] : null;
+            int category = random.nextInt(10);
+            products.add(category == 9
+                    ? product("p" + i, name, description, null, null)
+                    : product("p" + i, name, description, "cat-" + category, "Danh mục " + category));
+        }
+        return products;
+    }
+
+    private static Product product(String id, String name, String categoryId, String categoryName) {
+        return product(id, name, null, categoryId, categoryName);
+    }
+
+    private static Product product(String id, String name, String description,
+                                   String categoryId, String categoryName) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        if (categoryId != null) {
+            Product.Category category = new Product.Category();
+            category.setId(categoryId);
+            category.setName(categoryName);
+            product.setCategory(category);
+        }
+        return product;
+    }
+}
@@ -0,0 +1,238 @@
+package ph61167.dunghn.duan.data.remote.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Locale;
+
+import ph61167.dunghn.duan.data.model.Favorite;
+import ph61167.dunghn.duan.data.model.Order;
+import ph61167.dunghn.duan.data.model.Product;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link ProductTypeAdapter}, {@link OrderTypeAdapter} và {@link FavoriteTypeAdapter} phải đọc ra
+ * đúng những gì Gson reflective đọc được, với field null, thiếu field, field lạ và các số boxed
+ * (rating, stock...). Hai object được so bằng cách ghi lại thành JSON có cả null rồi so cây JSON.
+ * {@link #benchmark_listPayload()} chỉ để đo tay, mặc định bị bỏ qua.
+ */
+public class ApiJsonTest {
+
+    private static final Gson REFLECTIVE = new Gson();
+    // Chỉ dùng để so sánh: ghi cả field null để phân biệt null với 0/""
+    private static final Gson DUMP = new GsonBuilder().serializeNulls().create();
+
+    private static final String PRODUCT_FULL = "{"
+            + "\"_id\":\"p1\",\"name\":\"Điện thoại\",\"description\":\"Mô tả\",\"price\":1990000.5,"
+            + "\"stock\":12,\"image\":\"/uploads/a.jpg\",\"category\":{\"_id\":\"c1\",\"name\":\"Điện tử\"},"
+            + "\"rating\":4.5,\"soldCount\":30,\"discount\":10,"
+            + "\"createdAt\":\"2024-01-01T00:00:00.000Z\",\"updatedAt\":\"2024-02-01T00:00:00.000Z\"}";
+
+    private static final String PRODUCT_NULLS = "{"
+            + "\"_id\":\"p2\",\"name\":null,\"description\":null,\"price\":null,\"stock\":null,"
+            + "\"image\":null,\"category\":null,\"rating\":null,\"soldCount\":null,\"discount\":null}";
+
+    private static final String PRODUCT_MISSING = "{\"_id\":\"p3\",\"price\":5000}";
+
+    private static final String PRODUCT_UNKNOWN = "{"
+            + "\"_id\":\"p4\",\"__v\":0,\"searchName\":\"dien thoai\",\"searchTokens\":[\"die\",\"ien\"],"
+            + "\"name\":\"Tai nghe\",\"meta\":{\"a\":[1,{\"b\":null}],\"c\":true},"
+            + "\"category\":{\"_id\":\"c2\",\"name\":\"Phụ kiện\",\"slug\":\"phu-kien\",\"parent\":null},"
+            + "\"rating\":0,\"stock\":0,\"extra\":null}";
+
+    private static final String PRODUCT_QUOTED_NUMBERS = "{"
+            + "\"_id\":\"p5\",\"price\":\"25000\",\"stock\":\"7\",\"rating\":\"3.5\",\"soldCount\":\"2\"}";
+
+    private static final String ORDER_FULL = "{"
+            + "\"_id\":\"o1\",\"user\":{\"_id\":\"u1\",\"name\":\"An\",\"email\":\"an@example.com\"},"
+            + "\"items\":[{\"product\":{\"_id\":\"p1\",\"name\":\"Điện thoại\",\"price\":100,\"image\":\"/a.jpg\"},"
+            + "\"quantity\":2,\"price\":100},{\"product\":{\"_id\":\"p2\"},\"quantity\":1,\"price\":50.5}],"
+            + "\"shippingAddress\":{\"fullName\":\"An\",\"phone\":\"0900\",\"address\":\"1 Lê Lợi\","
+            + "\"city\":\"HCM\",\"district\":\"Q1\",\"ward\":\"Bến Nghé\"},"
+            + "\"status\":\"pending\",\"totalAmount\":250.5,"
+            + "\"createdAt\":\"2024-01-01T00:00:00.000Z\",\"updatedAt\":\"2024-01-02T00:00:00.000Z\"}";
+
+    private static final String ORDER_LEGACY = "{"
+            + "\"_id\":\"o2\",\"code\":\"DH001\",\"firstProductName\":\"Loa\",\"firstProductImage\":null,"
+            + "\"quantity\":3,\"itemsCount\":2,\"status\":\"delivered\",\"totalAmount\":0}";
+
+    private static final String ORDER_NULLS_AND_UNKNOWN = "{"
+            + "\"_id\":\"o3\",\"__v\":2,\"user\":null,\"items\":null,\"shippingAddress\":null,"
+            + "\"status\":null,\"totalAmount\":null,\"quantity\":null,\"paymentMethod\":\"cod\","
+            + "\"history\":[{\"status\":\"pending\",\"at\":\"2024-01-01\"}]}";
+
+    private static final String ORDER_EMPTY_ITEMS = "{"
+            + "\"_id\":\"o4\",\"items\":[{\"product\":null,\"quantity\":1,\"price\":10,\"note\":\"x\"}],"
+            + "\"shippingAddress\":{\"address\":\"2 Hai Bà Trưng\",\"zip\":\"70000\"}}";
+
+    private static final String FAVORITE_FULL = "{"
+            + "\"_id\":\"f1\",\"user\":{\"_id\":\"u1\",\"name\":\"An\",\"email\":\"an@example.com\"},"
+            + "\"product\":{\"_id\":\"p1\",\"name\":\"Điện thoại\",\"price\":1990000.5,\"image\":\"/a.jpg\"},"
+            + "\"createdAt\":\"2024-01-01T00:00:00.000Z\"}";
+
+    private static final String FAVORITE_NULLS_AND_UNKNOWN = "{"
+            + "\"_id\":\"f2\",\"__v\":0,\"user\":null,\"createdAt\":null,"
+            + "\"product\":{\"_id\":\"p2\",\"name\":null,\"price\":null,\"image\":null,"
+            + "\"stock\":3,\"category\":{\"_id\":\"c1\"}},\"updatedAt\":\"2024-01-02\"}";
+
+    private static final String FAVORITE_MISSING = "{\"_id\":\"f3\",\"product\":{\"price\":\"25000\"}}";
+
+    @Test
+    public void product_matchesReflectiveGson() {
+        for (String json : new String[]{
+                PRODUCT_FULL, PRODUCT_NULLS, PRODUCT_MISSING, PRODUCT_UNKNOWN, PRODUCT_QUOTED_NUMBERS, "{}"
+        }) {
+            assertSameAsReflective(json, Product.class);
+        }
+    }
+
+    @Test
+    public void order_matchesReflectiveGson() {
+        for (String json : new String[]{
+                ORDER_FULL, ORDER_LEGACY, ORDER_NULLS_AND_UNKNOWN, ORDER_EMPTY_ITEMS, "{}"
+        }) {
+            assertSameAsReflective(json, Order.class);
+        }
+    }
+
+    @Test
+    public void favorite_matchesReflectiveGson() {
+        for (String json : new String[]{
+                FAVORITE_FULL, FAVORITE_NULLS_AND_UNKNOWN, FAVORITE_MISSING, "{}"
+        }) {
+            assertSameAsReflective(json, Favorite.class);
+        }
+    }
+
+    @Test
+    public void product_boxedFieldsKeepNullAndZeroApart() {
+        Product nulls = ApiJson.gson().fromJson(PRODUCT_NULLS, Product.class);
+        assertNull(nulls.getStock());
+        assertNull(nulls.getRating());
+        assertNull(nulls.getSoldCount());
+        assertNull(nulls.getDiscount());
+        assertEquals(0, nulls.getPrice(), 0);
+
+        Product zeros = ApiJson.gson().fromJson(PRODUCT_UNKNOWN, Product.class);
+        assertEquals(Integer.valueOf(0), zeros.getStock());
+        assertEquals(Double.valueOf(0), zeros.getRating());
+    }
+
+    @Test
+    public void roundTrip_writeThenReadGivesSameObject() {
+        Gson gson = ApiJson.gson();
+        for (String json : new String[]{PRODUCT_FULL, PRODUCT_NULLS, PRODUCT_UNKNOWN}) {
+            Product first = gson.fromJson(json, Product.class);
+            Product second = gson.fromJson(gson.toJson(first), Product.class);
+            assertEquals(DUMP.toJsonTree(first), DUMP.toJsonTree(second));
+        }
+        for (String json : new String[]{ORDER_FULL, ORDER_LEGACY, ORDER_EMPTY_ITEMS}) {
+            Order first = gson.fromJson(json, Order.class);
+            Order second = gson.fromJson(gson.toJson(first), Order.class);
+            assertEquals(DUMP.toJsonTree(first), DUMP.toJsonTree(second));
+        }
+        for (String json : new String[]{FAVORITE_FULL, FAVORITE_NULLS_AND_UNKNOWN, FAVORITE_MISSING}) {
+            Favorite first = gson.fromJson(json, Favorite.class);
+            Favorite second = gson.fromJson(gson.toJson(first), Favorite.class);
+            assertEquals(DUMP.toJsonTree(first), DUMP.toJsonTree(second));
+        }
+    }
+
+    @Test
+    public void idOnlyReferences_areReadAsObjectsWithId() {
+        // Server chưa populate thì trả id dạng chuỗi; Gson reflective sẽ ném lỗi ở đây
+        Product product = ApiJson.gson().fromJson("{\"_id\":\"p1\",\"category\":\"c9\"}", Product.class);
+        assertNotNull(product.getCategory());
+        assertEquals("c9", product.getCategory().getId());
+        assertNull(product.getCategory().getName());
+
+        Order order = ApiJson.gson().fromJson(
+                "{\"_id\":\"o1\",\"user\":\"u1\",\"items\":[{\"product\":\"p1\",\"quantity\":2}],"
+                        + "\"shippingAddress\":\"12 Nguyễn Huệ\"}",
+                Order.class);
+        assertEquals("u1", order.getUser().getId());
+        assertEquals("p1", order.getItems().get(0).getProduct().getId());
+        assertEquals(2, order.getItems().get(0).getQuantity());
+        assertEquals("12 Nguyễn Huệ", order.getShippingAddress().getAddress());
+
+        Favorite favorite = ApiJson.gson().fromJson(
+                "{\"_id\":\"f1\",\"user\":\"u1\",\"product\":\"p1\"}", Favorite.class);
+        assertEquals("u1", favorite.getUser().getId());
+        assertEquals("p1", favorite.getProduct().getId());
+        assertNull(favorite.getProduct().getName());
+    }
+
+    @Test
+    public void nullDocument_isNull() {
+        assertNull(ApiJson.gson().fromJson("null", Product.class));
+        assertNull(ApiJson.gson().fromJson("null", Order.class));
+        assertNull(ApiJson.gson().fromJson("null", Favorite.class));
+    }
+
+    /**
+     * Đọc danh sách 10k sản phẩm và 10k mục yêu thích bằng adapter viết tay và bằng Gson reflective,
+     * in thời gian ra stdout, không assert thời gian. Muốn chạy thì bỏ {@code @Ignore} tạm thời rồi
+     * chạy riêng: {@code ./gradlew :app:testDebugUnitTest --tests "*ApiJsonTest.benchmark*"}.
+     */
+    @Ignore("Benchmark chạy tay, không thuộc bộ test đúng/sai")
+    @Test
+    public void benchmark_listPayload() {
+        int size = 10_000;
+        benchmarkList("Product", listPayload(PRODUCT_FULL, size),
+                TypeToken.getParameterized(List.class, Product.class).getType(), size);
+        benchmarkList("Favorite", listPayload(FAVORITE_FULL, size),
+                TypeToken.getParameterized(List.class, Favorite.class).getType(), size);
+    }
+
+    private static void benchmarkList(String label, String json, Type type, int size) {
+        int rounds = 10;
+        // Chạy nóng trước để JIT biên dịch cả hai cách
+        for (int i = 0; i < 3; i++) {
+            REFLECTIVE.fromJson(json, type);
+            ApiJson.gson().fromJson(json, type);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            REFLECTIVE.fromJson(json, type);
+        }
+        long reflectiveNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<?> parsed = null;
+        for (int i = 0; i < rounds; i++) {
+            parsed = ApiJson.gson().fromJson(json, type);
+        }
+        long streamingNanos = System.nanoTime() - start;
+
+        System.out.printf(Locale.ROOT,
+                "ApiJson %s: %d mục, %d KB; adapter %.1f ms/lần, reflective %.1f ms/lần (x%.1f)%n",
+                label, size, json.length() / 1024,
+                streamingNanos / 1e6 / rounds, reflectiveNanos / 1e6 / rounds,
+                (double) reflectiveNanos / Math.max(1, streamingNanos));
+        assertEquals(size, parsed.size());
+    }
+
+    private static String listPayload(String item, int size) {
+        StringBuilder json = new StringBuilder(item.length() * size + size + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) json.append(',');
+            json.append(item);
+        }
+        return json.append(']').toString();
+    }
+
+    private static <T> void assertSameAsReflective(String json, Class<T> type) {
+        JsonElement expected = DUMP.toJsonTree(REFLECTIVE.fromJson(json, type));
+        JsonElement actual = DUMP.toJsonTree(ApiJson.gson().fromJson(json, type));
+        assertEquals(json, expected, actual);
+    }
+}
@@ -0,0 +1,54 @@
+const { verifyToken } = require('../utils/token');
+
+const buildResponse = (success, message, data = null) => ({ success, message, data });
+
+const readBearerToken = (req) => {
+  const header = req.headers.authorization || '';
+  const [scheme, token] = header.split(' ');
+  return scheme === 'Bearer' && token ? token.trim() : null;
+};
+
+// Gắn req.userId từ access token đã ký; chỉ kiểm tra chữ ký và hạn, không truy vấn database.
+// Không có token thì cho qua, route tự quyết định có cần userId hay không.
+// Token sai hoặc hết hạn thì trả 401 để client làm mới token (Authenticator của OkHttp) rồi gửi lại.
+const authenticate = (req, res, next) => {
+  const token = readBearerToken(req);
+  if (!token) return next();
+  const payload = verifyToken(token, 'access');
+  if (!payload) {
+    return res.status(401).json(buildResponse(false, 'Token không hợp lệ hoặc đã hết hạn'));
+  }
+  req.userId = payload.sub;
+  next();
+};
+
+// Chế độ tương thích cho bản app chưa gửi token: LEGACY_USER_ID_AUTH=true trong .env thì route cần
+// đăng nhập tạm tin userId trong path/query/body. Mặc định tắt; chỉ bật trong thời gian chuyển tiếp.
+const legacyUserIdAllowed = () => process.env.LEGACY_USER_ID_AUTH === 'true';
+
+const legacyUserId = (req) =>
+  String(
+    (req.params && req.params.userId) ||
+    (req.query && req.query.userId) ||
+    (req.body && (req.body.userId || req.body.user)) ||
+    ''
+  ).trim();
+
+// Route của riêng một user: bắt buộc có access token hợp lệ, req.userId chỉ lấy từ token.
+// Route có :userId trong path thì phải trùng user của token.
+const requireUser = (req, res, next) =>
+  authenticate(req, res, () => {
+    if (!req.userId) {
+      const legacyId = legacyUserIdAllowed() ? legacyUserId(req) : '';
+      if (!legacyId) {
+        return res.status(401).json(buildResponse(false, 'Vui lòng đăng nhập'));
+      }
+      req.userId = legacyId;
+    }
+    if (req.params && req.params.userId && req.params.userId !== req.userId) {
+      return res.status(403).json(buildResponse(false, 'Không có quyền truy cập dữ liệu của người dùng khác'));
+    }
+    next();
+  });
+
+module.exports = { authenticate, requireUser };
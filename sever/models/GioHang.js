@@ -1,12 +1,33 @@
 const mongoose = require('mongoose');
 
+// Dòng hàng nhúng trong giỏ. Tên, ảnh, đơn giá chép từ Product lúc thêm (và làm mới mỗi lần
+// thêm lại / đồng bộ) để đọc giỏ không phải populate sang collection khác.
+const gioHangItemSchema = new mongoose.Schema(
+  {
+    idCTSP: { type: mongoose.Schema.Types.ObjectId, ref: 'Product', required: true },
+    ten: { type: String },
+    hinhAnh: { type: String },
+    soLuong: { type: Number, required: true, min: 1 },
+    donGia: { type: Number, required: true, min: 0 },
+    ngayTao: { type: Date },
+    ngayCapNhat: { type: Date }
+  }
+);
+
 const gioHangSchema = new mongoose.Schema(
   {
     idKH: { type: mongoose.Schema.Types.ObjectId, ref: 'User', required: true },
-    tongGia: { type: Number, min: 0, default: 0 }
+    items: { type: [gioHangItemSchema], default: [] },
+    // Luôn bằng tổng donGia * soLuong của items, được tính lại trong cùng lệnh cập nhật items
+    tongGia: { type: Number, min: 0, default: 0 },
+    // Tăng sau mỗi lần ghi; /items/batch dùng để ghi có điều kiện (đọc - tính - ghi không mất cập nhật)
+    rev: { type: Number, default: 0 },
+    // opId của các thao tác "add" đã áp dụng gần đây, để client gửi lại không bị cộng hai lần
+    appliedOps: { type: [String], default: [] }
   },
   { timestamps: { createdAt: 'ngayTao', updatedAt: 'ngayCapNhat' } }
 );
 
-module.exports = mongoose.model('GioHang', gioHangSchema);
+gioHangSchema.index({ idKH: 1 }, { unique: true });
 
+module.exports = mongoose.model('GioHang', gioHangSchema);
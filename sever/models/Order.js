@@ -48,5 +48,9 @@ const orderSchema = new mongoose.Schema({
   }
 });
 
+// Danh sách đơn của một người dùng, lọc theo trạng thái và sắp mới nhất trước; _id cho cursor
+orderSchema.index({ user: 1, status: 1, createdAt: -1, _id: -1 });
+orderSchema.index({ user: 1, createdAt: -1, _id: -1 });
+
 module.exports = mongoose.model('Order', orderSchema);
 
@@ -1,4 +1,5 @@
 const mongoose = require('mongoose');
+const { normalize, buildSearchTokens } = require('../utils/searchTokens');
 
 const productSchema = new mongoose.Schema({
   name: {
@@ -34,7 +35,48 @@ const productSchema = new mongoose.Schema({
   updatedAt: {
     type: Date,
     default: Date.now
+  },
+  // Dẫn xuất từ name cho tìm kiếm (xem utils/searchTokens), không trả về client
+  searchName: {
+    type: String,
+    select: false
+  },
+  searchTokens: {
+    type: [String],
+    select: false
+  }
+});
+
+// Index theo các tổ hợp lọc/sắp xếp của GET /products: bằng (category) trước, rồi khóa sắp xếp.
+// Khoảng giá và tồn kho được lọc trên các entry của index đã chọn.
+// _id đứng cuối vì phân trang keyset sắp theo (khóa, _id) (xem utils/cursor.js).
+productSchema.index({ category: 1, createdAt: -1, _id: -1 });
+productSchema.index({ category: 1, price: 1, _id: 1 });
+productSchema.index({ category: 1, name: 1, _id: 1 });
+productSchema.index({ createdAt: -1, _id: -1 });
+productSchema.index({ price: 1, _id: 1 });
+productSchema.index({ name: 1, _id: 1 });
+productSchema.index({ stock: 1, _id: 1 });
+productSchema.index({ updatedAt: 1 });
+productSchema.index({ searchTokens: 1 });
+
+productSchema.pre('save', function (next) {
+  if (this.isModified('name')) {
+    this.searchName = normalize(this.name);
+    this.searchTokens = buildSearchTokens(this.name);
+  }
+  next();
+});
+
+// findByIdAndUpdate / findOneAndUpdate (route PUT, seed) đổi tên thì tính lại token
+productSchema.pre(['findOneAndUpdate', 'updateOne', 'updateMany'], function (next) {
+  const update = this.getUpdate();
+  if (!update || Array.isArray(update)) return next();
+  const name = update.name !== undefined ? update.name : update.$set && update.$set.name;
+  if (name !== undefined) {
+    this.set({ searchName: normalize(name), searchTokens: buildSearchTokens(name) });
   }
+  next();
 });
 
 module.exports = mongoose.model('Product', productSchema);
@@ -19,6 +19,16 @@ const userSchema = new mongoose.Schema({
     enum: ['user', 'admin'],
     default: 'user'
   },
+  // Tăng mỗi lần thêm/bỏ yêu thích, client dùng để biết tập id yêu thích đã cũ chưa
+  favoritesVersion: {
+    type: Number,
+    default: 0
+  },
+  // Tăng khi đổi mật khẩu; refresh token mang version cũ bị từ chối
+  tokenVersion: {
+    type: Number,
+    default: 0
+  },
   createdAt: {
     type: Date,
     default: Date.now
@@ -29,5 +39,10 @@ const userSchema = new mongoose.Schema({
   }
 });
 
+// Các khóa sắp xếp của GET /users/list, kèm _id cho phân trang keyset
+userSchema.index({ createdAt: -1, _id: -1 });
+userSchema.index({ name: 1, _id: 1 });
+userSchema.index({ email: 1, _id: 1 });
+
 module.exports = mongoose.model('User', userSchema);
 
@@ -0,0 +1,83 @@
+const express = require('express');
+const http = require('http');
+const { authenticate } = require('../middleware/auth');
+
+const router = express.Router();
+
+// Token hết hạn thì trả 401 cho cả batch (client làm mới token rồi gửi lại cả batch)
+// thay vì để từng phần con nhận 401 riêng trong response 200
+router.use(authenticate);
+
+const buildResponse = (success, message, data = null) => ({ success, message, data });
+
+// Gộp nhiều GET trong một round trip cho client mạng chậm.
+// Body: { requests: [{ id, path }] } với path tính từ /api, ví dụ "/favorites/user/<id>".
+// Mỗi phần được gọi lại vào chính server qua loopback nên đi qua đúng route và middleware như
+// request thường; status và body (BaseResponse) của từng phần giữ nguyên để client xử lý lỗi riêng.
+const MAX_PARTS = 10;
+const PART_TIMEOUT_MS = 10000;
+// Chỉ chuyển tiếp các header ảnh hưởng tới kết quả
+const FORWARDED_HEADERS = ['authorization', 'accept-language'];
+
+const isAllowedPath = (path) =>
+  typeof path === 'string' &&
+  path.startsWith('/') &&
+  !path.startsWith('//') &&
+  !/^\/batch(\/|\?|$)/.test(path);
+
+const callInternal = (req, path) =>
+  new Promise((resolve) => {
+    const headers = { accept: 'application/json' };
+    FORWARDED_HEADERS.forEach((name) => {
+      if (req.headers[name]) headers[name] = req.headers[name];
+    });
+    // Gọi vào đúng địa chỉ/cổng đã nhận request, không phụ thuộc cấu hình HOST/PORT
+    const host = (req.socket.localAddress || '127.0.0.1').replace(/^::ffff:/, '');
+    const sub = http.request(
+      { host, port: req.socket.localPort, method: 'GET', path: `/api${path}`, headers, timeout: PART_TIMEOUT_MS },
+      (res) => {
+        const chunks = [];
+        res.on('data', (chunk) => chunks.push(chunk));
+        res.on('end', () => {
+          let body;
+          try {
+            body = JSON.parse(Buffer.concat(chunks).toString('utf8'));
+          } catch (error) {
+            body = buildResponse(false, 'Phản hồi không phải JSON');
+          }
+          resolve({ status: res.statusCode, body });
+        });
+      }
+    );
+    sub.on('timeout', () => sub.destroy(new Error('Hết thời gian chờ')));
+    sub.on('error', (error) => resolve({ status: 502, body: buildResponse(false, error.message) }));
+    sub.end();
+  });
+
+router.post('/', async (req, res) => {
+  try {
+    const { requests } = req.body || {};
+    if (!Array.isArray(requests) || requests.length === 0) {
+      return res.status(400).json(buildResponse(false, 'Danh sách requests không hợp lệ'));
+    }
+    if (requests.length > MAX_PARTS) {
+      return res.status(400).json(buildResponse(false, `Tối đa ${MAX_PARTS} request mỗi lần`));
+    }
+    const invalid = requests.find((part) => !part || !isAllowedPath(part.path));
+    if (invalid) {
+      return res.status(400).json(buildResponse(false, `Đường dẫn không hợp lệ: ${invalid && invalid.path}`));
+    }
+
+    const responses = await Promise.all(
+      requests.map(async (part, index) => {
+        const { status, body } = await callInternal(req, part.path);
+        return { id: part.id != null ? String(part.id) : String(index), status, body };
+      })
+    );
+    res.json(buildResponse(true, 'Kết quả batch', { responses }));
+  } catch (error) {
+    res.status(500).json(buildResponse(false, error.message));
+  }
+});
+
+module.exports = router;
@@ -1,58 +1,130 @@
 const express = require('express');
 const mongoose = require('mongoose');
 const GioHang = require('../models/GioHang');
-const GioHangChiTiet = require('../models/GioHangChiTiet');
 const Cart = require('../models/Cart');
 const Product = require('../models/Product');
+const { requireUser } = require('../middleware/auth');
 
 const router = express.Router();
 
+router.use(requireUser);
+
 const buildResponse = (success, message, data = null) => ({ success, message, data });
 
-const computeTotal = async (gioHangId) => {
-  const items = await GioHangChiTiet.find({ idGioHang: gioHangId });
-  return items.reduce((sum, it) => sum + (it.donGia || 0) * (it.soLuong || 0), 0);
-};
+// Giỏ luôn là của user trong token (xem requireUser); userId client gửi kèm không còn được tin
+const resolveUserId = (req) => String(req.userId || '');
+
+// Mọi thao tác trên giỏ là một lệnh findOneAndUpdate trên một document (items nhúng + tongGia),
+// nên không cần transaction và không có lúc tongGia lệch với items.
+const WRITE_OPTIONS = { new: true, lean: true, timestamps: false, setDefaultsOnInsert: false };
+
+const itemsOrEmpty = { $ifNull: ['$items', []] };
+
+// Stage cuối của mọi pipeline cập nhật: tính lại tổng, đóng dấu thời gian và tăng rev
+const finishStage = (now) => ({
+  $set: {
+    tongGia: {
+      $sum: { $map: { input: '$items', as: 'it', in: { $multiply: ['$$it.donGia', '$$it.soLuong'] } } }
+    },
+    ngayTao: { $ifNull: ['$ngayTao', now] },
+    ngayCapNhat: now,
+    rev: { $add: [{ $ifNull: ['$rev', 0] }, 1] },
+    appliedOps: { $ifNull: ['$appliedOps', []] }
+  }
+});
 
-const getCartDetail = async (userId) => {
-  let cart = await GioHang.findOne({ idKH: userId });
-  if (!cart) {
-    cart = await GioHang.create({ idKH: userId, tongGia: 0 });
+const newLine = (product, qty, now) => ({
+  _id: new mongoose.Types.ObjectId(),
+  idCTSP: product._id,
+  ten: product.name,
+  hinhAnh: product.image,
+  soLuong: qty,
+  donGia: product.price,
+  ngayTao: now,
+  ngayCapNhat: now
+});
+
+// Cộng qty vào dòng của sản phẩm, chưa có thì thêm dòng mới ($literal để tên kiểu "$5" không bị hiểu là field)
+const addToLine = (product, qty, now) => ({
+  $cond: [
+    { $in: [product._id, { $map: { input: itemsOrEmpty, as: 'it', in: '$$it.idCTSP' } }] },
+    {
+      $map: {
+        input: itemsOrEmpty,
+        as: 'it',
+        in: {
+          $cond: [
+            { $eq: ['$$it.idCTSP', product._id] },
+            {
+              $mergeObjects: ['$$it', {
+                soLuong: { $add: ['$$it.soLuong', qty] },
+                ten: { $literal: product.name },
+                hinhAnh: { $literal: product.image },
+                ngayCapNhat: now
+              }]
+            },
+            '$$it'
+          ]
+        }
+      }
+    },
+    { $concatArrays: [itemsOrEmpty, [{ $literal: newLine(product, qty, now) }]] }
+  ]
+});
+
+const setLineQty = (productId, qty, now) => ({
+  $map: {
+    input: itemsOrEmpty,
+    as: 'it',
+    in: {
+      $cond: [
+        { $eq: ['$$it.idCTSP', productId] },
+        { $mergeObjects: ['$$it', { soLuong: qty, ngayCapNhat: now }] },
+        '$$it'
+      ]
+    }
   }
-  const items = await GioHangChiTiet.find({ idGioHang: cart._id })
-    .populate('idCTSP', 'name price image');
-  const formattedItems = items.map((it) => ({
+});
+
+const removeLine = (productId) => ({
+  $filter: { input: itemsOrEmpty, as: 'it', cond: { $ne: ['$$it.idCTSP', productId] } }
+});
+
+// Giữ nguyên dạng response cũ (CartData phía app): product là { _id, name, price, image }
+const formatCart = (cart, userId) => {
+  const items = ((cart && cart.items) || []).map((it) => ({
     id: it._id,
-    product: it.idCTSP,
+    product: { _id: it.idCTSP, name: it.ten, price: it.donGia, image: it.hinhAnh },
     soLuong: it.soLuong,
     donGia: it.donGia,
     thanhTien: (it.donGia || 0) * (it.soLuong || 0),
     ngayTao: it.ngayTao,
     ngayCapNhat: it.ngayCapNhat
   }));
-  const tongGia = formattedItems.reduce((sum, it) => sum + it.thanhTien, 0);
-  if (tongGia !== cart.tongGia) {
-    cart.tongGia = tongGia;
-    await cart.save();
-  }
   return {
-    id: cart._id,
-    idKH: cart.idKH,
-    tongGia: cart.tongGia,
-    ngayTao: cart.ngayTao,
-    ngayCapNhat: cart.ngayCapNhat,
-    items: formattedItems
+    id: cart ? cart._id : null,
+    idKH: cart ? cart.idKH : userId,
+    tongGia: cart ? cart.tongGia || 0 : 0,
+    ngayTao: cart ? cart.ngayTao : null,
+    ngayCapNhat: cart ? cart.ngayCapNhat : null,
+    items
   };
 };
 
 router.get('/', async (req, res) => {
   try {
-    const userId = (req.query.userId || '').trim();
+    const userId = resolveUserId(req);
     if (!mongoose.Types.ObjectId.isValid(userId)) {
       return res.status(400).json(buildResponse(false, 'User ID không hợp lệ'));
     }
-    const data = await getCartDetail(userId);
-    res.json(buildResponse(true, 'Giỏ hàng hiện tại', data));
+    // Upsert để user mới cũng có giỏ, vẫn chỉ một lệnh; không đụng ngayCapNhat khi giỏ đã có
+    const now = new Date();
+    const cart = await GioHang.findOneAndUpdate(
+      { idKH: userId },
+      { $setOnInsert: { items: [], tongGia: 0, rev: 0, appliedOps: [], ngayTao: now, ngayCapNhat: now } },
+      { upsert: true, ...WRITE_OPTIONS }
+    );
+    res.json(buildResponse(true, 'Giỏ hàng hiện tại', formatCart(cart, userId)));
   } catch (error) {
     res.status(500).json(buildResponse(false, error.message));
   }
@@ -60,16 +132,11 @@ router.get('/', async (req, res) => {
 
 router.delete('/', async (req, res) => {
   try {
-    const userId = (req.query.userId || '').trim();
+    const userId = resolveUserId(req);
     if (!mongoose.Types.ObjectId.isValid(userId)) {
       return res.status(400).json(buildResponse(false, 'User ID không hợp lệ'));
     }
-    const cart = await GioHang.findOne({ idKH: userId });
-    if (!cart) {
-      return res.json(buildResponse(true, 'Đã xóa giỏ hàng', null));
-    }
-    await GioHangChiTiet.deleteMany({ idGioHang: cart._id });
-    await GioHang.findByIdAndDelete(cart._id);
+    await GioHang.deleteOne({ idKH: userId });
     res.json(buildResponse(true, 'Đã xóa giỏ hàng', null));
 // =======
 // const buildResponse = (success, message, data = null) => ({
@@ -113,13 +180,12 @@ router.delete('/', async (req, res) => {
 // <<<<<<< HEAD
 router.post('/items', async (req, res) => {
   try {
-    const { userId, productId, soLuong } = req.body;
+    const { productId, soLuong } = req.body;
+    const userId = resolveUserId(req);
     if (!mongoose.Types.ObjectId.isValid(userId) || !mongoose.Types.ObjectId.isValid(productId)) {
       return res.status(400).json(buildResponse(false, 'ID không hợp lệ'));
     }
     const qty = Math.max(parseInt(soLuong || '1', 10), 1);
-    let cart = await GioHang.findOne({ idKH: userId });
-    if (!cart) cart = await GioHang.create({ idKH: userId, tongGia: 0 });
 // =======
 // // Thêm sản phẩm vào giỏ hàng
 // router.post('/user/:userId/item', async (req, res) => {
@@ -132,22 +198,19 @@ router.post('/items', async (req, res) => {
 
 //     // Kiểm tra sản phẩm tồn tại
 // >>>>>>> 3f8aaddc73892d73dcd74905b2ff593a3a621411
-    const product = await Product.findById(productId);
+    // Cần đúng một lần đọc Product để lấy giá, tên, ảnh chép vào dòng hàng
+    const product = await Product.findById(productId).select('name price image').lean();
     if (!product) {
       return res.status(404).json(buildResponse(false, 'Không tìm thấy sản phẩm'));
     }
 // <<<<<<< HEAD
-    const existing = await GioHangChiTiet.findOne({ idGioHang: cart._id, idCTSP: productId });
-    if (existing) {
-      existing.soLuong += qty;
-      await existing.save();
-    } else {
-      await GioHangChiTiet.create({ idGioHang: cart._id, idCTSP: productId, soLuong: qty, donGia: product.price });
-    }
-    cart.tongGia = await computeTotal(cart._id);
-    await cart.save();
-    const data = await getCartDetail(userId);
-    res.status(201).json(buildResponse(true, 'Đã thêm vào giỏ hàng', data));
+    const now = new Date();
+    const cart = await GioHang.findOneAndUpdate(
+      { idKH: userId },
+      [{ $set: { items: addToLine(product, qty, now) } }, finishStage(now)],
+      { upsert: true, ...WRITE_OPTIONS }
+    );
+    res.status(201).json(buildResponse(true, 'Đã thêm vào giỏ hàng', formatCart(cart, userId)));
 // =======
 
 //     // Kiểm tra tồn kho
@@ -194,29 +257,24 @@ router.post('/items', async (req, res) => {
 router.put('/items/:productId', async (req, res) => {
   try {
     const { productId } = req.params;
-    const { userId, soLuong } = req.body;
+    const { soLuong } = req.body;
+    const userId = resolveUserId(req);
     if (!mongoose.Types.ObjectId.isValid(userId) || !mongoose.Types.ObjectId.isValid(productId)) {
       return res.status(400).json(buildResponse(false, 'ID không hợp lệ'));
     }
     const qty = Math.max(parseInt(soLuong || '1', 10), 0);
-    const cart = await GioHang.findOne({ idKH: userId });
+    const pid = new mongoose.Types.ObjectId(productId);
+    const now = new Date();
+    // Lọc theo cả dòng hàng: không có giỏ hoặc không có sản phẩm trong giỏ đều trả về null
+    const cart = await GioHang.findOneAndUpdate(
+      { idKH: userId, 'items.idCTSP': pid },
+      [{ $set: { items: qty === 0 ? removeLine(pid) : setLineQty(pid, qty, now) } }, finishStage(now)],
+      WRITE_OPTIONS
+    );
     if (!cart) {
-      return res.status(404).json(buildResponse(false, 'Không tìm thấy giỏ hàng'));
-    }
-    const item = await GioHangChiTiet.findOne({ idGioHang: cart._id, idCTSP: productId });
-    if (!item) {
       return res.status(404).json(buildResponse(false, 'Không tìm thấy item trong giỏ'));
     }
-    if (qty === 0) {
-      await GioHangChiTiet.deleteOne({ _id: item._id });
-    } else {
-      item.soLuong = qty;
-      await item.save();
-    }
-    cart.tongGia = await computeTotal(cart._id);
-    await cart.save();
-    const data = await getCartDetail(userId);
-    res.json(buildResponse(true, 'Đã cập nhật item', data));
+    res.json(buildResponse(true, 'Đã cập nhật item', formatCart(cart, userId)));
 // =======
 // // Cập nhật số lượng sản phẩm trong giỏ hàng
 // router.put('/user/:userId/item/:productId', async (req, res) => {
@@ -267,19 +325,21 @@ router.put('/items/:productId', async (req, res) => {
 router.delete('/items/:productId', async (req, res) => {
   try {
     const { productId } = req.params;
-    const userId = (req.query.userId || '').trim();
+    const userId = resolveUserId(req);
     if (!mongoose.Types.ObjectId.isValid(userId) || !mongoose.Types.ObjectId.isValid(productId)) {
       return res.status(400).json(buildResponse(false, 'ID không hợp lệ'));
     }
-    const cart = await GioHang.findOne({ idKH: userId });
+    const pid = new mongoose.Types.ObjectId(productId);
+    const now = new Date();
+    const cart = await GioHang.findOneAndUpdate(
+      { idKH: userId },
+      [{ $set: { items: removeLine(pid) } }, finishStage(now)],
+      WRITE_OPTIONS
+    );
     if (!cart) {
       return res.status(404).json(buildResponse(false, 'Không tìm thấy giỏ hàng'));
     }
-    await GioHangChiTiet.deleteOne({ idGioHang: cart._id, idCTSP: productId });
-    cart.tongGia = await computeTotal(cart._id);
-    await cart.save();
-    const data = await getCartDetail(userId);
-    res.json(buildResponse(true, 'Đã xóa item', data));
+    res.json(buildResponse(true, 'Đã xóa item', formatCart(cart, userId)));
   } catch (error) {
     res.status(400).json(buildResponse(false, error.message));
 // =======
@@ -320,5 +380,142 @@ router.delete('/items/:productId', async (req, res) => {
   }
 });
 
-module.exports = router;
+// Đồng bộ nhiều thay đổi số lượng trong một request.
+// items: [{ productId, soLuong }] với soLuong là số lượng tuyệt đối (0 = xóa), nên gửi lại không sai;
+// hoặc [{ productId, add, opId }] để cộng thêm (hàng chờ offline của client). opId đã áp dụng thì
+// bỏ qua, nên gửi lại sau khi mất response cũng không cộng hai lần.
+// Số lượng vượt tồn kho bị giảm xuống và báo lại trong adjustments để client đối soát.
+const MAX_BATCH_ITEMS = 100;
+const MAX_APPLIED_OPS = 200;
+// Số lần đọc - ghi lại khi giỏ bị request khác sửa xen giữa
+const MAX_BATCH_ATTEMPTS = 3;
+
+class CartConflictError extends Error {}
+
+// Tính giỏ mới từ giỏ hiện tại (có thể null) và danh sách thay đổi; không đụng database
+const applyBatch = (cart, items, productById, now) => {
+  const lines = new Map(((cart && cart.items) || []).map((it) => [String(it.idCTSP), it]));
+  const applied = new Set((cart && cart.appliedOps) || []);
+  const newOps = [];
+
+  // Gộp theo sản phẩm trước: nhiều "add" cùng sản phẩm được cộng dồn
+  const targetQty = new Map();
+  const adjustments = [];
+  for (const it of items) {
+    const productId = it && it.productId;
+    if (!mongoose.Types.ObjectId.isValid(productId)) {
+      adjustments.push({ productId, soLuong: 0, reason: 'invalid' });
+      continue;
+    }
+    const key = String(productId);
+    if (it.add !== undefined) {
+      if (it.opId) {
+        if (applied.has(it.opId)) continue;
+        applied.add(it.opId);
+        newOps.push(String(it.opId));
+      }
+      const current = lines.has(key) ? lines.get(key).soLuong || 0 : 0;
+      const base = targetQty.has(key) ? targetQty.get(key) : current;
+      targetQty.set(key, base + Math.max(parseInt(it.add, 10) || 0, 0));
+    } else {
+      targetQty.set(key, Math.max(parseInt(it.soLuong, 10) || 0, 0));
+    }
+  }
 
+  for (const [productId, requested] of targetQty) {
+    const product = productById.get(productId);
+    if (!product) {
+      lines.delete(productId);
+      adjustments.push({ productId, soLuong: 0, reason: 'not_found' });
+      continue;
+    }
+    let qty = requested;
+    if (typeof product.stock === 'number' && qty > product.stock) {
+      qty = Math.max(product.stock, 0);
+      adjustments.push({ productId, soLuong: qty, reason: 'stock' });
+    }
+    const existing = lines.get(productId);
+    if (qty === 0) {
+      lines.delete(productId);
+    } else if (existing) {
+      // Giữ đơn giá lúc thêm, chỉ làm mới tên/ảnh
+      lines.set(productId, { ...existing, soLuong: qty, ten: product.name, hinhAnh: product.image, ngayCapNhat: now });
+    } else {
+      lines.set(productId, newLine(product, qty, now));
+    }
+  }
+
+  const nextItems = [...lines.values()];
+  return {
+    items: nextItems,
+    tongGia: nextItems.reduce((sum, it) => sum + (it.donGia || 0) * (it.soLuong || 0), 0),
+    appliedOps: [...((cart && cart.appliedOps) || []), ...newOps].slice(-MAX_APPLIED_OPS),
+    adjustments
+  };
+};
+
+// Ghi có điều kiện theo rev: giỏ đổi từ lúc đọc thì không khớp và ném CartConflictError để đọc lại
+const writeBatch = async (cart, userId, next, now) => {
+  const fields = { items: next.items, tongGia: next.tongGia, appliedOps: next.appliedOps, ngayCapNhat: now };
+  if (!cart) {
+    try {
+      const created = await GioHang.create({ idKH: userId, ...fields, ngayTao: now, rev: 1 });
+      return created.toObject();
+    } catch (error) {
+      // Request khác vừa tạo giỏ (unique idKH)
+      if (error && error.code === 11000) throw new CartConflictError();
+      throw error;
+    }
+  }
+  // Giỏ tạo trước khi có rev thì chưa có field này
+  const rev = cart.rev === undefined ? { $exists: false } : cart.rev;
+  const updated = await GioHang.findOneAndUpdate(
+    { _id: cart._id, rev },
+    { $set: { ...fields, rev: (cart.rev || 0) + 1 } },
+    WRITE_OPTIONS
+  );
+  if (!updated) throw new CartConflictError();
+  return updated;
+};
+
+router.post('/items/batch', async (req, res) => {
+  try {
+    const { items } = req.body;
+    const userId = resolveUserId(req);
+    if (!mongoose.Types.ObjectId.isValid(userId) || !Array.isArray(items)) {
+      return res.status(400).json(buildResponse(false, 'Dữ liệu không hợp lệ'));
+    }
+    if (items.length > MAX_BATCH_ITEMS) {
+      return res.status(400).json(buildResponse(false, `Tối đa ${MAX_BATCH_ITEMS} sản phẩm mỗi lần`));
+    }
+
+    const validIds = items
+      .map((it) => it && it.productId)
+      .filter((id) => mongoose.Types.ObjectId.isValid(id));
+    const products = await Product.find({ _id: { $in: validIds } }).select('name price image stock').lean();
+    const productById = new Map(products.map((p) => [p._id.toString(), p]));
+
+    // Cộng dồn và chặn tồn kho cần số lượng hiện tại, nên đây là đọc rồi ghi có điều kiện
+    // (không gộp được thành một pipeline như các route trên)
+    for (let attempt = 1; ; attempt++) {
+      const now = new Date();
+      const cart = await GioHang.findOne({ idKH: userId }).lean();
+      const next = applyBatch(cart, items, productById, now);
+      try {
+        const saved = await writeBatch(cart, userId, next, now);
+        return res.json(buildResponse(true, 'Đã đồng bộ giỏ hàng',
+          { ...formatCart(saved, userId), adjustments: next.adjustments }));
+      } catch (error) {
+        if (!(error instanceof CartConflictError) || attempt >= MAX_BATCH_ATTEMPTS) throw error;
+      }
+    }
+  } catch (error) {
+    if (error instanceof CartConflictError) {
+      // 503 để hàng chờ offline của app coi là lỗi tạm thời và gửi lại sau
+      return res.status(503).json(buildResponse(false, 'Giỏ hàng đang được cập nhật, vui lòng thử lại'));
+    }
+    res.status(400).json(buildResponse(false, error.message));
+  }
+});
+
+module.exports = router;
@@ -1,5 +1,8 @@
 const express = require('express');
+const mongoose = require('mongoose');
 const Favorite = require('../models/Favorite');
+const User = require('../models/User');
+const { requireUser } = require('../middleware/auth');
 
 const router = express.Router();
 
@@ -14,6 +17,9 @@ const populateFavorite = (query) =>
     .populate('user', 'name email')
     .populate('product', 'name price image');
 
+const bumpFavoritesVersion = (userId) =>
+  User.updateOne({ _id: userId }, { $inc: { favoritesVersion: 1 } });
+
 // Danh sách yêu thích
 router.get('/', async (req, res) => {
   try {
@@ -25,10 +31,10 @@ router.get('/', async (req, res) => {
 });
 
 // Yêu thích theo người dùng
-router.get('/user/:userId', async (req, res) => {
+router.get('/user/:userId', requireUser, async (req, res) => {
   try {
     const favorites = await populateFavorite(
-      Favorite.find({ user: req.params.userId }).sort({ createdAt: -1 })
+      Favorite.find({ user: req.userId }).sort({ createdAt: -1 })
     );
     res.json(buildResponse(true, 'Danh sách yêu thích của người dùng', favorites));
   } catch (error) {
@@ -36,16 +42,45 @@ router.get('/user/:userId', async (req, res) => {
   }
 });
 
+// Tập id sản phẩm yêu thích, đủ để client tô trạng thái tim mà không cần tải cả danh sách.
+// ?version=<n> trùng phiên bản hiện tại thì chỉ trả { version, unchanged: true }.
+router.get('/user/:userId/ids', requireUser, async (req, res) => {
+  try {
+    const { userId } = req;
+    if (!mongoose.Types.ObjectId.isValid(userId)) {
+      return res.status(400).json(buildResponse(false, 'User ID không hợp lệ'));
+    }
+    // Đọc version trước danh sách: thay đổi xen giữa sẽ làm lần đồng bộ sau thấy version mới
+    const user = await User.findById(userId).select('favoritesVersion').lean();
+    const version = (user && user.favoritesVersion) || 0;
+    if (req.query.version !== undefined && Number(req.query.version) === version) {
+      return res.json(buildResponse(true, 'Không có thay đổi', { version, unchanged: true }));
+    }
+    const favorites = await Favorite.find({ user: userId }).select('product -_id').lean();
+    res.json(
+      buildResponse(true, 'Id sản phẩm yêu thích', {
+        version,
+        unchanged: false,
+        productIds: favorites.map((favorite) => String(favorite.product))
+      })
+    );
+  } catch (error) {
+    res.status(500).json(buildResponse(false, error.message));
+  }
+});
+
 // Thêm sản phẩm yêu thích
-router.post('/', async (req, res) => {
+router.post('/', requireUser, async (req, res) => {
   try {
-    const { user, product } = req.body;
+    const { product } = req.body;
+    const user = req.userId;
 
     if (!user || !product) {
       return res.status(400).json(buildResponse(false, 'Thiếu thông tin yêu thích'));
     }
 
     const favorite = await Favorite.create({ user, product });
+    await bumpFavoritesVersion(user);
     const populatedFavorite = await populateFavorite(Favorite.findById(favorite._id));
     res.status(201).json(buildResponse(true, 'Đã thêm vào yêu thích', populatedFavorite));
   } catch (error) {
@@ -57,16 +92,17 @@ router.post('/', async (req, res) => {
 });
 
 // Xóa yêu thích theo user & product
-router.delete('/user/:userId/product/:productId', async (req, res) => {
+router.delete('/user/:userId/product/:productId', requireUser, async (req, res) => {
   try {
     const favorite = await Favorite.findOneAndDelete({
-      user: req.params.userId,
+      user: req.userId,
       product: req.params.productId
     });
 
     if (!favorite) {
       return res.status(404).json(buildResponse(false, 'Không tìm thấy bản ghi yêu thích'));
     }
+    await bumpFavoritesVersion(favorite.user);
 
     res.json(buildResponse(true, 'Đã xóa khỏi yêu thích', favorite));
   } catch (error) {
@@ -75,12 +111,13 @@ router.delete('/user/:userId/product/:productId', async (req, res) => {
 });
 
 // Xóa yêu thích theo id
-router.delete('/:id', async (req, res) => {
+router.delete('/:id', requireUser, async (req, res) => {
   try {
-    const favorite = await Favorite.findByIdAndDelete(req.params.id);
+    const favorite = await Favorite.findOneAndDelete({ _id: req.params.id, user: req.userId });
     if (!favorite) {
       return res.status(404).json(buildResponse(false, 'Không tìm thấy bản ghi yêu thích'));
     }
+    await bumpFavoritesVersion(favorite.user);
     res.json(buildResponse(true, 'Đã xóa khỏi yêu thích', favorite));
   } catch (error) {
     res.status(500).json(buildResponse(false, error.message));
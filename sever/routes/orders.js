@@ -1,6 +1,9 @@
 const express = require('express');
 const mongoose = require('mongoose');
 const Order = require('../models/Order');
+const Product = require('../models/Product');
+const { decodeCursor, keysetSort, withKeyset, toPage } = require('../utils/cursor');
+const { requireUser } = require('../middleware/auth');
 
 const router = express.Router();
 
@@ -13,17 +16,65 @@ const buildResponse = (success, message, data = null) => ({
 const calculateTotalAmount = (items = []) =>
   items.reduce((sum, item) => sum + (item.price || 0) * (item.quantity || 0), 0);
 
+const MAX_PAGE_SIZE = 50;
+
 const populateOrder = (query) =>
   query
     .populate('user', 'name email')
     .populate('items.product', 'name price image');
 
+/**
+ * Bản tóm tắt cho màn danh sách (?view=summary): chỉ trả các trường thẻ đơn hàng cần,
+ * chỉ tra sản phẩm đầu tiên thay vì populate mọi dòng hàng, nên kích thước không tăng theo số sản phẩm.
+ * Tên trường khớp với các trường legacy của Order phía app.
+ */
+const findOrderSummaries = (filter, { skip = 0, limit } = {}) => {
+  const pipeline = [{ $match: filter }, { $sort: keysetSort('createdAt', -1) }];
+  if (skip) pipeline.push({ $skip: skip });
+  if (limit) pipeline.push({ $limit: limit });
+  pipeline.push(
+    {
+      $project: {
+        status: 1,
+        totalAmount: 1,
+        createdAt: 1,
+        itemsCount: { $size: { $ifNull: ['$items', []] } },
+        firstItem: { $arrayElemAt: ['$items', 0] }
+      }
+    },
+    {
+      $lookup: {
+        from: Product.collection.name,
+        localField: 'firstItem.product',
+        foreignField: '_id',
+        pipeline: [{ $project: { name: 1, image: 1 } }],
+        as: 'firstProduct'
+      }
+    },
+    { $unwind: { path: '$firstProduct', preserveNullAndEmptyArrays: true } },
+    {
+      $project: {
+        status: 1,
+        totalAmount: 1,
+        createdAt: 1,
+        itemsCount: 1,
+        quantity: { $ifNull: ['$firstItem.quantity', 0] },
+        firstProductName: '$firstProduct.name',
+        firstProductImage: '$firstProduct.image'
+      }
+    }
+  );
+  return Order.aggregate(pipeline);
+};
+
+const isSummaryView = (req) => (req.query.view || '').trim() === 'summary';
+
 // Danh sách đơn hàng
 router.get('/', async (req, res) => {
   try {
-    const orders = await populateOrder(
-      Order.find().sort({ createdAt: -1 })
-    );
+    const orders = isSummaryView(req)
+      ? await findOrderSummaries({})
+      : await populateOrder(Order.find().sort({ createdAt: -1 }));
     res.json(buildResponse(true, 'Danh sách đơn hàng', orders));
   } catch (error) {
     res.status(500).json(buildResponse(false, error.message));
@@ -31,35 +82,55 @@ router.get('/', async (req, res) => {
 });
 
 // Đơn hàng theo người dùng
-router.get('/user/:userId/list', async (req, res) => {
+router.get('/user/:userId/list', requireUser, async (req, res) => {
   try {
-    const { userId } = req.params;
+    const { userId } = req;
     if (!mongoose.Types.ObjectId.isValid(userId)) {
       return res.status(400).json(buildResponse(false, 'User ID không hợp lệ'));
     }
 
     const page = Math.max(parseInt(req.query.page || '1', 10), 1);
-    const limit = Math.max(parseInt(req.query.limit || '10', 10), 1);
+    // Giới hạn kích thước trang để mỗi lần đổi tab chỉ trả về lượng dữ liệu có hạn
+    const limit = Math.min(Math.max(parseInt(req.query.limit || '10', 10), 1), MAX_PAGE_SIZE);
     const status = (req.query.status || '').trim();
 
-    const filter = { user: userId };
+    const filter = { user: new mongoose.Types.ObjectId(userId) };
     if (status) filter.status = status;
 
-    const total = await Order.countDocuments(filter);
-    const orders = await populateOrder(
-      Order.find(filter)
-        .sort({ createdAt: -1 })
-        .skip((page - 1) * limit)
-        .limit(limit)
-    );
+    // Có cursor (nextCursor của trang trước) thì đi tiếp theo (createdAt, _id), không skip và không đếm lại
+    let position = null;
+    if (req.query.cursor) {
+      position = decodeCursor(req.query.cursor, 'createdAt');
+      if (!position) {
+        return res.status(400).json(buildResponse(false, 'cursor không hợp lệ'));
+      }
+    }
+    const skip = position ? 0 : (page - 1) * limit;
+    const countTotal = !position || req.query.withTotal === 'true';
+    const pageFilter = withKeyset(filter, 'createdAt', -1, position);
+
+    const [total, docs] = await Promise.all([
+      countTotal ? Order.countDocuments(filter) : null,
+      isSummaryView(req)
+        ? findOrderSummaries(pageFilter, { skip, limit: limit + 1 })
+        : populateOrder(
+          Order.find(pageFilter)
+            .sort(keysetSort('createdAt', -1))
+            .skip(skip)
+            .limit(limit + 1)
+        )
+    ]);
+    const { items: orders, hasMore, nextCursor } = toPage(docs, limit, 'createdAt');
 
     res.json(
       buildResponse(true, 'Danh sách đơn hàng của người dùng', {
         items: orders,
         total,
-        page,
+        page: position ? null : page,
         limit,
-        pages: Math.ceil(total / limit),
+        pages: total !== null ? Math.ceil(total / limit) : null,
+        hasMore,
+        nextCursor,
         filter: { status: status || undefined }
       })
     );
@@ -202,9 +273,11 @@ router.get('/top-customers', async (req, res) => {
 });
 
 // Tạo đơn hàng
-router.post('/', async (req, res) => {
+router.post('/', requireUser, async (req, res) => {
   try {
-    const { user, items, shippingAddress, status } = req.body;
+    const { items, shippingAddress, status } = req.body;
+    // Đơn luôn đứng tên user của token, bỏ qua "user" client gửi
+    const user = req.userId;
 
     if (!user || !items || items.length === 0 || !shippingAddress) {
       return res.status(400).json(buildResponse(false, 'Thiếu thông tin đơn hàng'));
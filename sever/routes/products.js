@@ -1,5 +1,8 @@
 const express = require('express');
 const Product = require('../models/Product');
+const { normalize, queryTokens } = require('../utils/searchTokens');
+const { profileQuery } = require('../utils/queryProfiler');
+const { decodeCursor, keysetSort, withKeyset, toPage } = require('../utils/cursor');
 
 const router = express.Router();
 
@@ -9,6 +12,9 @@ const buildResponse = (success, message, data = null) => ({
   data
 });
 
+// Từ khóa đến từ ô tìm kiếm khi đang gõ, có thể chứa ký tự như "(" hay "*"
+const escapeRegex = (value) => String(value).replace(/[.*+?^${}()|[\]\\]/g, '\\$&');
+
 // Danh sách sản phẩm với tìm kiếm và lọc
 router.get('/', async (req, res) => {
   try {
@@ -19,16 +25,24 @@ router.get('/', async (req, res) => {
       maxPrice,         // Giá tối đa
       inStock,          // Còn hàng (true/false)
       sortBy,           // Sắp xếp: price_asc, price_desc, name_asc, name_desc, newest
-      page = 1,         // Trang hiện tại
+      updatedSince,     // Chỉ lấy sản phẩm thay đổi sau mốc thời gian (ISO) - đồng bộ delta
+      cursor,           // nextCursor của trang trước (ưu tiên hơn page)
+      withTotal,        // true để đếm tổng cả khi đi theo cursor
+      page = 1,         // Trang hiện tại (client cũ, không có cursor)
       limit = 20        // Số lượng mỗi trang
     } = req.query;
 
     // Xây dựng query
     const query = {};
 
-    // Tìm kiếm theo tên
+    // Tìm kiếm theo tên: index searchTokens thu hẹp ứng viên, regex trên searchName (đã bỏ dấu,
+    // viết thường) chỉ chạy trên các ứng viên đó để loại trường hợp đủ n-gram nhưng không liền nhau
     if (search) {
-      query.name = { $regex: search, $options: 'i' };
+      const tokens = queryTokens(search);
+      if (tokens.length > 0) {
+        query.searchTokens = { $all: tokens };
+      }
+      query.searchName = { $regex: escapeRegex(normalize(search)) };
     }
 
     // Lọc theo danh mục
@@ -50,47 +64,80 @@ router.get('/', async (req, res) => {
       query.stock = { $lte: 0 };
     }
 
-    // Xây dựng sort
-    let sort = { createdAt: -1 }; // Mặc định sắp xếp mới nhất
+    // Đồng bộ delta cho catalog offline trên app
+    if (updatedSince) {
+      const since = new Date(updatedSince);
+      if (isNaN(since.getTime())) {
+        return res.status(400).json(buildResponse(false, 'updatedSince không hợp lệ'));
+      }
+      query.updatedAt = { $gt: since };
+    }
+
+    // Xây dựng sort: một khóa + _id, khớp các index khai báo trong models/Product.js
+    let sortField = 'createdAt'; // Mặc định sắp xếp mới nhất
+    let sortDir = -1;
     if (sortBy) {
       switch (sortBy) {
         case 'price_asc':
-          sort = { price: 1 };
+          sortField = 'price';
+          sortDir = 1;
           break;
         case 'price_desc':
-          sort = { price: -1 };
+          sortField = 'price';
+          sortDir = -1;
           break;
         case 'name_asc':
-          sort = { name: 1 };
+          sortField = 'name';
+          sortDir = 1;
           break;
         case 'name_desc':
-          sort = { name: -1 };
+          sortField = 'name';
+          sortDir = -1;
           break;
         case 'newest':
-          sort = { createdAt: -1 };
+          sortField = 'createdAt';
+          sortDir = -1;
           break;
         case 'oldest':
-          sort = { createdAt: 1 };
+          sortField = 'createdAt';
+          sortDir = 1;
           break;
       }
     }
 
-    // Phân trang
-    const skip = (Number(page) - 1) * Number(limit);
-    const total = await Product.countDocuments(query);
-    const products = await Product.find(query)
-      .populate('category', 'name')
-      .sort(sort)
+    // Phân trang: có cursor thì đi tiếp từ vị trí đó; không có thì skip theo page như cũ
+    const pageSize = Number(limit);
+    let position = null;
+    if (cursor) {
+      position = decodeCursor(cursor, sortField);
+      if (!position) {
+        return res.status(400).json(buildResponse(false, 'cursor không hợp lệ'));
+      }
+    }
+    const skip = position ? 0 : (Number(page) - 1) * pageSize;
+    // Đếm tổng tốn ngang một lần quét: chỉ làm ở trang đầu (hoặc khi được yêu cầu), trang sau thì bỏ
+    const countTotal = !position || withTotal === 'true';
+    const startedAt = Date.now();
+    const listQuery = Product.find(withKeyset(query, sortField, sortDir, position))
+      .sort(keysetSort(sortField, sortDir))
       .skip(skip)
-      .limit(Number(limit));
+      .limit(pageSize + 1);
+    const [total, docs] = await Promise.all([
+      countTotal ? Product.countDocuments(query) : null,
+      listQuery.clone().populate('category', 'name')
+    ]);
+    profileQuery('GET /products', listQuery, Date.now() - startedAt);
+    const { items: products, hasMore, nextCursor } = toPage(docs, pageSize, sortField);
 
     res.json(buildResponse(true, 'Danh sách sản phẩm', {
       products,
       pagination: {
-        currentPage: Number(page),
-        totalPages: Math.ceil(total / Number(limit)),
+        currentPage: position ? null : Number(page),
+        totalPages: total !== null ? Math.ceil(total / pageSize) : null,
         totalItems: total,
-        itemsPerPage: Number(limit)
+        itemsPerPage: pageSize,
+        hasMore,
+        nextCursor
       },
       filters: {
         search: search || null,
@@ -98,7 +145,8 @@ router.get('/', async (req, res) => {
         minPrice: minPrice || null,
         maxPrice: maxPrice || null,
         inStock: inStock || null,
-        sortBy: sortBy || 'newest'
+        sortBy: sortBy || 'newest',
+        updatedSince: updatedSince || null
       }
     }));
   } catch (error) {
@@ -1,6 +1,7 @@
 const express = require('express');
 const multer = require('multer');
 const path = require('path');
+const { generateVariants } = require('../utils/imageVariants');
 const router = express.Router();
 
 // Cấu hình lưu trữ file
@@ -36,18 +37,32 @@ const upload = multer({
   fileFilter: fileFilter
 });
 
+// Ảnh gốc đã lưu xong thì upload coi như thành công; tạo biến thể lỗi (sharp không đọc được ảnh,
+// thiếu binary của sharp...) chỉ ghi log, client vẫn dùng ảnh gốc và serveVariant sẽ thử lại khi có ?w=
+const generateVariantsSafely = async (filename) => {
+  try {
+    return await generateVariants(filename);
+  } catch (error) {
+    console.error(`Không tạo được biến thể cho ${filename}:`, error.message);
+    return [];
+  }
+};
+
 // Route upload ảnh
-router.post('/', upload.single('image'), (req, res) => {
+router.post('/', upload.single('image'), async (req, res) => {
   try {
     if (!req.file) {
       return res.status(400).json({ error: 'Không có file được upload' });
     }
 
+    const variants = await generateVariantsSafely(req.file.filename);
+
     res.json({
       message: 'Upload ảnh thành công',
       filename: req.file.filename,
       path: `/uploads/${req.file.filename}`,
-      size: req.file.size
+      size: req.file.size,
+      variants
     });
   } catch (error) {
     res.status(500).json({ error: error.message });
@@ -55,17 +70,21 @@ router.post('/', upload.single('image'), (req, res) => {
 });
 
 // Route upload nhiều ảnh
-router.post('/multiple', upload.array('images', 10), (req, res) => {
+router.post('/multiple', upload.array('images', 10), async (req, res) => {
   try {
     if (!req.files || req.files.length === 0) {
       return res.status(400).json({ error: 'Không có file được upload' });
     }
 
-    const files = req.files.map(file => ({
-      filename: file.filename,
-      path: `/uploads/${file.filename}`,
-      size: file.size
-    }));
+    const files = [];
+    for (const file of req.files) {
+      files.push({
+        filename: file.filename,
+        path: `/uploads/${file.filename}`,
+        size: file.size,
+        variants: await generateVariantsSafely(file.filename)
+      });
+    }
 
     res.json({
       message: `Upload ${files.length} ảnh thành công`,
@@ -1,7 +1,9 @@
 const express = require('express');
-const crypto = require('crypto');
 const mongoose = require('mongoose');
 const User = require('../models/User');
+const { issueTokens, verifyToken } = require('../utils/token');
+const { decodeCursor, keysetSort, withKeyset, toPage } = require('../utils/cursor');
+const { hashPassword, verifyPassword, needsRehash } = require('../utils/password');
 
 const router = express.Router();
 
@@ -11,6 +13,8 @@ const buildResponse = (success, message, data = null) => ({
   data
 });
 
+const SORTABLE_USER_FIELDS = ['createdAt', 'name', 'email'];
+
 const sanitizeUser = (user) => ({
   id: user._id,
   name: user.name,
@@ -20,20 +24,6 @@ const sanitizeUser = (user) => ({
   updatedAt: user.updatedAt
 });
 
-const hashPassword = (password) => {
-  const salt = crypto.randomBytes(16).toString('hex');
-  const hash = crypto.pbkdf2Sync(password, salt, 1000, 64, 'sha512').toString('hex');
-  return `${salt}:${hash}`;
-};
-
-const verifyPassword = (password, storedHash) => {
-  const [salt, originalHash] = storedHash.split(':');
-  const hash = crypto.pbkdf2Sync(password, salt, 1000, 64, 'sha512').toString('hex');
-  return hash === originalHash;
-};
-
-const generateToken = () => crypto.randomBytes(32).toString('hex');
-
 // Đăng ký
 router.post('/register', async (req, res) => {
   try {
@@ -55,7 +45,7 @@ router.post('/register', async (req, res) => {
     const user = await User.create({
       name,
       email: email.toLowerCase(),
-      password: hashPassword(password)
+      password: await hashPassword(password)
     });
 
     console.log('✅ Đã tạo user mới:', {
@@ -67,7 +57,7 @@ router.post('/register', async (req, res) => {
 
     res.status(201).json(
       buildResponse(true, 'Đăng ký thành công', {
-        token: generateToken(),
+        ...issueTokens(user),
         user: sanitizeUser(user)
       })
     );
@@ -90,14 +80,43 @@ router.post('/login', async (req, res) => {
       return res.status(401).json(buildResponse(false, 'Email hoặc mật khẩu không đúng'));
     }
 
-    const isValidPassword = verifyPassword(password, user.password);
+    const isValidPassword = await verifyPassword(password, user.password);
     if (!isValidPassword) {
       return res.status(401).json(buildResponse(false, 'Email hoặc mật khẩu không đúng'));
     }
 
+    // Hash cũ (1000 vòng) hoặc PASSWORD_ITERATIONS vừa đổi: băm lại bằng cấu hình hiện tại, chỉ một lần
+    if (needsRehash(user.password)) {
+      user.password = await hashPassword(password);
+      await user.save();
+    }
+
     res.json(
       buildResponse(true, 'Đăng nhập thành công', {
-        token: generateToken(),
+        ...issueTokens(user),
+        user: sanitizeUser(user)
+      })
+    );
+  } catch (error) {
+    res.status(500).json(buildResponse(false, error.message));
+  }
+});
+
+// Đổi refresh token lấy cặp token mới (refresh token cũ vẫn dùng được tới khi hết hạn).
+// Chỉ ở đây mới đọc user, để kiểm tra tokenVersion: đổi mật khẩu thì refresh token cũ bị từ chối.
+router.post('/refresh', async (req, res) => {
+  try {
+    const payload = verifyToken(req.body && req.body.refreshToken, 'refresh');
+    if (!payload || !mongoose.Types.ObjectId.isValid(payload.sub)) {
+      return res.status(401).json(buildResponse(false, 'Phiên đăng nhập đã hết hạn'));
+    }
+    const user = await User.findById(payload.sub);
+    if (!user || (user.tokenVersion || 0) !== payload.v) {
+      return res.status(401).json(buildResponse(false, 'Phiên đăng nhập đã hết hạn'));
+    }
+    res.json(
+      buildResponse(true, 'Đã làm mới phiên đăng nhập', {
+        ...issueTokens(user),
         user: sanitizeUser(user)
       })
     );
@@ -126,7 +145,7 @@ router.post('/create', async (req, res) => {
     const user = await User.create({
       name,
       email: normalizedEmail,
-      password: hashPassword(password),
+      password: await hashPassword(password),
       role: finalRole
     });
     res.status(200).json(buildResponse(true, 'Đã thêm người dùng', sanitizeUser(user)));
@@ -141,7 +160,8 @@ router.get('/list', async (req, res) => {
     const page = Math.max(parseInt(req.query.page || '1', 10), 1);
     const limit = Math.max(parseInt(req.query.limit || '10', 10), 1);
     const search = (req.query.search || '').trim();
-    const sortBy = (req.query.sortBy || 'createdAt');
+    // Chỉ cho sắp theo trường có index (kèm _id), tránh sort tùy ý trên cả collection
+    const sortBy = SORTABLE_USER_FIELDS.includes(req.query.sortBy) ? req.query.sortBy : 'createdAt';
     const order = (req.query.order || 'desc').toLowerCase() === 'asc' ? 1 : -1;
 
     const filter = search
@@ -153,19 +173,32 @@ router.get('/list', async (req, res) => {
         }
       : {};
 
-    const total = await User.countDocuments(filter);
-    const users = await User.find(filter)
-      .sort({ [sortBy]: order })
-      .skip((page - 1) * limit)
-      .limit(limit);
+    let position = null;
+    if (req.query.cursor) {
+      position = decodeCursor(req.query.cursor, sortBy);
+      if (!position) {
+        return res.status(400).json(buildResponse(false, 'cursor không hợp lệ'));
+      }
+    }
+    const countTotal = !position || req.query.withTotal === 'true';
+    const [total, docs] = await Promise.all([
+      countTotal ? User.countDocuments(filter) : null,
+      User.find(withKeyset(filter, sortBy, order, position))
+        .sort(keysetSort(sortBy, order))
+        .skip(position ? 0 : (page - 1) * limit)
+        .limit(limit + 1)
+    ]);
+    const { items: users, hasMore, nextCursor } = toPage(docs, limit, sortBy);
 
     res.json(
       buildResponse(true, 'Danh sách người dùng', {
         items: users.map(sanitizeUser),
         total,
-        page,
+        page: position ? null : page,
         limit,
-        pages: Math.ceil(total / limit),
+        pages: total !== null ? Math.ceil(total / limit) : null,
+        hasMore,
+        nextCursor,
         sort: { by: sortBy, order: order === 1 ? 'asc' : 'desc' },
         search
       })
@@ -205,7 +238,11 @@ router.put('/:id', async (req, res) => {
     if (name) user.name = name;
     if (email) user.email = email.toLowerCase();
     if (role) user.role = role;
-    if (password) user.password = hashPassword(password);
+    if (password) {
+      user.password = await hashPassword(password);
+      // Thu hồi mọi refresh token đã cấp
+      user.tokenVersion = (user.tokenVersion || 0) + 1;
+    }
     user.updatedAt = new Date();
 
     await user.save();
@@ -1,5 +1,6 @@
 const express = require('express');
 const Product = require('../models/Product');
+const { decodeCursor, keysetSort, withKeyset, toPage } = require('../utils/cursor');
 
 const router = express.Router();
 
@@ -53,6 +54,8 @@ router.get('/products', async (req, res) => {
       outOfStock,    // Hết hàng (stock = 0)
       category,      // Lọc theo danh mục
       sortBy,        // Sắp xếp: stock_asc, stock_desc, name_asc
+      cursor,        // nextCursor của trang trước
+      withTotal,     // true để đếm tổng cả khi đi theo cursor
       page = 1,
       limit = 20
     } = req.query;
@@ -69,36 +72,54 @@ router.get('/products', async (req, res) => {
       query.category = category;
     }
 
-    let sort = { name: 1 };
+    let sortField = 'name';
+    let sortDir = 1;
     if (sortBy) {
       switch (sortBy) {
         case 'stock_asc':
-          sort = { stock: 1 };
+          sortField = 'stock';
+          sortDir = 1;
           break;
         case 'stock_desc':
-          sort = { stock: -1 };
+          sortField = 'stock';
+          sortDir = -1;
           break;
         case 'name_asc':
-          sort = { name: 1 };
+          sortField = 'name';
+          sortDir = 1;
           break;
       }
     }
 
-    const skip = (Number(page) - 1) * Number(limit);
-    const total = await Product.countDocuments(query);
-    const products = await Product.find(query)
-      .populate('category', 'name')
-      .sort(sort)
-      .skip(skip)
-      .limit(Number(limit));
+    const pageSize = Number(limit);
+    let position = null;
+    if (cursor) {
+      position = decodeCursor(cursor, sortField);
+      if (!position) {
+        return res.status(400).json(buildResponse(false, 'cursor không hợp lệ'));
+      }
+    }
+    const skip = position ? 0 : (Number(page) - 1) * pageSize;
+    const countTotal = !position || withTotal === 'true';
+    const [total, docs] = await Promise.all([
+      countTotal ? Product.countDocuments(query) : null,
+      Product.find(withKeyset(query, sortField, sortDir, position))
+        .populate('category', 'name')
+        .sort(keysetSort(sortField, sortDir))
+        .skip(skip)
+        .limit(pageSize + 1)
+    ]);
+    const { items: products, hasMore, nextCursor } = toPage(docs, pageSize, sortField);
 
     res.json(buildResponse(true, 'Danh sách sản phẩm trong kho', {
       products,
       pagination: {
-        currentPage: Number(page),
-        totalPages: Math.ceil(total / Number(limit)),
+        currentPage: position ? null : Number(page),
+        totalPages: total !== null ? Math.ceil(total / pageSize) : null,
         totalItems: total,
-        itemsPerPage: Number(limit)
+        itemsPerPage: pageSize,
+        hasMore,
+        nextCursor
       }
     }));
   } catch (error) {
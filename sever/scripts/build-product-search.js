@@ -0,0 +1,41 @@
+require('dotenv').config();
+const mongoose = require('mongoose');
+const Product = require('../models/Product');
+const { normalize, buildSearchTokens } = require('../utils/searchTokens');
+
+// Tính searchName/searchTokens cho sản phẩm có sẵn và tạo các index khai báo trong models/Product.js.
+// Chạy lại bất cứ lúc nào (ví dụ sau khi đổi cách tách n-gram) đều cho cùng kết quả.
+const BATCH_SIZE = 500;
+
+const main = async () => {
+  await mongoose.connect(process.env.MONGODB_URI || 'mongodb://localhost:27017/duan1');
+
+  let ops = [];
+  let updated = 0;
+  const flush = async () => {
+    if (ops.length === 0) return;
+    await Product.bulkWrite(ops, { ordered: false });
+    updated += ops.length;
+    ops = [];
+  };
+
+  for await (const product of Product.find().select('name').lean().cursor()) {
+    ops.push({
+      updateOne: {
+        filter: { _id: product._id },
+        update: { $set: { searchName: normalize(product.name), searchTokens: buildSearchTokens(product.name) } }
+      }
+    });
+    if (ops.length >= BATCH_SIZE) await flush();
+  }
+  await flush();
+
+  await Product.syncIndexes();
+  console.log(`Đã cập nhật token tìm kiếm cho ${updated} sản phẩm`);
+  await mongoose.disconnect();
+};
+
+main().catch((e) => {
+  console.error(e.message);
+  process.exit(1);
+});
@@ -0,0 +1,121 @@
+require('dotenv').config();
+const http = require('http');
+
+// Đo ảnh hưởng của một loạt đăng nhập đồng thời lên các API khác.
+// Chạy server trỏ vào MongoDB local (npm run dev với MONGODB_URI=mongodb://localhost:27017/duan1) rồi:
+//   node scripts/load-test-login.js
+// Tùy chỉnh qua biến môi trường: BASE_URL, USERS, CONCURRENCY, DURATION_MS, BASELINE_MS, PROBE_PATH.
+// Kết quả: p50/p99 của PROBE_PATH khi không tải và trong lúc đăng nhập dồn dập, cùng độ trễ đăng nhập.
+
+const BASE_URL = process.env.BASE_URL || 'http://localhost:3000/api';
+const USERS = parseInt(process.env.USERS || '20', 10);
+const CONCURRENCY = parseInt(process.env.CONCURRENCY || '50', 10);
+const DURATION_MS = parseInt(process.env.DURATION_MS || '10000', 10);
+const BASELINE_MS = parseInt(process.env.BASELINE_MS || '3000', 10);
+const PROBE_PATH = process.env.PROBE_PATH || '/categories';
+const PROBE_INTERVAL_MS = 50;
+const PASSWORD = 'loadtest123';
+
+const agent = new http.Agent({ keepAlive: true, maxSockets: CONCURRENCY + 4 });
+
+const request = (method, path, body) =>
+  new Promise((resolve) => {
+    const url = new URL(BASE_URL + path);
+    const payload = body ? JSON.stringify(body) : null;
+    const startedAt = process.hrtime.bigint();
+    const req = http.request(
+      url,
+      {
+        method,
+        agent,
+        headers: payload
+          ? { 'Content-Type': 'application/json', 'Content-Length': Buffer.byteLength(payload) }
+          : {}
+      },
+      (res) => {
+        res.resume();
+        res.on('end', () => {
+          resolve({ status: res.statusCode, ms: Number(process.hrtime.bigint() - startedAt) / 1e6 });
+        });
+      }
+    );
+    req.on('error', () => resolve({ status: 0, ms: Number(process.hrtime.bigint() - startedAt) / 1e6 }));
+    if (payload) req.write(payload);
+    req.end();
+  });
+
+const sleep = (ms) => new Promise((resolve) => setTimeout(resolve, ms));
+
+const percentile = (values, p) => {
+  if (values.length === 0) return NaN;
+  const sorted = [...values].sort((a, b) => a - b);
+  const index = Math.min(sorted.length - 1, Math.ceil((p / 100) * sorted.length) - 1);
+  return sorted[Math.max(index, 0)];
+};
+
+const summarize = (label, samples) => {
+  const ms = samples.map((s) => s.ms);
+  const failed = samples.filter((s) => s.status < 200 || s.status >= 300).length;
+  console.log(
+    `${label.padEnd(22)} n=${String(samples.length).padStart(5)}  ` +
+    `p50=${percentile(ms, 50).toFixed(1)}ms  p99=${percentile(ms, 99).toFixed(1)}ms  ` +
+    `max=${Math.max(...ms).toFixed(1)}ms  lỗi=${failed}`
+  );
+};
+
+const emailOf = (i) => `loadtest+${i}@example.com`;
+
+// Gọi PROBE_PATH liên tục cho tới khi shouldStop() trả về true
+const probe = async (shouldStop) => {
+  const samples = [];
+  while (!shouldStop()) {
+    samples.push(await request('GET', PROBE_PATH));
+    await sleep(PROBE_INTERVAL_MS);
+  }
+  return samples;
+};
+
+const main = async () => {
+  console.log(`Server: ${BASE_URL}  users=${USERS}  concurrency=${CONCURRENCY}  duration=${DURATION_MS}ms`);
+
+  // Tạo user thử; đã có (409) thì dùng lại
+  for (let i = 0; i < USERS; i++) {
+    const { status } = await request('POST', '/users/register', {
+      name: `Load test ${i}`,
+      email: emailOf(i),
+      password: PASSWORD
+    });
+    if (status !== 201 && status !== 409) {
+      throw new Error(`Không tạo được user thử (HTTP ${status}), server có đang chạy không?`);
+    }
+  }
+
+  const baselineEnd = Date.now() + BASELINE_MS;
+  const baseline = await probe(() => Date.now() >= baselineEnd);
+
+  const burstEnd = Date.now() + DURATION_MS;
+  const logins = [];
+  let next = 0;
+  const worker = async () => {
+    while (Date.now() < burstEnd) {
+      const i = next++ % USERS;
+      logins.push(await request('POST', '/users/login', { email: emailOf(i), password: PASSWORD }));
+    }
+  };
+  const [underLoad] = await Promise.all([
+    probe(() => Date.now() >= burstEnd),
+    ...Array.from({ length: CONCURRENCY }, worker)
+  ]);
+
+  console.log('');
+  summarize(`GET ${PROBE_PATH} (nghỉ)`, baseline);
+  summarize(`GET ${PROBE_PATH} (tải)`, underLoad);
+  summarize('POST /users/login', logins);
+  console.log(`Đăng nhập/giây: ${(logins.length / (DURATION_MS / 1000)).toFixed(1)}`);
+  agent.destroy();
+};
+
+main().catch((e) => {
+  console.error(e.message);
+  process.exit(1);
+});
@@ -0,0 +1,53 @@
+require('dotenv').config();
+const mongoose = require('mongoose');
+const GioHang = require('../models/GioHang');
+const GioHangChiTiet = require('../models/GioHangChiTiet');
+const Product = require('../models/Product');
+
+// Chuyển các dòng GioHangChiTiet cũ vào mảng items nhúng trong GioHang.
+// Chỉ xử lý giỏ chưa có field items nên chạy lại nhiều lần không sao.
+const main = async () => {
+  await mongoose.connect(process.env.MONGODB_URI || 'mongodb://localhost:27017/duan1');
+
+  const carts = await GioHang.find({ items: { $exists: false } }).lean();
+  let migrated = 0;
+  for (const cart of carts) {
+    const rows = await GioHangChiTiet.find({ idGioHang: cart._id }).lean();
+    const products = await Product.find({ _id: { $in: rows.map((r) => r.idCTSP) } })
+      .select('name image')
+      .lean();
+    const productById = new Map(products.map((p) => [p._id.toString(), p]));
+    const items = rows
+      .filter((r) => productById.has(String(r.idCTSP)))
+      .map((r) => {
+        const product = productById.get(String(r.idCTSP));
+        return {
+          _id: r._id,
+          idCTSP: r.idCTSP,
+          ten: product.name,
+          hinhAnh: product.image,
+          soLuong: r.soLuong,
+          donGia: r.donGia,
+          ngayTao: r.ngayTao,
+          ngayCapNhat: r.ngayCapNhat
+        };
+      });
+    const tongGia = items.reduce((sum, it) => sum + (it.donGia || 0) * (it.soLuong || 0), 0);
+    await GioHang.updateOne(
+      { _id: cart._id },
+      { $set: { items, tongGia, rev: 1 } },
+      { timestamps: false }
+    );
+    migrated++;
+  }
+
+  // Giỏ trùng idKH (do tạo đồng thời trước đây) sẽ làm index unique không tạo được
+  await GioHang.syncIndexes();
+  console.log(`Đã chuyển ${migrated} giỏ hàng`);
+  await mongoose.disconnect();
+};
+
+main().catch((e) => {
+  console.error(e.message);
+  process.exit(1);
+});
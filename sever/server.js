@@ -25,8 +25,10 @@ const startServer = async () => {
       next();
     });
 
-    // Serve static files từ thư mục uploads
-    app.use('/uploads', express.static('uploads'));
+    // Serve static files từ thư mục uploads; ?w=<px> trả bản WebP đã thu nhỏ
+    const { serveVariant } = require('./utils/imageVariants');
+    app.get('/uploads/:file', serveVariant);
+    app.use('/uploads', express.static('uploads', { maxAge: '7d' }));
 
     // Routes API
     const usersRoutes = require('./routes/users');
@@ -41,6 +43,7 @@ const startServer = async () => {
     const cartRoutes = require('./routes/cart');
     const statisticsRoutes = require('./routes/statistics');
     const warehouseRoutes = require('./routes/warehouse');
+    const batchRoutes = require('./routes/batch');
 
     app.use('/api/users', usersRoutes);
     app.use('/api/products', productsRoutes);
@@ -55,6 +58,7 @@ const startServer = async () => {
     app.use('/api/v1/cart', cartRoutes);
     app.use('/api/statistics', statisticsRoutes);
     app.use('/api/warehouse', warehouseRoutes);
+    app.use('/api/batch', batchRoutes);
 
     // Route chính
     app.get('/', (req, res) => {
@@ -74,7 +78,8 @@ const startServer = async () => {
           notifications: '/api/notifications',
           cart: '/api/cart',
           statistics: '/api/statistics',
-          warehouse: '/api/warehouse'
+          warehouse: '/api/warehouse',
+          batch: '/api/batch'
         }
       });
     });
@@ -0,0 +1,53 @@
+const mongoose = require('mongoose');
+
+// Phân trang keyset. Cursor là base64url của (khóa sắp xếp, giá trị, _id) của phần tử cuối trang
+// trước; trang sau lọc "sau vị trí đó" theo (khóa, _id) nên đi qua index tới đúng chỗ, không phải
+// skip qua mọi trang trước như skip((page - 1) * limit). Client coi cursor là chuỗi mờ.
+
+const encodeCursor = (doc, field) => {
+  const value = doc[field];
+  const isDate = value instanceof Date;
+  const payload = { f: field, v: isDate ? value.toISOString() : value, d: isDate ? 1 : 0, id: String(doc._id) };
+  return Buffer.from(JSON.stringify(payload)).toString('base64url');
+};
+
+// null nếu cursor hỏng hoặc tạo cho khóa sắp xếp khác (client đổi sortBy mà giữ cursor cũ)
+const decodeCursor = (cursor, field) => {
+  try {
+    const payload = JSON.parse(Buffer.from(String(cursor), 'base64url').toString('utf8'));
+    if (!payload || payload.f !== field || !mongoose.Types.ObjectId.isValid(payload.id)) return null;
+    const value = payload.d ? new Date(payload.v) : payload.v;
+    if (value instanceof Date && isNaN(value.getTime())) return null;
+    return { value, id: new mongoose.Types.ObjectId(payload.id) };
+  } catch (error) {
+    return null;
+  }
+};
+
+// _id phá thế hòa để thứ tự là toàn phần, không lặp hay sót phần tử cùng giá trị khóa
+const keysetSort = (field, direction) => ({ [field]: direction, _id: direction });
+
+const withKeyset = (filter, field, direction, position) => {
+  if (!position) return filter;
+  const op = direction === 1 ? '$gt' : '$lt';
+  const after = {
+    $or: [
+      { [field]: { [op]: position.value } },
+      { [field]: position.value, _id: { [op]: position.id } }
+    ]
+  };
+  return Object.keys(filter).length > 0 ? { $and: [filter, after] } : after;
+};
+
+// Truy vấn lấy limit + 1 phần tử; phần tử thừa chỉ để biết còn trang sau hay không
+const toPage = (docs, limit, field) => {
+  const hasMore = docs.length > limit;
+  const items = hasMore ? docs.slice(0, limit) : docs;
+  return {
+    items,
+    hasMore,
+    nextCursor: hasMore ? encodeCursor(items[items.length - 1], field) : null
+  };
+};
+
+module.exports = { encodeCursor, decodeCursor, keysetSort, withKeyset, toPage };
@@ -0,0 +1,103 @@
+const fs = require('fs');
+const path = require('path');
+const sharp = require('sharp');
+
+const UPLOAD_DIR = 'uploads';
+const VARIANT_DIR = path.join(UPLOAD_DIR, 'variants');
+
+// Các chiều rộng được tạo sẵn; client xin ?w= sẽ được làm tròn lên mức gần nhất
+const VARIANT_WIDTHS = [160, 320, 640, 1080];
+const WEBP_QUALITY = 75;
+
+// Tránh tạo cùng một biến thể hai lần khi nhiều request đến cùng lúc
+const pending = new Map();
+
+const pickWidth = (requested) => {
+  const width = Number(requested);
+  if (!Number.isFinite(width) || width <= 0) return null;
+  for (const candidate of VARIANT_WIDTHS) {
+    if (candidate >= width) return candidate;
+  }
+  return VARIANT_WIDTHS[VARIANT_WIDTHS.length - 1];
+};
+
+// Giữ cả đuôi gốc trong tên biến thể: a.jpg và a.png là hai ảnh khác nhau, không được dùng chung a-<w>.webp
+const variantPath = (filename, width) => {
+  const ext = path.extname(filename);
+  const base = path.basename(filename, ext);
+  const suffix = ext ? `-${ext.slice(1).toLowerCase()}` : '';
+  return path.join(VARIANT_DIR, `${base}${suffix}-${width}.webp`);
+};
+
+const createVariant = async (sourcePath, filename, width) => {
+  const target = variantPath(filename, width);
+  if (fs.existsSync(target)) return target;
+  if (pending.has(target)) return pending.get(target);
+
+  const job = (async () => {
+    await fs.promises.mkdir(VARIANT_DIR, { recursive: true });
+    // Ghi ra file tạm rồi rename để request khác không đọc phải file ghi dở
+    const tmp = `${target}.${process.pid}.tmp`;
+    await sharp(sourcePath)
+      .rotate()
+      .resize({ width, withoutEnlargement: true })
+      .webp({ quality: WEBP_QUALITY })
+      .toFile(tmp);
+    await fs.promises.rename(tmp, target);
+    return target;
+  })();
+  pending.set(target, job);
+  try {
+    return await job;
+  } finally {
+    pending.delete(target);
+  }
+};
+
+// Tạo toàn bộ biến thể ngay khi upload
+const generateVariants = async (filename) => {
+  const sourcePath = path.join(UPLOAD_DIR, filename);
+  const variants = [];
+  for (const width of VARIANT_WIDTHS) {
+    const file = await createVariant(sourcePath, filename, width);
+    variants.push({ width, path: `/${file.split(path.sep).join('/')}` });
+  }
+  return variants;
+};
+
+/**
+ * Middleware đặt trước express.static('/uploads'):
+ * GET /uploads/<file>?w=<px> trả về bản WebP đã thu nhỏ (tạo lúc upload, hoặc tạo
+ * khi được xin lần đầu với ảnh cũ). Không có ?w= hoặc client không nhận WebP thì
+ * để express.static trả ảnh gốc.
+ */
+const serveVariant = async (req, res, next) => {
+  const width = pickWidth(req.query.w);
+  const accept = req.headers.accept || '';
+  // Android/Glide thường gửi */* hoặc không gửi Accept; chỉ bỏ qua khi client nói rõ không nhận webp
+  const acceptsWebp = !accept || accept.includes('image/webp') || accept.includes('*/*') || accept.includes('image/*');
+  if (!width || !acceptsWebp) return next();
+
+  const filename = path.basename(req.path);
+  const sourcePath = path.join(UPLOAD_DIR, filename);
+  if (!/\.(jpe?g|png|gif|webp)$/i.test(filename) || !fs.existsSync(sourcePath)) return next();
+
+  try {
+    const file = await createVariant(sourcePath, filename, width);
+    res.set('Cache-Control', 'public, max-age=31536000, immutable');
+    res.set('Vary', 'Accept');
+    res.type('image/webp');
+    res.sendFile(path.resolve(file));
+  } catch (error) {
+    // Ảnh hỏng hoặc định dạng sharp không đọc được: trả ảnh gốc
+    console.error('Không tạo được biến thể ảnh:', error.message);
+    next();
+  }
+};
+
+module.exports = {
+  VARIANT_WIDTHS,
+  pickWidth,
+  generateVariants,
+  serveVariant
+};
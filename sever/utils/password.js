@@ -0,0 +1,50 @@
+const crypto = require('crypto');
+const { promisify } = require('util');
+
+// Băm mật khẩu bằng pbkdf2 bất đồng bộ: phép băm chạy trên thread pool của libuv
+// (UV_THREADPOOL_SIZE, mặc định 4) nên một loạt đăng nhập không chặn event loop của các request khác.
+// Chuỗi lưu: "pbkdf2$<số vòng>$<salt>$<hash>". Dạng cũ "salt:hash" là 1000 vòng.
+
+const pbkdf2 = promisify(crypto.pbkdf2);
+
+const KEY_LENGTH = 64;
+const DIGEST = 'sha512';
+const LEGACY_ITERATIONS = 1000;
+// ~37ms mỗi lần băm trên một nhân, khoảng 27 lượt đăng nhập/giây mỗi nhân (bảng đo trong README)
+const DEFAULT_ITERATIONS = 25000;
+
+// Đổi PASSWORD_ITERATIONS trong .env để chỉnh chi phí; hash cũ vẫn kiểm tra được và được băm lại khi đăng nhập
+const currentIterations = () => {
+  const value = parseInt(process.env.PASSWORD_ITERATIONS || '', 10);
+  return Number.isFinite(value) && value > 0 ? value : DEFAULT_ITERATIONS;
+};
+
+const parse = (stored) => {
+  const value = String(stored || '');
+  if (value.startsWith('pbkdf2$')) {
+    const [, iterations, salt, hash] = value.split('$');
+    return { iterations: parseInt(iterations, 10), salt, hash };
+  }
+  const [salt, hash] = value.split(':');
+  return { iterations: LEGACY_ITERATIONS, salt, hash };
+};
+
+const hashPassword = async (password) => {
+  const iterations = currentIterations();
+  const salt = crypto.randomBytes(16).toString('hex');
+  const hash = await pbkdf2(String(password), salt, iterations, KEY_LENGTH, DIGEST);
+  return `pbkdf2$${iterations}$${salt}$${hash.toString('hex')}`;
+};
+
+const verifyPassword = async (password, stored) => {
+  const { iterations, salt, hash } = parse(stored);
+  if (!salt || !hash || !Number.isFinite(iterations)) return false;
+  const expected = Buffer.from(hash, 'hex');
+  const actual = await pbkdf2(String(password), salt, iterations, expected.length || KEY_LENGTH, DIGEST);
+  return expected.length === actual.length && crypto.timingSafeEqual(expected, actual);
+};
+
+// Hash dạng cũ hoặc khác số vòng hiện tại thì nên băm lại sau khi đăng nhập đúng
+const needsRehash = (stored) => parse(stored).iterations !== currentIterations();
+
+module.exports = { hashPassword, verifyPassword, needsRehash };
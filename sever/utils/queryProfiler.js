@@ -0,0 +1,52 @@
+// Chế độ báo cáo truy vấn: bật bằng PROFILE_QUERIES=true trong .env.
+// Sau khi đã trả response, chạy explain('executionStats') cho cùng truy vấn rồi log một dòng:
+// thời gian thực, plan thắng (IXSCAN tên index hay COLLSCAN), số key/doc đã duyệt so với số trả về.
+
+const isEnabled = () => process.env.PROFILE_QUERIES === 'true';
+
+// Gom các stage của winning plan thành chuỗi kiểu "LIMIT > FETCH > IXSCAN(category_1_createdAt_-1)"
+const describePlan = (stage) => {
+  if (!stage) return 'unknown';
+  const name = stage.indexName ? `${stage.stage}(${stage.indexName})` : stage.stage;
+  const children = stage.inputStage ? [stage.inputStage] : stage.inputStages || [];
+  if (children.length === 0) return name;
+  return `${name} > ${children.map(describePlan).join(' | ')}`;
+};
+
+const winningStage = (explain) => {
+  const planner = explain && explain.queryPlanner;
+  if (!planner || !planner.winningPlan) return null;
+  // Server 7+ có thể bọc plan trong queryPlan khi dùng slot-based engine
+  return planner.winningPlan.queryPlan || planner.winningPlan;
+};
+
+/**
+ * @param label     tên để phân biệt trong log, ví dụ "GET /products"
+ * @param query     Query mongoose chưa thực thi (sẽ được clone để explain)
+ * @param elapsedMs thời gian thực request đã tốn cho các truy vấn
+ */
+const profileQuery = (label, query, elapsedMs) => {
+  if (!isEnabled()) return;
+  // Không chờ: explain chạy lại truy vấn, không được cộng vào thời gian phản hồi
+  query
+    .clone()
+    .explain('executionStats')
+    .then((result) => {
+      const explain = Array.isArray(result) ? result[0] : result;
+      const stats = explain.executionStats || {};
+      const plan = describePlan(winningStage(explain));
+      const scanned = Math.max(stats.totalDocsExamined || 0, stats.totalKeysExamined || 0);
+      const tag = plan.includes('COLLSCAN') ? '⚠️  COLLSCAN' : '🔎';
+      console.log(
+        `${tag} ${label} ${elapsedMs}ms (db ${stats.executionTimeMillis}ms) ` +
+        `plan=${plan} keys=${stats.totalKeysExamined} docs=${stats.totalDocsExamined} ` +
+        `returned=${stats.nReturned} ratio=${stats.nReturned ? (scanned / stats.nReturned).toFixed(1) : scanned} ` +
+        `filter=${JSON.stringify(query.getFilter())}`
+      );
+    })
+    .catch((error) => {
+      console.warn(`Không explain được ${label}: ${error.message}`);
+    });
+};
+
+module.exports = { profileQuery, isEnabled };
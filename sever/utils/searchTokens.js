@@ -0,0 +1,54 @@
+// Chuẩn hóa và tách n-gram cho tìm kiếm sản phẩm theo tên.
+// Mỗi sản phẩm lưu sẵn mọi đoạn 2 và 3 ký tự của từng từ (searchTokens, có index multikey),
+// nên "phone" tìm được "iPhone 13" mà không phải quét $regex không neo qua cả collection.
+
+const MIN_GRAM = 2;
+const MAX_GRAM = 3;
+
+// Bỏ dấu tiếng Việt và viết thường: "Điện Thoại" -> "dien thoai"
+const normalize = (value) =>
+  String(value || '')
+    .normalize('NFD')
+    .replace(/[\u0300-\u036f]/g, '')
+    .replace(/đ/g, 'd')
+    .replace(/Đ/g, 'D')
+    .toLowerCase()
+    .replace(/\s+/g, ' ')
+    .trim();
+
+const words = (normalized) => normalized.split(/[^a-z0-9]+/).filter(Boolean);
+
+const gramsOf = (word, size) => {
+  const grams = [];
+  for (let i = 0; i + size <= word.length; i++) {
+    grams.push(word.slice(i, i + size));
+  }
+  return grams;
+};
+
+// Token để lưu cùng sản phẩm
+const buildSearchTokens = (name) => {
+  const tokens = new Set();
+  for (const word of words(normalize(name))) {
+    for (let size = MIN_GRAM; size <= MAX_GRAM; size++) {
+      gramsOf(word, size).forEach((gram) => tokens.add(gram));
+    }
+  }
+  return [...tokens];
+};
+
+// Token phải có đủ để một tên có thể chứa từ khóa. Từ dài dùng 3-gram, từ 2 ký tự dùng chính nó;
+// từ 1 ký tự không thu hẹp được gì nên bỏ qua (chỉ còn điều kiện regex trên searchName).
+const queryTokens = (search) => {
+  const tokens = new Set();
+  for (const word of words(normalize(search))) {
+    if (word.length >= MAX_GRAM) {
+      gramsOf(word, MAX_GRAM).forEach((gram) => tokens.add(gram));
+    } else if (word.length === MIN_GRAM) {
+      tokens.add(word);
+    }
+  }
+  return [...tokens];
+};
+
+module.exports = { normalize, buildSearchTokens, queryTokens };
@@ -0,0 +1,60 @@
+const crypto = require('crypto');
+
+// Token tự chứa ký HMAC-SHA256: "<payload base64url>.<chữ ký base64url>".
+// Kiểm tra chỉ cần khóa bí mật, không truy vấn database.
+//  - access: sống ngắn (ACCESS_TOKEN_TTL_SECONDS, mặc định 15 phút), gửi trong Authorization
+//  - refresh: sống 30 ngày, chỉ dùng cho POST /users/refresh; mang tokenVersion của user để
+//    đổi mật khẩu là vô hiệu mọi refresh token cũ
+
+const REFRESH_TTL_SECONDS = 60 * 60 * 24 * 30;
+
+const accessTtlSeconds = () => {
+  const value = parseInt(process.env.ACCESS_TOKEN_TTL_SECONDS || '', 10);
+  return Number.isFinite(value) && value > 0 ? value : 15 * 60;
+};
+
+const secret = (() => {
+  if (process.env.AUTH_SECRET) return process.env.AUTH_SECRET;
+  // Không cấu hình thì tạo ngẫu nhiên: vẫn chạy được nhưng mọi token mất hiệu lực khi server khởi động lại
+  console.warn('⚠️  Chưa đặt AUTH_SECRET trong .env, token sẽ mất hiệu lực sau mỗi lần khởi động lại');
+  return crypto.randomBytes(32).toString('hex');
+})();
+
+const signature = (body) => crypto.createHmac('sha256', secret).update(body).digest('base64url');
+
+const sign = (payload) => {
+  const body = Buffer.from(JSON.stringify(payload)).toString('base64url');
+  return `${body}.${signature(body)}`;
+};
+
+// Payload nếu token đúng chữ ký, đúng loại và còn hạn; ngược lại null
+const verifyToken = (token, type) => {
+  if (typeof token !== 'string') return null;
+  const [body, sig] = token.split('.');
+  if (!body || !sig) return null;
+  const expected = Buffer.from(signature(body));
+  const actual = Buffer.from(sig);
+  if (expected.length !== actual.length || !crypto.timingSafeEqual(expected, actual)) return null;
+  try {
+    const payload = JSON.parse(Buffer.from(body, 'base64url').toString('utf8'));
+    if (!payload || payload.typ !== type || !payload.sub) return null;
+    if (typeof payload.exp !== 'number' || payload.exp <= Math.floor(Date.now() / 1000)) return null;
+    return payload;
+  } catch (error) {
+    return null;
+  }
+};
+
+// Cặp token mới cho user (document có _id và tokenVersion)
+const issueTokens = (user) => {
+  const now = Math.floor(Date.now() / 1000);
+  const sub = String(user._id);
+  const expiresIn = accessTtlSeconds();
+  return {
+    token: sign({ sub, typ: 'access', iat: now, exp: now + expiresIn }),
+    refreshToken: sign({ sub, typ: 'refresh', v: user.tokenVersion || 0, iat: now, exp: now + REFRESH_TTL_SECONDS }),
+    expiresIn
+  };
+};
+
+module.exports = { issueTokens, verifyToken };